@@ -0,0 +1,71 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.text.ParseException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mas.wiiu.jnus.entities.fst.FST;
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator;
+import de.mas.wiiu.jnus.utils.FSTUtils;
+
+/**
+ * Parsing of a synthetic FST with 100k entries. As the entries are created lazily, walking all entries and a single lookup are measured too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FSTBenchmark {
+    private byte[] fstData;
+
+    @Setup
+    public void setup() {
+        // 1 + 10 * (1 + 100 * (1 + 99)) = 100011 entries
+        fstData = SyntheticTitleGenerator.createFST(10, 100, 99, 0x400);
+    }
+
+    @Benchmark
+    public FST parse() throws ParseException {
+        return FST.parseFST(fstData);
+    }
+
+    @Benchmark
+    public long parseAndWalk() throws ParseException {
+        return FSTUtils.getAllFSTEntryChildrenAsStream(FST.parseFST(fstData).getRoot()).count();
+    }
+
+    @Benchmark
+    public Optional<FSTEntry> parseAndLookup() throws ParseException {
+        return FSTUtils.getFSTEntryByFullPath(FST.parseFST(fstData).getRoot(), "/dir07/sub050/file042.szs");
+    }
+}
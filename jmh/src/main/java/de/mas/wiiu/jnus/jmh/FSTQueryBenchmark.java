@@ -0,0 +1,76 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mas.wiiu.jnus.entities.fst.FST;
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator;
+import de.mas.wiiu.jnus.utils.FSTUtils;
+
+/**
+ * Glob queries compared to the equivalent regular expressions on a synthetic FST with 100k entries. The FST is parsed once, so the first iteration also pays
+ * for the lazily decoded entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FSTQueryBenchmark {
+    private static final String[][] QUERIES = { //
+            { "/dir0*/sub01?/*.szs", "/dir0[^/]*/sub01[^/]/[^/]*\\.szs" }, //
+            { "/**/file00?.bin", ".*/file00[^/]\\.bin" }, //
+            { "/dir05/**", "/dir05/.*" }, //
+            { "/dir0?/sub099/file096.szs", "/dir0[^/]/sub099/file096\\.szs" } };
+
+    @Param({ "0", "1", "2", "3" })
+    public int query;
+
+    private FSTEntry root;
+
+    @Setup
+    public void setup() throws ParseException {
+        root = FST.parseFST(SyntheticTitleGenerator.createFST(10, 100, 99, 0x400)).getRoot();
+    }
+
+    @Benchmark
+    public List<FSTEntry> glob() {
+        return FSTUtils.getFSTEntriesByGlob(root, QUERIES[query][0], false);
+    }
+
+    @Benchmark
+    public List<FSTEntry> regEx() {
+        return FSTUtils.getFSTEntriesByRegEx(root, QUERIES[query][1], false);
+    }
+}
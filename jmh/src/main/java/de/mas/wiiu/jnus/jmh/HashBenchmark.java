@@ -0,0 +1,90 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator;
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator.HashedContent;
+import de.mas.wiiu.jnus.utils.CheckSumWrongException;
+import de.mas.wiiu.jnus.utils.HashUtil;
+
+/**
+ * Verification of one 0xFC00 byte block of a hashed content against its H0-H3 hashes. The blocks are checked in order, so the H1-H3 checks happen as often
+ * as when a content is read sequentially. checkHashedBlocks verifies a whole H1 group (16 blocks) per call, the time is reported per block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+    @Param({ "256" })
+    public int blocks;
+
+    private byte[][] hashes;
+    private byte[][] payloads;
+    private byte[] h3Hashes;
+    private byte[] blockData;
+    private int next = 0;
+    private int nextGroup = 0;
+
+    @Setup
+    public void setup() {
+        HashedContent content = SyntheticTitleGenerator.createHashedContent(SyntheticData.randomBytes(3, blocks * SyntheticTitleGenerator.HASHED_PAYLOAD_SIZE));
+        hashes = new byte[blocks][];
+        payloads = new byte[blocks][];
+        for (int i = 0; i < blocks; i++) {
+            hashes[i] = content.getHashes(i);
+            payloads[i] = content.getBlockPayload(i);
+        }
+        h3Hashes = content.getH3Hashes();
+        blockData = content.getDecrypted();
+    }
+
+    @Benchmark
+    public int checkFileChunkHashes() throws CheckSumWrongException, NoSuchAlgorithmException {
+        int block = next;
+        next = (next + 1) % blocks;
+        HashUtil.checkFileChunkHashes(hashes[block], h3Hashes, payloads[block], block);
+        return block;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public int checkHashedBlocks() throws CheckSumWrongException, NoSuchAlgorithmException {
+        int block = nextGroup;
+        nextGroup = (nextGroup + 16) % blocks;
+        HashUtil.checkHashedBlocks(blockData, block * HashUtil.HASHED_BLOCK_SIZE, 16, h3Hashes, block);
+        return block;
+    }
+}
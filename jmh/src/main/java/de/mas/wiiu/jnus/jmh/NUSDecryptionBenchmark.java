@@ -0,0 +1,82 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator;
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator.HashedContent;
+import de.mas.wiiu.jnus.utils.cryptography.NUSDecryption;
+
+/**
+ * Decryption throughput of hashed and non-hashed contents. Each operation decrypts blocks * 0x10000 bytes (hashed) or blocks * 0xFC00 bytes (non-hashed).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NUSDecryptionBenchmark {
+    @Param({ "64" })
+    public int blocks;
+
+    private byte[] key;
+    private byte[] h3Hashes;
+    private byte[] encryptedHashed;
+    private byte[] encryptedNonHashed;
+
+    @Setup
+    public void setup() {
+        key = SyntheticData.randomBytes(1, 0x10);
+        HashedContent content = SyntheticTitleGenerator.createHashedContent(SyntheticData.randomBytes(2, blocks * SyntheticTitleGenerator.HASHED_PAYLOAD_SIZE));
+        h3Hashes = content.getH3Hashes();
+        encryptedHashed = SyntheticTitleGenerator.encryptHashed(content.getDecrypted(), key);
+        encryptedNonHashed = SyntheticTitleGenerator.encryptNonHashed(content.getPayload(), key, (short) 1);
+    }
+
+    @Benchmark
+    public long hashed(Blackhole blackhole) throws IOException {
+        NUSDecryption decryption = new NUSDecryption(key, new byte[0x10]);
+        return decryption.readDecryptedContentToStreamHashed(new ByteArrayInputStream(encryptedHashed), new BlackholeOutputStream(blackhole), 0,
+                encryptedHashed.length, 0, h3Hashes);
+    }
+
+    @Benchmark
+    public long nonHashed(Blackhole blackhole) throws IOException {
+        byte[] iv = new byte[0x10];
+        iv[1] = 1;
+        NUSDecryption decryption = new NUSDecryption(key, iv);
+        return decryption.readDecryptedContentToStreamNonHashed(new ByteArrayInputStream(encryptedNonHashed), new BlackholeOutputStream(blackhole), 0,
+                encryptedNonHashed.length, 0, iv);
+    }
+}
@@ -0,0 +1,120 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.mas.wiiu.jnus.utils.BlockReader;
+import de.mas.wiiu.jnus.utils.ByteArrayBuffer;
+import de.mas.wiiu.jnus.utils.StreamUtils;
+
+/**
+ * Splitting a stream into 0x10000 byte blocks with {@link StreamUtils#getChunkFromStream(InputStream, byte[], ByteArrayBuffer, int)} and with a
+ * {@link BlockReader}. The source returns at most readSize bytes per read, like a pipe or a network stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamUtilsBenchmark {
+    private static final int BLOCK_SIZE = 0x10000;
+
+    @Param({ "0x400000" })
+    public String size;
+
+    @Param({ "0x1000", "0x3000", "0x10000" })
+    public String readSize;
+
+    private byte[] data;
+    private int maxRead;
+
+    @Setup
+    public void setup() {
+        data = SyntheticData.randomBytes(4, Integer.decode(size));
+        maxRead = Integer.decode(readSize);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public int getChunkFromStream(Blackhole blackhole) throws IOException {
+        InputStream in = new ChunkedInputStream(data, maxRead);
+        byte[] block = new byte[BLOCK_SIZE];
+        ByteArrayBuffer overflow = new ByteArrayBuffer(BLOCK_SIZE);
+        int blocks = 0;
+        while (StreamUtils.getChunkFromStream(in, block, overflow, BLOCK_SIZE) > 0) {
+            blackhole.consume(block);
+            blocks++;
+        }
+        return blocks;
+    }
+
+    @Benchmark
+    public int blockReader(Blackhole blackhole) throws IOException {
+        BlockReader reader = new BlockReader(new ChunkedInputStream(data, maxRead));
+        byte[] block = new byte[BLOCK_SIZE];
+        int blocks = 0;
+        while (reader.read(block, 0, BLOCK_SIZE) > 0) {
+            blackhole.consume(block);
+            blocks++;
+        }
+        return blocks;
+    }
+
+    private static class ChunkedInputStream extends InputStream {
+        private final byte[] data;
+        private final int maxRead;
+        private int pos = 0;
+
+        ChunkedInputStream(byte[] data, int maxRead) {
+            this.data = data;
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(len, maxRead), data.length - pos);
+            System.arraycopy(data, pos, b, off, count);
+            pos += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+/**
+ * Random inputs of the benchmarks that are not titles: plain data and disc images. Everything is derived from a seed, so the inputs are the same for each
+ * run. Contents and FSTs come from the {@link de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator} of the tests.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class SyntheticData {
+    public static final int WUD_SECTOR_SIZE = 0x8000;
+
+    private SyntheticData() {
+        // Utility class
+    }
+
+    public static byte[] randomBytes(long seed, int size) {
+        byte[] result = new byte[size];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+
+    /**
+     * Creates a sparse disc image of the given size. dataSectors sectors are filled with random data, every fourth of them is a copy of an earlier one, the
+     * rest of the image is zero.
+     */
+    public static void createDiscImage(File file, long size, int dataSectors, long seed) throws IOException {
+        Random random = new Random(seed);
+        long sectorCount = size / WUD_SECTOR_SIZE;
+        byte[][] written = new byte[Math.max(1, dataSectors)][];
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(size);
+            for (int i = 0; i < dataSectors; i++) {
+                byte[] sector;
+                if (i % 4 == 3) {
+                    sector = written[random.nextInt(i)];
+                } else {
+                    sector = new byte[WUD_SECTOR_SIZE];
+                    random.nextBytes(sector);
+                }
+                written[i] = sector;
+                out.seek((i * (sectorCount / Math.max(1, dataSectors))) * WUD_SECTOR_SIZE);
+                out.write(sector);
+            }
+        }
+    }
+}
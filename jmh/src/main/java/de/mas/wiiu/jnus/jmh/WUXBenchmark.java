@@ -0,0 +1,111 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.mas.wiiu.jnus.WUDService;
+import de.mas.wiiu.jnus.implementations.wud.WUDImage;
+import de.mas.wiiu.jnus.implementations.wud.reader.WUDDiscReader;
+
+/**
+ * Compression of a synthetic disc image into a .wux and random reads from the .wux. {@link WUDImage#WUD_FILESIZE} is lowered to imageSize for the benchmark,
+ * so the images don't need 23GiB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WUXBenchmark {
+    @Param({ "0x4000000" })
+    public String imageSize;
+
+    @Param({ "512" })
+    public int dataSectors;
+
+    @Param({ "0x10000" })
+    public String readLength;
+
+    private long originalWUDFileSize;
+    private File folder;
+    private WUDImage wudImage;
+    private WUDDiscReader wuxReader;
+    private long size;
+    private int read;
+    private final Random random = new Random(5);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        size = Long.decode(imageSize);
+        read = Integer.decode(readLength);
+        originalWUDFileSize = WUDImage.WUD_FILESIZE;
+        WUDImage.WUD_FILESIZE = size;
+
+        folder = Files.createTempDirectory("jnuslib-jmh").toFile();
+        File wud = new File(folder, "game.wud");
+        SyntheticData.createDiscImage(wud, size, dataSectors, 6);
+        wudImage = new WUDImage(wud);
+
+        Optional<File> wux = WUDService.compressWUDToWUX(wudImage, folder.getAbsolutePath(), "read.wux", true);
+        wuxReader = new WUDImage(wux.orElseThrow(() -> new IOException("Failed to create the .wux"))).getWUDDiscReader();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        WUDImage.WUD_FILESIZE = originalWUDFileSize;
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    @Benchmark
+    public Optional<File> compressWUDToWUX() throws IOException {
+        return WUDService.compressWUDToWUX(wudImage, folder.getAbsolutePath(), "compress.wux", true);
+    }
+
+    @Benchmark
+    public long randomRead(Blackhole blackhole) throws IOException {
+        long offset = (long) (random.nextDouble() * (size - read));
+        return wuxReader.readEncryptedToStream(new BlackholeOutputStream(blackhole), offset, read);
+    }
+}
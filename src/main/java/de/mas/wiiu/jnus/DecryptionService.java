@@ -16,21 +16,49 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
+import de.mas.wiiu.jnus.entities.TMD;
+import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.entities.fst.FSTEntry;
 import de.mas.wiiu.jnus.interfaces.FSTDataProvider;
+import de.mas.wiiu.jnus.interfaces.HasNUSTitle;
+import de.mas.wiiu.jnus.interfaces.ProgressListener;
+import de.mas.wiiu.jnus.utils.BufferPool;
+import de.mas.wiiu.jnus.utils.CancellationToken;
 import de.mas.wiiu.jnus.utils.CheckSumWrongException;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
+import de.mas.wiiu.jnus.utils.ExtractionManifest;
+import de.mas.wiiu.jnus.utils.ExtractionPlanner;
+import de.mas.wiiu.jnus.utils.ExtractionPlanner.ContentRun;
 import de.mas.wiiu.jnus.utils.FSTUtils;
 import de.mas.wiiu.jnus.utils.FileUtils;
+import de.mas.wiiu.jnus.utils.OperationCancelledException;
+import de.mas.wiiu.jnus.utils.ProgressTracker;
+import de.mas.wiiu.jnus.utils.StreamUtils;
 import de.mas.wiiu.jnus.utils.Utils;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.val;
 import lombok.extern.java.Log;
 
@@ -41,6 +69,15 @@ public final class DecryptionService {
 
     private boolean parallelizable = false;
 
+    /** Executor for the asynchronous decryption, {@code null} to use {@link ExecutorUtils#getDefaultExecutor()}. */
+    @Setter private Executor executor = null;
+    /** Max number of files or content runs that are decrypted at the same time. */
+    @Getter @Setter private int maxInFlight = Settings.MAX_IN_FLIGHT_TASKS;
+    /** Receives the progress (decrypted bytes) of all decryptions of this service, may be {@code null}. */
+    @Setter private ProgressListener progressListener = null;
+    /** Cancels the running and all following decryptions of this service once it's cancelled, may be {@code null}. */
+    @Setter private CancellationToken cancellationToken = null;
+
     public static DecryptionService getInstance(FSTDataProvider dataProvider) {
         return new DecryptionService(dataProvider);
     }
@@ -49,6 +86,10 @@ public final class DecryptionService {
         this.dataProvider = dataProvider;
     }
 
+    public Executor getExecutor() {
+        return executor != null ? executor : ExecutorUtils.getDefaultExecutor();
+    }
+
     public void decryptFSTEntryTo(boolean useFullPath, FSTEntry entry, String outputPath, boolean skipExistingFile) {
         try {
             decryptFSTEntryToAsync(useFullPath, entry, outputPath, skipExistingFile).get();
@@ -58,57 +99,250 @@ public final class DecryptionService {
     }
 
     public CompletableFuture<Void> decryptFSTEntryToAsync(boolean useFullPath, FSTEntry entry, String outputPath, boolean skipExistingFile) {
+        ProgressTracker progress = createProgressTracker(Collections.singletonList(entry));
         return CompletableFuture.runAsync(() -> {
             try {
-                if (entry.isNotInPackage()) {
-                    return;
-                }
+                decryptFSTEntryToFile(useFullPath, entry, outputPath, skipExistingFile, progress);
+                progress.finish();
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        }, getExecutor());
+    }
 
-                log.info("Decrypting " + entry.getFilename());
+    private void decryptFSTEntryToFile(boolean useFullPath, FSTEntry entry, String outputPath, boolean skipExistingFile, ProgressTracker progress)
+            throws IOException {
+        progress.throwIfCancelled();
+        Optional<File> target = prepareTargetFile(useFullPath, entry, outputPath, skipExistingFile);
+        if (!target.isPresent()) {
+            skipped(entry, progress);
+            return;
+        }
 
-                String targetFilePath = new StringBuilder().append(outputPath).append("/").append(entry.getFilename()).toString();
-                String fullPath = new StringBuilder().append(outputPath).toString();
+        log.info("Decrypting " + entry.getFilename());
 
-                if (useFullPath) {
-                    targetFilePath = new StringBuilder().append(outputPath).append(entry.getFullPath()).toString();
-                    fullPath = new StringBuilder().append(outputPath).append(entry.getPath()).toString();
-                    if (entry.isDir()) { // If the entry is a directory. Create it and return.
-                        Utils.createDir(targetFilePath);
-                        return;
-                    }
-                } else if (entry.isDir()) {
-                    return;
-                }
+        // to avoid having fragmented files.
+        try {
+            FileUtils.FileAsOutputStreamWrapper(target.get(), entry.getFileSize(),
+                    newOutputStream -> decryptFSTEntryToStream(entry, progress.wrap(newOutputStream)));
+        } catch (IOException e) {
+            throw progress.translate(e);
+        }
+    }
+
+    /**
+     * Returns a tracker for the decryption of the given entries, the total is the size of all files.
+     */
+    private ProgressTracker createProgressTracker(List<FSTEntry> list) {
+        long total = list.stream().filter(e -> !e.isDir() && !e.isNotInPackage()).mapToLong(FSTEntry::getFileSize).sum();
+        return new ProgressTracker("Decrypting", total, progressListener, cancellationToken);
+    }
+
+    /**
+     * Files that are not decrypted again still count as done.
+     */
+    private static void skipped(FSTEntry entry, ProgressTracker progress) throws OperationCancelledException {
+        if (!entry.isDir() && !entry.isNotInPackage()) {
+            progress.add(entry.getFileSize());
+        }
+    }
+
+    /**
+     * Creates the directories for the given entry and returns the file it should be written to. Returns an empty Optional if there is nothing to write, e.g.
+     * because the entry is a directory or the file already exists.
+     */
+    private Optional<File> prepareTargetFile(boolean useFullPath, FSTEntry entry, String outputPath, boolean skipExistingFile) {
+        return prepareTargetFile(useFullPath, entry, outputPath, skipExistingFile, null);
+    }
+
+    /**
+     * Like {@link #prepareTargetFile(boolean, FSTEntry, String, boolean)}, directories that are in createdDirs are not checked again and new ones are added.
+     */
+    private Optional<File> prepareTargetFile(boolean useFullPath, FSTEntry entry, String outputPath, boolean skipExistingFile, Set<String> createdDirs) {
+        if (entry.isNotInPackage()) {
+            return Optional.empty();
+        }
 
-                if (!Utils.createDir(fullPath)) {
-                    return;
+        String targetFilePath = new StringBuilder().append(outputPath).append("/").append(entry.getFilename()).toString();
+        String fullPath = new StringBuilder().append(outputPath).toString();
+
+        if (useFullPath) {
+            targetFilePath = new StringBuilder().append(outputPath).append(entry.getFullPath()).toString();
+            fullPath = new StringBuilder().append(outputPath).append(entry.getPath()).toString();
+            if (entry.isDir()) { // If the entry is a directory. Create it and return.
+                if (Utils.createDir(targetFilePath) && createdDirs != null) {
+                    createdDirs.add(targetFilePath);
                 }
+                return Optional.empty();
+            }
+        } else if (entry.isDir()) {
+            return Optional.empty();
+        }
 
-                if (skipExistingFile) {
-                    File targetFile = new File(targetFilePath);
-                    if (targetFile.exists()) {
-                        if (entry.isDir()) {
-                            return;
-                        }
-                        if (targetFile.length() == entry.getFileSize()) {
+        if (createdDirs == null || !createdDirs.contains(fullPath)) {
+            if (!Utils.createDir(fullPath)) {
+                return Optional.empty();
+            }
+            if (createdDirs != null) {
+                createdDirs.add(fullPath);
+            }
+        }
 
-                            log.info("File already exists: " + entry.getFilename());
-                            return;
+        File targetFile = new File(targetFilePath);
+        if (skipExistingFile && targetFile.exists()) {
+            if (targetFile.length() == entry.getFileSize()) {
+                log.info("File already exists: " + entry.getFilename());
+                return Optional.empty();
+            } else {
+                log.info("File already exists but the filesize doesn't match: " + entry.getFilename());
+            }
+        }
+        return Optional.of(targetFile);
+    }
 
-                        } else {
-                            log.info("File already exists but the filesize doesn't match: " + entry.getFilename());
-                        }
+    /**
+     * Decrypts all files of a run with one sequential read of the content. The bytes between the files are decrypted and dropped. Consecutive small files are
+     * read into memory as one batch and written directly. The data of hashed contents is verified block by block before we get it. The hash of a non-hashed
+     * content is only checked at the end of the stream, so in that case all files are written to temp files and only renamed to their target names after the
+     * whole run was read and the hash was checked.
+     */
+    private void decryptContentRun(NUSTitle title, boolean useFullPath, ContentRun run, String outputPath, boolean skipExistingFile, Set<String> createdDirs,
+            ProgressTracker progress) throws IOException {
+        progress.throwIfCancelled();
+        Map<FSTEntry, File> targets = new IdentityHashMap<>();
+        long start = -1;
+        long end = 0;
+        for (FSTEntry entry : run.getEntries()) {
+            Optional<File> target = prepareTargetFile(useFullPath, entry, outputPath, skipExistingFile, createdDirs);
+            if (!target.isPresent()) {
+                skipped(entry, progress);
+            } else if (entry.getFileSize() == 0) {
+                FileUtils.FileAsOutputStreamWrapper(target.get(), 0, out -> {
+                });
+            } else {
+                targets.put(entry, target.get());
+                if (start < 0) {
+                    start = entry.getFileOffset();
+                }
+                end = entry.getFileOffset() + entry.getFileSize();
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        Content c = title.getTMD().getContentByIndex(run.getContentIndex());
+        // The hash of non-hashed contents can only be checked if we read it from the start, the rest is expected to be zero padding.
+        boolean checkHash = start == 0;
+        boolean verifyAtEnd = checkHash && !c.isHashed();
+
+        log.info("Decrypting " + targets.size() + " file(s) from " + c.getFilename());
+
+        byte[] buffer = BufferPool.acquire(0x8000);
+        byte[] batch = null;
+        List<FSTEntry> entries = run.getEntries();
+        List<File> written = new ArrayList<>();
+        boolean success = false;
+        IOException error = null;
+        InputStream in = title.getDataProcessor().readPlainDecryptedContentAsStream(c, start, end - start, checkHash);
+        Closeable registration = progress.closeOnCancel(in);
+        try {
+            long pos = start;
+            for (int i = 0; i < entries.size(); i++) {
+                FSTEntry entry = entries.get(i);
+                File target = targets.get(entry);
+                if (target == null) {
+                    continue;
+                }
+                StreamUtils.skipExactly(in, entry.getFileOffset() - pos);
+                if (entry.getFileSize() > Settings.SMALL_FILE_THRESHOLD) {
+                    if (verifyAtEnd) {
+                        written.add(target);
+                        FileUtils.FileAsPartFileWrapper(target, entry.getFileSize(),
+                                out -> StreamUtils.copyExactly(in, progress.wrap(out), entry.getFileSize(), buffer));
+                    } else {
+                        FileUtils.FileAsOutputStreamWrapper(target, entry.getFileSize(),
+                                out -> StreamUtils.copyExactly(in, progress.wrap(out), entry.getFileSize(), buffer));
                     }
+                    pos = entry.getFileOffset() + entry.getFileSize();
+                    continue;
                 }
 
-                File target = new File(targetFilePath);
+                // Collect the following small files, files we don't need are just part of the range.
+                int last = i;
+                long batchEnd = entry.getFileOffset() + entry.getFileSize();
+                for (int j = i + 1; j < entries.size(); j++) {
+                    FSTEntry next = entries.get(j);
+                    if (!targets.containsKey(next)) {
+                        continue;
+                    }
+                    long nextEnd = next.getFileOffset() + next.getFileSize();
+                    if (next.getFileSize() > Settings.SMALL_FILE_THRESHOLD || nextEnd - entry.getFileOffset() > Settings.SMALL_FILE_BATCH_SIZE) {
+                        break;
+                    }
+                    last = j;
+                    batchEnd = nextEnd;
+                }
 
-                // to avoid having fragmented files.
-                FileUtils.FileAsOutputStreamWrapper(target, entry.getFileSize(), newOutputStream -> decryptFSTEntryToStream(entry, newOutputStream));
-            } catch (Exception ex) {
-                throw new CompletionException(ex);
+                int batchSize = (int) (batchEnd - entry.getFileOffset());
+                if (batch == null || batch.length < batchSize) {
+                    BufferPool.release(batch);
+                    batch = BufferPool.acquire(batchSize);
+                }
+                StreamUtils.readExactly(in, batch, 0, batchSize);
+                for (int j = i; j <= last; j++) {
+                    FSTEntry cur = entries.get(j);
+                    File curTarget = targets.get(cur);
+                    if (curTarget == null) {
+                        continue;
+                    }
+                    byte[] data = batch;
+                    int batchOffset = (int) (cur.getFileOffset() - entry.getFileOffset());
+                    if (verifyAtEnd) {
+                        written.add(curTarget);
+                        FileUtils.FileAsPartFileWrapper(curTarget, cur.getFileSize(), out -> out.write(data, batchOffset, (int) cur.getFileSize()));
+                    } else {
+                        try (OutputStream out = new FileOutputStream(curTarget)) {
+                            out.write(data, batchOffset, (int) cur.getFileSize());
+                        }
+                    }
+                    progress.add(cur.getFileSize());
+                }
+                i = last;
+                pos = batchEnd;
+            }
+            // Read everything that is left, errors like a wrong hash are only reported at the end of the stream.
+            while (in.read(buffer) >= 0) {
+                // just drain it.
+            }
+            // The end of the stream can be reached before the error of the producer arrives, closing the stream waits for it.
+            in.close();
+            for (File target : written) {
+                FileUtils.commitPartFile(target);
+            }
+            success = true;
+        } catch (IOException e) {
+            error = progress.translate(e);
+            throw error;
+        } finally {
+            registration.close();
+            BufferPool.release(buffer);
+            BufferPool.release(batch);
+            if (!success) {
+                // The stream can only repeat the error of the run, e.g. as the "Pipe closed" the producer got after we stopped reading.
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    if (error != null) {
+                        error.addSuppressed(e);
+                    }
+                }
+                // Nothing of a failed run may be left behind, a later run with skipExisting would take it as valid.
+                for (File target : written) {
+                    FileUtils.getPartFile(target).delete();
+                }
             }
-        });
+        }
     }
 
     public void decryptFSTEntryToStream(FSTEntry entry, OutputStream outputStream) throws IOException {
@@ -145,7 +379,50 @@ public final class DecryptionService {
         Utils.createDir(outputFolder + File.separator + "code");
         Utils.createDir(outputFolder + File.separator + "content");
         Utils.createDir(outputFolder + File.separator + "meta");
-        decryptFSTEntriesTo(true, ".*", outputFolder, skipExisting);
+        decryptFSTEntryListTo(true, FSTUtils.getAllFSTEntryChildrenAsStream(dataProvider.getRoot()).collect(Collectors.toList()), outputFolder, skipExisting);
+    }
+
+    /**
+     * Decrypts all files and saves a manifest of the extraction in the output folder. If the folder already has a manifest of an earlier extraction of this
+     * title (e.g. of an older version), only files whose content changed or that are missing are decrypted again and files that don't exist anymore are
+     * deleted.
+     * 
+     * The manifest needs the TMD, for data providers without a NUSTitle this is the same as {@link #decryptAllFSTEntriesTo(String, boolean)} with
+     * skipExisting set.
+     */
+    public void decryptAllFSTEntriesIncrementalTo(String outputFolder) throws IOException, CheckSumWrongException {
+        if (!(dataProvider instanceof HasNUSTitle)) {
+            decryptAllFSTEntriesTo(outputFolder, true);
+            return;
+        }
+        TMD tmd = ((HasNUSTitle) dataProvider).getNUSTitle().getTMD();
+        List<FSTEntry> entries = FSTUtils.getAllFSTEntryChildrenAsStream(dataProvider.getRoot()).collect(Collectors.toList());
+        ExtractionManifest manifest = ExtractionManifest.create(tmd, entries);
+
+        File manifestFile = ExtractionManifest.getManifestFile(outputFolder);
+        Optional<ExtractionManifest> previous = ExtractionManifest.load(manifestFile).filter(m -> m.getTitleID() == tmd.getTitleID());
+        List<FSTEntry> changed = entries;
+        if (previous.isPresent()) {
+            changed = entries.stream().filter(e -> e.isDir() || !previous.get().isUnchanged(manifest, e.getFullPath())
+                    || new File(outputFolder + e.getFullPath()).length() != e.getFileSize()).collect(Collectors.toList());
+            for (String path : previous.get().getRemovedFiles(manifest)) {
+                File removed = new File(outputFolder + path);
+                if (removed.isFile() && !removed.delete()) {
+                    log.warning("Failed to delete " + removed.getAbsolutePath());
+                }
+            }
+            log.info("Found a manifest of an earlier extraction, " + changed.stream().filter(e -> !e.isDir()).count() + " of " + manifest.getFiles().size()
+                    + " file(s) need to be decrypted.");
+        }
+
+        // If the extraction fails the old manifest must not claim the files are up to date.
+        Files.deleteIfExists(manifestFile.toPath());
+
+        Utils.createDir(outputFolder + File.separator + "code");
+        Utils.createDir(outputFolder + File.separator + "content");
+        Utils.createDir(outputFolder + File.separator + "meta");
+        decryptFSTEntryListTo(true, changed, outputFolder, false);
+        manifest.save(manifestFile);
     }
 
     public void decryptFSTEntriesTo(String regEx, String outputFolder, boolean skipExisting) throws IOException, CheckSumWrongException {
@@ -156,6 +433,10 @@ public final class DecryptionService {
         decryptFSTEntryListTo(fullPath, FSTUtils.getFSTEntriesByRegEx(dataProvider.getRoot(), regEx), outputFolder, skipExisting);
     }
 
+    public void decryptFSTEntriesByGlobTo(String glob, String outputFolder, boolean skipExisting) throws IOException, CheckSumWrongException {
+        decryptFSTEntryListTo(true, FSTUtils.getFSTEntriesByGlob(dataProvider.getRoot(), glob, false), outputFolder, skipExisting);
+    }
+
     public void decryptFSTEntryListTo(List<FSTEntry> list, String outputFolder, boolean skipExisting) throws IOException, CheckSumWrongException {
         decryptFSTEntryListTo(true, list, outputFolder, skipExisting);
     }
@@ -166,19 +447,56 @@ public final class DecryptionService {
             try {
                 decryptFSTEntryListToAsync(fullPath, list, outputFolder, skipExisting).get();
             } catch (InterruptedException | ExecutionException e) {
+                if (e.getCause() instanceof OperationCancelledException) {
+                    throw (OperationCancelledException) e.getCause();
+                }
                 throw new RuntimeException(e);
             }
+            return;
+        }
+        ProgressTracker progress = createProgressTracker(list);
+        if (dataProvider instanceof HasNUSTitle) {
+            NUSTitle title = ((HasNUSTitle) dataProvider).getNUSTitle();
+            Set<String> createdDirs = createDirectories(fullPath, list, outputFolder);
+            for (ContentRun run : ExtractionPlanner.plan(list, Settings.EXTRACTION_MAX_GAP)) {
+                decryptContentRun(title, fullPath, run, outputFolder, skipExisting, createdDirs, progress);
+            }
         } else {
             for (val entry : list) {
-                decryptFSTEntryTo(fullPath, entry, outputFolder, skipExisting);
+                decryptFSTEntryToFile(fullPath, entry, outputFolder, skipExisting, progress);
             }
         }
+        progress.finish();
     }
 
+    /**
+     * Decrypts the given entries. If the files are located in contents of a NUSTitle, they are decrypted content by content in the order they are stored,
+     * otherwise each file is decrypted on its own.
+     */
     public CompletableFuture<Void> decryptFSTEntryListToAsync(boolean fullPath, List<FSTEntry> list, String outputFolder, boolean skipExisting)
             throws IOException, CheckSumWrongException {
-        return CompletableFuture
-                .allOf(list.stream().map(entry -> decryptFSTEntryToAsync(fullPath, entry, outputFolder, skipExisting)).toArray(CompletableFuture[]::new));
+        ProgressTracker progress = createProgressTracker(list);
+        if (!(dataProvider instanceof HasNUSTitle)) {
+            return ExecutorUtils.runBounded(list, maxInFlight, getExecutor(), entry -> decryptFSTEntryToFile(fullPath, entry, outputFolder, skipExisting, progress))
+                    .thenRun(progress::finish);
+        }
+        NUSTitle title = ((HasNUSTitle) dataProvider).getNUSTitle();
+        Set<String> createdDirs = createDirectories(fullPath, list, outputFolder);
+        return ExecutorUtils.runBounded(ExtractionPlanner.plan(list, Settings.EXTRACTION_MAX_GAP), maxInFlight, getExecutor(),
+                run -> decryptContentRun(title, fullPath, run, outputFolder, skipExisting, createdDirs, progress)).thenRun(progress::finish);
+    }
+
+    /**
+     * Creates the directories of the list and returns the paths of the created directories, the set can be used by multiple threads.
+     */
+    private Set<String> createDirectories(boolean fullPath, List<FSTEntry> list, String outputFolder) {
+        Set<String> createdDirs = ConcurrentHashMap.newKeySet();
+        for (FSTEntry entry : list) {
+            if (entry.isDir()) {
+                prepareTargetFile(fullPath, entry, outputFolder, false, createdDirs);
+            }
+        }
+        return createdDirs;
     }
 
 }
@@ -20,21 +20,27 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
 import de.mas.wiiu.jnus.interfaces.Parallelizable;
+import de.mas.wiiu.jnus.interfaces.ProgressListener;
+import de.mas.wiiu.jnus.utils.CancellationToken;
 import de.mas.wiiu.jnus.utils.DataProviderUtils;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
 import de.mas.wiiu.jnus.utils.FileUtils;
+import de.mas.wiiu.jnus.utils.OperationCancelledException;
+import de.mas.wiiu.jnus.utils.ProgressTracker;
 import de.mas.wiiu.jnus.utils.Utils;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.java.Log;
 
 @Log
@@ -45,6 +51,15 @@ public final class ExtractionService {
 
     private boolean parallelizable = false;
 
+    /** Executor for the parallel extraction, {@code null} to use {@link ExecutorUtils#getDefaultExecutor()}. */
+    @Setter private Executor executor = null;
+    /** Max number of contents that are extracted at the same time. */
+    @Getter @Setter private int maxInFlight = Settings.MAX_IN_FLIGHT_TASKS;
+    /** Receives the progress (saved bytes) of the content extraction, may be {@code null}. */
+    @Setter private ProgressListener progressListener = null;
+    /** Cancels the running and all following extractions of this service once it's cancelled, may be {@code null}. */
+    @Setter private CancellationToken cancellationToken = null;
+
     public static ExtractionService getInstance(NUSTitle nustitle) {
         if (!instances.containsKey(nustitle)) {
             instances.put(nustitle, new ExtractionService(nustitle));
@@ -59,6 +74,10 @@ public final class ExtractionService {
         this.NUSTitle = nustitle;
     }
 
+    public Executor getExecutor() {
+        return executor != null ? executor : ExecutorUtils.getDefaultExecutor();
+    }
+
     private NUSDataProvider getDataProvider() {
         return getNUSTitle().getDataProcessor().getDataProvider();
     }
@@ -88,33 +107,44 @@ public final class ExtractionService {
     }
 
     public void extractEncryptedContentTo(Content content, String outputFolder, boolean withHashes) throws IOException {
+        ProgressTracker progress = createProgressTracker(Collections.singletonList(content));
+        extractEncryptedContentTo(content, outputFolder, withHashes, progress);
+        progress.finish();
+    }
+
+    private void extractEncryptedContentTo(Content content, String outputFolder, boolean withHashes, ProgressTracker progress) throws IOException {
+        progress.throwIfCancelled();
         NUSDataProvider dataProvider = getDataProvider();
         if (withHashes) {
-            DataProviderUtils.saveEncryptedContentWithH3Hash(dataProvider, content, outputFolder);
+            DataProviderUtils.saveEncryptedContentWithH3Hash(dataProvider, content, outputFolder, progress);
         } else {
-            DataProviderUtils.saveEncryptedContent(dataProvider, content, outputFolder);
+            DataProviderUtils.saveEncryptedContent(dataProvider, content, outputFolder, progress);
         }
     }
 
+    private ProgressTracker createProgressTracker(Collection<Content> list) {
+        long total = list.stream().mapToLong(Content::getEncryptedFileSizeAligned).sum();
+        return new ProgressTracker("Extracting", total, progressListener, cancellationToken);
+    }
+
     public void extractEncryptedContentFilesTo(Collection<Content> list, String outputFolder, boolean withHashes) throws IOException {
         Utils.createDir(outputFolder);
+        ProgressTracker progress = createProgressTracker(list);
         if (parallelizable && Settings.ALLOW_PARALLELISATION) {
             try {
-                CompletableFuture.allOf(list.stream().map((Content c) -> CompletableFuture.runAsync(() -> {
-                    try {
-                        extractEncryptedContentTo(c, outputFolder, withHashes);
-                    } catch (IOException e) {
-                        throw new CompletionException(e);
-                    }
-                })).toArray(CompletableFuture[]::new)).get();
+                ExecutorUtils.runBounded(list, maxInFlight, getExecutor(), c -> extractEncryptedContentTo(c, outputFolder, withHashes, progress)).get();
             } catch (InterruptedException | ExecutionException e) {
+                if (e.getCause() instanceof OperationCancelledException) {
+                    throw (OperationCancelledException) e.getCause();
+                }
                 throw new RuntimeException(e);
             }
         } else {
             for (Content c : list) {
-                extractEncryptedContentTo(c, outputFolder, withHashes);
+                extractEncryptedContentTo(c, outputFolder, withHashes, progress);
             }
         }
+        progress.finish();
     }
 
     public boolean extractTMDTo(String output) throws IOException {
@@ -69,6 +69,28 @@ public class NUSTitle {
         return FSTUtils.getFSTEntriesByRegEx(FST.get().getRoot(), regEx, onlyInPackage);
     }
 
+    public List<FSTEntry> getFSTEntriesByGlob(String glob) {
+        return getFSTEntriesByGlob(glob, false);
+    }
+
+    public List<FSTEntry> getFSTEntriesByGlob(String glob, boolean allowNotInPackage) {
+        if (!FST.isPresent()) {
+            return new ArrayList<>();
+        }
+        return FSTUtils.getFSTEntriesByGlob(FST.get().getRoot(), glob, allowNotInPackage);
+    }
+
+    public List<FSTEntry> getFSTEntriesByPathPrefix(String prefix) {
+        return getFSTEntriesByPathPrefix(prefix, false);
+    }
+
+    public List<FSTEntry> getFSTEntriesByPathPrefix(String prefix, boolean allowNotInPackage) {
+        if (!FST.isPresent()) {
+            return new ArrayList<>();
+        }
+        return FSTUtils.getFSTEntriesByPathPrefix(FST.get().getRoot(), prefix, allowNotInPackage);
+    }
+
     public void cleanup() throws IOException {
         if (getDataProcessor() != null && getDataProcessor().getDataProvider() != null) {
             getDataProcessor().getDataProvider().cleanup();
@@ -16,6 +16,8 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus;
 
+import java.io.File;
+
 import de.mas.wiiu.jnus.entities.Ticket;
 import lombok.Data;
 
@@ -25,4 +27,6 @@ public class NUSTitleConfig {
     private boolean ticketNeeded = true;
     private boolean noDecryption;
     private byte[] commonKey;
+    /** Folder for the metadata cache, null disables it. See {@link de.mas.wiiu.jnus.utils.TitleMetadataCache} */
+    private File metadataCacheFolder;
 }
@@ -16,10 +16,14 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.security.NoSuchProviderException;
 import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -35,9 +39,12 @@ import de.mas.wiiu.jnus.interfaces.FSTDataProvider;
 import de.mas.wiiu.jnus.interfaces.NUSDataProcessor;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
 import de.mas.wiiu.jnus.interfaces.TriFunction;
+import de.mas.wiiu.jnus.utils.TitleMetadataCache;
 import de.mas.wiiu.jnus.utils.cryptography.NUSDecryption;
 import de.mas.wiiu.jnus.utils.cryptography.NUSEncryption;
+import lombok.extern.java.Log;
 
+@Log
 public class NUSTitleLoader {
     private NUSTitleLoader() {
         // should be empty
@@ -48,7 +55,8 @@ public class NUSTitleLoader {
             throws IOException, ParseException {
         NUSDataProvider dataProvider = dataProviderFunction.get();
 
-        TMD tmd = TMD.parseTMD(dataProvider.getRawTMD().orElseThrow(() -> new FileNotFoundException("No TMD data found")));
+        byte[] rawTMD = dataProvider.getRawTMD().orElseThrow(() -> new FileNotFoundException("No TMD data found"));
+        TMD tmd = TMD.parseTMD(rawTMD);
 
         if (config.isNoDecryption()) {
             NUSTitle result = NUSTitle.create(tmd, dataProcessorFunction.apply(dataProvider, Optional.empty(), Optional.empty()), Optional.empty(),
@@ -98,14 +106,60 @@ public class NUSTitleLoader {
         // If we have more than one content, the index 0 is the FST.
         Content fstContent = tmd.getContentByIndex(0);
 
-        byte[] fstBytes = dpp.readPlainDecryptedContent(fstContent, true);
-        FST fst = FST.parseFST(fstBytes);
+        Optional<String> fingerprint = Optional.empty();
+        if (config.getMetadataCacheFolder() != null) {
+            fingerprint = dataProvider.getSourceFingerprint();
+        }
+
+        FST fst = null;
+        if (fingerprint.isPresent()) {
+            Optional<TitleMetadataCache> cache = TitleMetadataCache.load(config.getMetadataCacheFolder(), tmd, rawTMD, ticket, fingerprint.get());
+            if (cache.isPresent()) {
+                fst = FST.parseFST(cache.get().getFSTData());
+                dataProvider.setFST(fst);
+                for (Entry<Short, byte[]> e : cache.get().getH3Hashes().entrySet()) {
+                    Content c = tmd.getContentByIndex(e.getKey());
+                    if (c != null) {
+                        dataProvider.primeContentH3Hash(c, e.getValue());
+                    }
+                }
+            }
+        }
+
+        if (fst == null) {
+            byte[] fstBytes = dpp.readPlainDecryptedContent(fstContent, true);
+            fst = FST.parseFST(fstBytes);
 
-        // The dataprovider may need the FST to calculate the offset of a content
-        // on the partition.
-        dataProvider.setFST(fst);
+            // The dataprovider may need the FST to calculate the offset of a content
+            // on the partition.
+            dataProvider.setFST(fst);
+
+            if (fingerprint.isPresent()) {
+                saveMetadataCache(config.getMetadataCacheFolder(), tmd, rawTMD, ticket, fingerprint.get(), fstBytes, dataProvider);
+            }
+        }
 
         return NUSTitle.create(tmd, dpp, ticket, Optional.of(fst));
     }
 
+    private static void saveMetadataCache(File cacheFolder, TMD tmd, byte[] rawTMD, Optional<Ticket> ticket, String fingerprint, byte[] fstBytes,
+            NUSDataProvider dataProvider) {
+        Map<Short, byte[]> h3Hashes = new HashMap<>();
+        for (Content c : tmd.getAllContents().values()) {
+            if (!c.isHashed()) {
+                continue;
+            }
+            try {
+                dataProvider.getContentH3Hash(c).ifPresent(h3 -> h3Hashes.put(c.getIndex(), h3));
+            } catch (IOException e) {
+                log.info("No h3 hash for " + c.getFilename() + " in the metadata cache: " + e.getMessage());
+            }
+        }
+        try {
+            TitleMetadataCache.save(cacheFolder, tmd, rawTMD, ticket, fingerprint, fstBytes, h3Hashes);
+        } catch (IOException e) {
+            log.warning("Failed to save metadata cache: " + e.getMessage());
+        }
+    }
+
 }
@@ -22,6 +22,7 @@ import java.text.ParseException;
 import de.mas.wiiu.jnus.entities.Ticket;
 import de.mas.wiiu.jnus.implementations.DefaultNUSDataProcessor;
 import de.mas.wiiu.jnus.implementations.NUSDataProviderLocal;
+import de.mas.wiiu.jnus.implementations.NUSDataProviderLocalMapped;
 
 public final class NUSTitleLoaderLocal {
 
@@ -34,6 +35,22 @@ public final class NUSTitleLoaderLocal {
     }
 
     public static NUSTitle loadNUSTitle(String inputPath, Ticket ticket, byte[] commonKey) throws IOException, ParseException {
+        return loadNUSTitle(inputPath, ticket, commonKey, false);
+    }
+
+    public static NUSTitle loadNUSTitleMapped(String inputPath, byte[] commonKey) throws IOException, ParseException {
+        return loadNUSTitle(inputPath, null, commonKey, true);
+    }
+
+    public static NUSTitle loadNUSTitleMapped(String inputPath, Ticket ticket) throws IOException, ParseException {
+        return loadNUSTitle(inputPath, ticket, null, true);
+    }
+
+    /**
+     * Loads a title from the .app/.h3/tmd/tik/cert files in the given directory. If memoryMapped is set, a {@link NUSDataProviderLocalMapped} is used which
+     * keeps the contents open and reads them via memory-mapped regions.
+     */
+    public static NUSTitle loadNUSTitle(String inputPath, Ticket ticket, byte[] commonKey, boolean memoryMapped) throws IOException, ParseException {
         NUSTitleConfig config = new NUSTitleConfig();
 
         config.setCommonKey(commonKey);
@@ -44,7 +61,8 @@ public final class NUSTitleLoaderLocal {
             throw new IOException("Ticket was null and no commonKey was given");
         }
 
-        return NUSTitleLoader.loadNusTitle(config, () -> new NUSDataProviderLocal(inputPath), (dp, cd, en) -> new DefaultNUSDataProcessor(dp, cd));
+        return NUSTitleLoader.loadNusTitle(config, () -> memoryMapped ? new NUSDataProviderLocalMapped(inputPath) : new NUSDataProviderLocal(inputPath),
+                (dp, cd, en) -> new DefaultNUSDataProcessor(dp, cd));
     }
 
 }
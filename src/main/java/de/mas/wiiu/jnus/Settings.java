@@ -28,8 +28,56 @@ public class Settings {
     public static final String WUD_KEY_FILENAME = "game.key";
     public static final String WOOMY_METADATA_FILENAME = "metadata.xml";
     public static final String H3_EXTENTION = ".h3";
+    public static final String INFLATE_INDEX_EXTENTION = ".inflateidx";
+    public static final String METADATA_CACHE_EXTENTION = ".jnusmeta";
+    public static final String EXTRACTION_MANIFEST_FILENAME = ".jnusmanifest";
     public static final String USER_AGENT = "Mozilla/5.0 (Nintendo WiiU) AppleWebKit/536.28 (KHTML, like Gecko) NX/3.0.3.12.12 NintendoBrowser/3.0.0.9561.US";
     public static final boolean ALLOW_PARALLELISATION = true;
 
     public static int WIIU_DECRYPTED_AREA_OFFSET = 0x18000;
+
+    /** Run extraction tasks and pipe threads on virtual threads if the JDK supports them. */
+    public static boolean USE_VIRTUAL_THREADS = true;
+    /** Number of threads of the default executor if virtual threads can't be used. */
+    public static int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+    /** Max number of files or contents that are extracted at the same time. */
+    public static int MAX_IN_FLIGHT_TASKS = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+    /** Max size in bytes of the decrypted blocks each DefaultNUSDataProcessor keeps in memory, 0 disables the cache. */
+    public static long DECRYPTED_BLOCK_CACHE_SIZE = 0x1000000;
+
+    /** Gaps between extracted files of the same content that are decrypted and dropped instead of starting a new read. */
+    public static long EXTRACTION_MAX_GAP = 0x1000000;
+
+    /** Files up to this size are decrypted in batches into memory and written without a temp file. */
+    public static int SMALL_FILE_THRESHOLD = 0x10000;
+    /** Max number of bytes of one batch of small files. */
+    public static int SMALL_FILE_BATCH_SIZE = 0x400000;
+
+    /** Changed files up to this size are stored as binary diff in title deltas, bigger ones are stored completely. */
+    public static int DELTA_MAX_DIFF_SIZE = 0x4000000;
+
+    /** Max number of bytes of free buffers the BufferPool keeps, for heap and direct buffers each. 0 disables the pooling. */
+    public static long BUFFER_POOL_MAX_SIZE = 0x4000000;
+
+    /** Size of the regions the NUSDataProviderLocalMapped maps a content file in, a single mapping can't be bigger than 2 GiB. */
+    public static int MAPPED_REGION_SIZE = 0x40000000;
+
+    /** Calculate the H0 hashes of the blocks of a H1 group (16 blocks) of a hashed content in parallel. */
+    public static boolean PARALLEL_HASH_VERIFICATION = true;
+
+    /** Min time between two calls of a ProgressListener for the same operation. */
+    public static long PROGRESS_INTERVAL_MS = 250;
+
+    public static int DOWNLOAD_MAX_RETRIES = 8;
+    public static long DOWNLOAD_RETRY_BASE_DELAY_MS = 500;
+    public static long DOWNLOAD_RETRY_MAX_DELAY_MS = 30000;
+    public static int DOWNLOAD_CONNECT_TIMEOUT_MS = 15000;
+    public static int DOWNLOAD_READ_TIMEOUT_MS = 30000;
+    /** Time to wait for a response before a duplicate request is sent, 0 disables hedged requests. */
+    public static long DOWNLOAD_HEDGE_DELAY_MS = 0;
+
+    /** Create checkpoints for seeking into compressed .woomy/.wumad entries and save them next to the archive. */
+    public static boolean USE_INFLATE_INDEX = false;
+    public static long INFLATE_INDEX_SPAN = 0x100000;
 }
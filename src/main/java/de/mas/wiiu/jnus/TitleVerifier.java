@@ -0,0 +1,234 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.implementations.DefaultNUSDataProcessor;
+import de.mas.wiiu.jnus.interfaces.NUSDataProcessor;
+import de.mas.wiiu.jnus.interfaces.ProgressListener;
+import de.mas.wiiu.jnus.utils.CancellationToken;
+import de.mas.wiiu.jnus.utils.CheckSumWrongException;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
+import de.mas.wiiu.jnus.utils.HashUtil;
+import de.mas.wiiu.jnus.utils.OperationCancelledException;
+import de.mas.wiiu.jnus.utils.ProgressTracker;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.java.Log;
+
+/**
+ * Verifies all contents of a NUSTitle without writing anything to disk. Non-hashed contents are checked against the SHA1 of the TMD, for hashed contents the
+ * .h3 hashes are checked against the TMD and every block against its H0-H3 hashes. The contents are decrypted as stream and the data is dropped right away,
+ * so only maxInFlight contents are held in (small) buffers at the same time.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class TitleVerifier {
+    @Getter private final NUSTitle NUSTitle;
+    private final NUSDataProcessor dataProcessor;
+
+    /** Executor for the verification, {@code null} to use {@link ExecutorUtils#getDefaultExecutor()}. */
+    @Setter private Executor executor = null;
+    /** Max number of contents that are verified at the same time. */
+    @Getter @Setter private int maxInFlight = Settings.MAX_IN_FLIGHT_TASKS;
+    /** Receives the progress (verified bytes of the decrypted contents), may be {@code null}. */
+    @Setter private ProgressListener progressListener = null;
+    /** Cancels the verification once it's cancelled, may be {@code null}. */
+    @Setter private CancellationToken cancellationToken = null;
+
+    public static TitleVerifier getInstance(NUSTitle nustitle) {
+        return new TitleVerifier(nustitle);
+    }
+
+    private TitleVerifier(NUSTitle nustitle) {
+        this.NUSTitle = nustitle;
+        NUSDataProcessor processor = nustitle.getDataProcessor();
+        // Blocks from the cache were verified when they were read, the verification needs to check the data as it is now.
+        if (processor instanceof DefaultNUSDataProcessor) {
+            processor = ((DefaultNUSDataProcessor) processor).withoutBlockCache();
+        }
+        this.dataProcessor = processor;
+    }
+
+    public Executor getExecutor() {
+        return executor != null ? executor : ExecutorUtils.getDefaultExecutor();
+    }
+
+    /**
+     * Verifies all contents of the title.
+     * 
+     * @return the result of each content, ordered by the content index
+     * @throws OperationCancelledException
+     *             if the verification was cancelled
+     */
+    public List<ContentResult> verifyAll() throws IOException {
+        return verify(getNUSTitle().getTMD().getAllContents().values());
+    }
+
+    /**
+     * Verifies the given contents. A failed content doesn't stop the verification of the other contents, its error is part of the result.
+     * 
+     * @return the result of each content, ordered by the content index
+     * @throws OperationCancelledException
+     *             if the verification was cancelled
+     */
+    public List<ContentResult> verify(Collection<Content> contents) throws IOException {
+        try {
+            return verifyAsync(contents).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCancelledException("Verification was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    public CompletableFuture<List<ContentResult>> verifyAsync(Collection<Content> contents) {
+        long total = contents.stream().mapToLong(TitleVerifier::getPlainSize).sum();
+        ProgressTracker progress = new ProgressTracker("Verifying", total, progressListener, cancellationToken);
+        List<ContentResult> results = Collections.synchronizedList(new ArrayList<>());
+        return ExecutorUtils.runBounded(contents, maxInFlight, getExecutor(), c -> results.add(verifyContent(c, progress))).thenApply(v -> {
+            progress.finish();
+            List<ContentResult> sorted = new ArrayList<>(results);
+            sorted.sort(Comparator.comparing(r -> r.getContent().getIndex()));
+            return sorted;
+        });
+    }
+
+    private ContentResult verifyContent(Content c, ProgressTracker progress) throws IOException {
+        progress.throwIfCancelled();
+        long[] verified = new long[1];
+        try {
+            if (c.isHashed()) {
+                verifyH3Hashes(c);
+            }
+            // The data is only needed for the hash checks of the data processor.
+            OutputStream out = progress.wrap(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    verified[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    verified[0] += len;
+                }
+            });
+            dataProcessor.readPlainDecryptedContentToStream(out, c, 0, getPlainSize(c), true);
+            if (verified[0] < getPlainSize(c)) {
+                return new ContentResult(c, Status.ERROR, verified[0], "Only " + verified[0] + " of " + getPlainSize(c) + " bytes could be read", null);
+            }
+            log.fine(c.getFilename() + " is valid");
+            return new ContentResult(c, Status.VALID, verified[0], null, null);
+        } catch (CheckSumWrongException e) {
+            return checksumFailed(c, verified[0], e);
+        } catch (IOException e) {
+            IOException translated = progress.translate(e);
+            if (translated instanceof OperationCancelledException) {
+                throw translated;
+            }
+            Optional<CheckSumWrongException> checksumError = findChecksumError(e);
+            if (checksumError.isPresent()) {
+                return checksumFailed(c, verified[0], checksumError.get());
+            }
+            log.warning("Failed to verify " + c.getFilename() + ": " + e.getMessage());
+            return new ContentResult(c, Status.ERROR, verified[0], e.getMessage(), e);
+        }
+    }
+
+    private static ContentResult checksumFailed(Content c, long verified, CheckSumWrongException e) {
+        log.warning(c.getFilename() + " is invalid: " + e.getMessage());
+        return new ContentResult(c, Status.HASH_MISMATCH, verified, e.getMessage(), e);
+    }
+
+    private static Optional<CheckSumWrongException> findChecksumError(Throwable e) {
+        for (Throwable cur = e; cur != null; cur = cur.getCause()) {
+            if (cur instanceof CheckSumWrongException) {
+                return Optional.of((CheckSumWrongException) cur);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checks the .h3 hashes of the content against the hash of the TMD.
+     */
+    private void verifyH3Hashes(Content c) throws IOException, CheckSumWrongException {
+        byte[] h3Hashes = dataProcessor.getDataProvider().getContentH3Hash(c)
+                .orElseThrow(() -> new IOException("H3 hashes of " + c.getFilename() + " are missing"));
+        byte[] expected = c.getSHA2Hash();
+        try {
+            byte[] real = HashUtil.hashSHA1(h3Hashes);
+            // 0005000c1f941200 used sha256 instead of SHA1
+            if (!Arrays.equals(expected, real) && !Arrays.equals(expected, Arrays.copyOf(HashUtil.hashSHA256(h3Hashes), expected.length))) {
+                throw new CheckSumWrongException("h3 hashes checksumfail", real, expected);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Size of the plain data of the content, hashed contents store 0xFC00 bytes of data per 0x10000 bytes block.
+     */
+    private static long getPlainSize(Content c) {
+        if (c.isHashed()) {
+            return c.getEncryptedFileSizeAligned() / HashUtil.HASHED_BLOCK_SIZE * (HashUtil.HASHED_BLOCK_SIZE - HashUtil.HASHED_BLOCK_HASHES_SIZE);
+        }
+        return c.getEncryptedFileSizeAligned();
+    }
+
+    public enum Status {
+        VALID, HASH_MISMATCH, ERROR
+    }
+
+    @Data
+    public static class ContentResult {
+        private final Content content;
+        private final Status status;
+        /** Number of bytes of the decrypted content that were verified before the check finished or failed. */
+        private final long verifiedBytes;
+        /** Description of the failure, {@code null} if the content is valid. */
+        private final String message;
+        /** Cause of the failure, {@code null} if the content is valid. */
+        private final Exception error;
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+}
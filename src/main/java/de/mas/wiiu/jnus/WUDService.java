@@ -17,6 +17,7 @@
 
 package de.mas.wiiu.jnus;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -39,14 +40,22 @@ import java.util.zip.Checksum;
 
 import de.mas.wiiu.jnus.implementations.wud.WUDImage;
 import de.mas.wiiu.jnus.implementations.wud.WUDImageCompressedInfo;
-import de.mas.wiiu.jnus.utils.ByteArrayBuffer;
+import de.mas.wiiu.jnus.interfaces.ProgressListener;
+import de.mas.wiiu.jnus.utils.BlockReader;
+import de.mas.wiiu.jnus.utils.BufferPool;
 import de.mas.wiiu.jnus.utils.ByteArrayWrapper;
+import de.mas.wiiu.jnus.utils.CancellationToken;
 import de.mas.wiiu.jnus.utils.HashResult;
 import de.mas.wiiu.jnus.utils.HashUtil;
-import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.ProgressTracker;
 import de.mas.wiiu.jnus.utils.Utils;
 import lombok.extern.java.Log;
 
+/**
+ * Operations on whole WUD images. Each operation can be called with a {@link ProgressListener} and a {@link CancellationToken}, the variants without print
+ * the progress to stdout. A cancelled operation throws an {@link de.mas.wiiu.jnus.utils.OperationCancelledException}, stops the threads that read the image
+ * and deletes the file it was writing.
+ */
 @Log
 public final class WUDService {
     private WUDService() {
@@ -62,6 +71,11 @@ public final class WUDService {
     }
 
     public static Optional<File> compressWUDToWUX(WUDImage image, String outputFolder, String filename, boolean overwrite) throws IOException {
+        return compressWUDToWUX(image, outputFolder, filename, overwrite, ProgressListener.console(), null);
+    }
+
+    public static Optional<File> compressWUDToWUX(WUDImage image, String outputFolder, String filename, boolean overwrite, ProgressListener listener,
+            CancellationToken token) throws IOException {
         if (image.isCompressed()) {
             log.info("Given image is already compressed");
             return Optional.empty();
@@ -91,7 +105,12 @@ public final class WUDService {
         }
 
         log.info("Writing compressed file to: " + outputFile.getAbsolutePath());
+        ProgressTracker progress = new ProgressTracker("Compressing into .wux", image.getWUDFileSize(), listener, token);
+        progress.throwIfCancelled();
+        boolean success = false;
         RandomAccessFile fileOutput = new RandomAccessFile(outputFile, "rw");
+        InputStream in = null;
+        Closeable registration = null;
         try {
 
             WUDImageCompressedInfo info = WUDImageCompressedInfo.getDefaultCompressedInfo();
@@ -111,50 +130,48 @@ public final class WUDService {
             Map<ByteArrayWrapper, Integer> sectorHashes = new HashMap<>();
             Map<Integer, Integer> sectorMapping = new TreeMap<>();
 
-            InputStream in = image.getWUDDiscReader().readEncryptedToStream(0, image.getWUDFileSize());
+            in = image.getWUDDiscReader().readEncryptedToStream(0, image.getWUDFileSize());
+            registration = progress.closeOnCancel(in);
 
             int bufferSize = WUDImageCompressedInfo.SECTOR_SIZE;
-            byte[] blockBuffer = new byte[bufferSize];
-            ByteArrayBuffer overflow = new ByteArrayBuffer(bufferSize);
+            byte[] blockBuffer = BufferPool.acquire(bufferSize);
+            BlockReader reader = new BlockReader(in);
 
             long written = 0;
             int curSector = 0;
             int realSector = 0;
 
-            log.info("Writing sectors");
-            Integer oldOffset = null;
-            do {
-                int read = StreamUtils.getChunkFromStream(in, blockBuffer, overflow, bufferSize);
-                ByteArrayWrapper hash;
-                try {
-                    hash = new ByteArrayWrapper(HashUtil.hashSHA1(blockBuffer));
-                } catch (NoSuchAlgorithmException e1) {
-                    throw new IOException(e1);
-                }
-
-                if ((oldOffset = sectorHashes.get(hash)) == null) {
-                    sectorMapping.put(curSector, realSector);
-                    sectorHashes.put(hash, realSector);
-                    fileOutput.write(blockBuffer);
-                    realSector++;
-                } else {
-                    sectorMapping.put(curSector, oldOffset);
-                    oldOffset = null;
-                }
-
-                written += read;
-                curSector++;
-                if (curSector % 10 == 0) {
-                    double readMB = written / 1024.0 / 1024.0;
-                    double writtenMB = ((long) realSector * (long) bufferSize) / 1024.0 / 1024.0;
-                    double percent = ((double) written / image.getWUDFileSize()) * 100;
-                    double ratio = 1 / (writtenMB / readMB);
-                    System.out.print(String.format(Locale.ROOT, "\rCompressing into .wux | Progress %.2f%% | Ratio: 1:%.2f | Read: %.2fMB | Written: %.2fMB\t",
-                            percent, ratio, readMB, writtenMB));
-                }
-            } while (written < image.getWUDFileSize());
-            System.out.println();
-            log.info("Sectors compressed.");
+            try {
+                log.info("Writing sectors");
+                Integer oldOffset = null;
+                do {
+                    int read = reader.read(blockBuffer, 0, bufferSize);
+                    ByteArrayWrapper hash;
+                    try {
+                        hash = new ByteArrayWrapper(HashUtil.hashSHA1(blockBuffer, 0, bufferSize));
+                    } catch (NoSuchAlgorithmException e1) {
+                        throw new IOException(e1);
+                    }
+
+                    if ((oldOffset = sectorHashes.get(hash)) == null) {
+                        sectorMapping.put(curSector, realSector);
+                        sectorHashes.put(hash, realSector);
+                        fileOutput.write(blockBuffer, 0, bufferSize);
+                        realSector++;
+                    } else {
+                        sectorMapping.put(curSector, oldOffset);
+                        oldOffset = null;
+                    }
+
+                    written += read;
+                    curSector++;
+                    progress.add(read);
+                } while (written < image.getWUDFileSize());
+            } finally {
+                BufferPool.release(blockBuffer);
+            }
+            progress.finish();
+            log.info("Sectors compressed. Ratio: 1:" + String.format(Locale.ROOT, "%.2f", (double) written / ((long) realSector * (long) bufferSize)));
             log.info("Writing sector table");
             fileOutput.seek(sectorTableStart);
             ByteBuffer buffer = ByteBuffer.allocate(sectorTablePlaceHolder.length);
@@ -164,57 +181,78 @@ public final class WUDService {
             }
 
             fileOutput.write(buffer.array());
+            success = true;
+        } catch (IOException e) {
+            throw progress.translate(e);
         } finally {
+            close(registration, in);
             fileOutput.close();
+            if (!success) {
+                deletePartialFile(outputFile);
+            }
         }
 
         return Optional.of(outputFile);
     }
 
     public static boolean compareWUDImage(WUDImage firstImage, WUDImage secondImage) throws IOException {
+        return compareWUDImage(firstImage, secondImage, ProgressListener.console(), null);
+    }
+
+    public static boolean compareWUDImage(WUDImage firstImage, WUDImage secondImage, ProgressListener listener, CancellationToken token) throws IOException {
         if (firstImage.getWUDFileSize() != secondImage.getWUDFileSize()) {
             log.warning("Filesize is different");
             return false;
         }
+        ProgressTracker progress = new ProgressTracker("Verification", WUDImage.WUD_FILESIZE, listener, token);
+        progress.throwIfCancelled();
         InputStream in1 = firstImage.getWUDDiscReader().readEncryptedToStream(0, WUDImage.WUD_FILESIZE);
         InputStream in2 = secondImage.getWUDDiscReader().readEncryptedToStream(0, WUDImage.WUD_FILESIZE);
+        Closeable registration1 = progress.closeOnCancel(in1);
+        Closeable registration2 = progress.closeOnCancel(in2);
+        try {
+            return compareStreams(in1, in2, progress);
+        } catch (IOException e) {
+            throw progress.translate(e);
+        } finally {
+            close(registration1, in1);
+            close(registration2, in2);
+        }
+    }
 
+    private static boolean compareStreams(InputStream in1, InputStream in2, ProgressTracker progress) throws IOException {
         boolean result = true;
         int bufferSize = 1024 * 1024 + 19;
         long totalread = 0;
-        byte[] blockBuffer1 = new byte[bufferSize];
-        byte[] blockBuffer2 = new byte[bufferSize];
-        ByteArrayBuffer overflow1 = new ByteArrayBuffer(bufferSize);
-        ByteArrayBuffer overflow2 = new ByteArrayBuffer(bufferSize);
-        long curSector = 0;
-        do {
-            int read1 = StreamUtils.getChunkFromStream(in1, blockBuffer1, overflow1, bufferSize);
-            int read2 = StreamUtils.getChunkFromStream(in2, blockBuffer2, overflow2, bufferSize);
-            if (read1 != read2) {
-                log.warning("Verification error");
-                result = false;
-                break;
-            }
-
-            if (!Arrays.equals(blockBuffer1, blockBuffer2)) {
-                log.warning("Verification error");
-                result = false;
-                break;
-            }
+        byte[] blockBuffer1 = BufferPool.acquire(bufferSize);
+        byte[] blockBuffer2 = BufferPool.acquire(bufferSize);
+        BlockReader reader1 = new BlockReader(in1);
+        BlockReader reader2 = new BlockReader(in2);
+        try {
+            do {
+                int read1 = reader1.read(blockBuffer1, 0, bufferSize);
+                int read2 = reader2.read(blockBuffer2, 0, bufferSize);
+                if (read1 != read2) {
+                    log.warning("Verification error");
+                    result = false;
+                    break;
+                }
 
-            totalread += read1;
+                if (!ByteBuffer.wrap(blockBuffer1, 0, read1).equals(ByteBuffer.wrap(blockBuffer2, 0, read2))) {
+                    log.warning("Verification error");
+                    result = false;
+                    break;
+                }
 
-            curSector++;
-            if (curSector % 1 == 0) {
-                double readMB = totalread / 1024.0 / 1024.0;
-                double percent = ((double) totalread / WUDImage.WUD_FILESIZE) * 100;
-                System.out.print(String.format("\rVerification: %.2fMB done (%.2f%%)", readMB, percent));
-            }
-        } while (totalread < WUDImage.WUD_FILESIZE);
-        System.out.println();
+                totalread += read1;
+                progress.add(read1);
+            } while (totalread < WUDImage.WUD_FILESIZE);
+        } finally {
+            BufferPool.release(blockBuffer1);
+            BufferPool.release(blockBuffer2);
+        }
+        progress.finish();
         log.info("Verfication done!");
-        in1.close();
-        in2.close();
 
         return result;
     }
@@ -228,6 +266,11 @@ public final class WUDService {
     }
 
     public static Optional<File> decompressWUX(WUDImage image, String outputFolder, String filename, boolean overwrite) throws IOException {
+        return decompressWUX(image, outputFolder, filename, overwrite, ProgressListener.console(), null);
+    }
+
+    public static Optional<File> decompressWUX(WUDImage image, String outputFolder, String filename, boolean overwrite, ProgressListener listener,
+            CancellationToken token) throws IOException {
         if (!image.isCompressed()) {
             log.info("Given image is already decompressed (a wud file)");
             return Optional.empty();
@@ -257,41 +300,55 @@ public final class WUDService {
         }
 
         log.info("Writing decompressed file to: " + outputFile.getAbsolutePath());
+        ProgressTracker progress = new ProgressTracker("Decompressing", WUDImage.WUD_FILESIZE, listener, token);
+        progress.throwIfCancelled();
         InputStream in = image.getWUDDiscReader().readEncryptedToStream(0, WUDImage.WUD_FILESIZE);
-        OutputStream out = new FileOutputStream(outputFile);
-
-        int bufferSize = 1024 * 1024;
-        long totalread = 0;
-        byte[] blockBuffer = new byte[bufferSize];
-        ByteArrayBuffer overflow = new ByteArrayBuffer(bufferSize);
-        long curSector = 0;
-        do {
-            int read = StreamUtils.getChunkFromStream(in, blockBuffer, overflow, bufferSize);
-
-            if (read == bufferSize) {
-                out.write(blockBuffer);
-            } else if (read > 0) {
-                out.write(Arrays.copyOfRange(blockBuffer, 0, read));
+        Closeable registration = progress.closeOnCancel(in);
+        boolean success = false;
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(outputFile);
+            int bufferSize = 1024 * 1024;
+            long totalread = 0;
+            byte[] blockBuffer = BufferPool.acquire(bufferSize);
+            BlockReader reader = new BlockReader(in);
+            try {
+                do {
+                    int read = reader.read(blockBuffer, 0, bufferSize);
+
+                    if (read > 0) {
+                        out.write(blockBuffer, 0, read);
+                    }
+
+                    totalread += read;
+                    progress.add(read);
+                } while (totalread < WUDImage.WUD_FILESIZE);
+            } finally {
+                BufferPool.release(blockBuffer);
             }
-
-            totalread += read;
-
-            curSector++;
-            if (curSector % 1 == 0) {
-                double readMB = totalread / 1024.0 / 1024.0;
-                double percent = ((double) totalread / WUDImage.WUD_FILESIZE) * 100;
-                System.out.print(String.format("\rDecompressing: %.2fMB done (%.2f%%)", readMB, percent));
+            progress.finish();
+            log.info("Decompressing done!");
+            success = true;
+        } catch (IOException e) {
+            throw progress.translate(e);
+        } finally {
+            close(registration, in);
+            if (out != null) {
+                out.close();
+            }
+            if (!success) {
+                deletePartialFile(outputFile);
             }
-        } while (totalread < WUDImage.WUD_FILESIZE);
-        System.out.println();
-        log.info("Decompressing done!");
-        in.close();
-        out.close();
+        }
 
         return Optional.of(outputFile);
     }
 
     public static HashResult hashWUDImage(WUDImage image) throws IOException {
+        return hashWUDImage(image, ProgressListener.console(), null);
+    }
+
+    public static HashResult hashWUDImage(WUDImage image, ProgressListener listener, CancellationToken token) throws IOException {
         if (image == null) {
             log.info("Failed to calculate the hash of the given image: input was null.");
             throw new IOException("Failed to calculate the hash of the given image: input was null.");
@@ -303,14 +360,22 @@ public final class WUDService {
             log.info("The input file is splitted. The calculated hash is the hash of the corresponding .wud file, not this splitted .wud");
         }
 
+        ProgressTracker progress = new ProgressTracker("Hashing", WUDImage.WUD_FILESIZE, listener, token);
+        progress.throwIfCancelled();
         InputStream in = image.getWUDDiscReader().readEncryptedToStream(0, WUDImage.WUD_FILESIZE);
+        Closeable registration = progress.closeOnCancel(in);
+        try {
+            return hashStream(in, progress);
+        } catch (IOException e) {
+            throw progress.translate(e);
+        } finally {
+            close(registration, in);
+        }
+    }
 
+    private static HashResult hashStream(InputStream in, ProgressTracker progress) throws IOException {
         int bufferSize = 1024 * 1024 * 10;
         long totalread = 0;
-        byte[] blockBuffer1 = new byte[bufferSize];
-        ByteArrayBuffer overflow1 = new ByteArrayBuffer(bufferSize);
-        long curSector = 0;
-
         MessageDigest sha1 = null;
         MessageDigest md5 = null;
         Checksum checksumEngine = new CRC32();
@@ -322,30 +387,48 @@ public final class WUDService {
             e.printStackTrace();
         }
 
-        do {
-            int read1 = StreamUtils.getChunkFromStream(in, blockBuffer1, overflow1, bufferSize);
-            sha1.update(blockBuffer1, 0, read1);
-            md5.update(blockBuffer1, 0, read1);
-            checksumEngine.update(blockBuffer1, 0, read1);
-
-            totalread += read1;
-
-            curSector++;
-            if (curSector % 10 == 0) {
-                double readMB = totalread / 1024.0 / 1024.0;
-                double percent = ((double) totalread / WUDImage.WUD_FILESIZE) * 100;
-                System.out.print(String.format("\rHashing: %.2fMB done (%.2f%%)", readMB, percent));
-            }
-        } while (totalread < WUDImage.WUD_FILESIZE);
-        double readMB = totalread / 1024.0 / 1024.0;
-        double percent = ((double) totalread / WUDImage.WUD_FILESIZE) * 100;
+        byte[] blockBuffer1 = BufferPool.acquire(bufferSize);
+        BlockReader reader = new BlockReader(in);
+        try {
+            do {
+                int read1 = reader.read(blockBuffer1, 0, bufferSize);
+                sha1.update(blockBuffer1, 0, read1);
+                md5.update(blockBuffer1, 0, read1);
+                checksumEngine.update(blockBuffer1, 0, read1);
+
+                totalread += read1;
+                progress.add(read1);
+            } while (totalread < WUDImage.WUD_FILESIZE);
+        } finally {
+            BufferPool.release(blockBuffer1);
+        }
+        progress.finish();
 
-        log.info(String.format("\rHashing: %.2fMB done (%.2f%%)", readMB, percent));
+        log.info(String.format("Hashing: %.2fMB done", totalread / 1024.0 / 1024.0));
 
-        HashResult result = new HashResult(sha1.digest(), md5.digest(), Utils.StringToByteArray(Long.toHexString(checksumEngine.getValue())));
+        return new HashResult(sha1.digest(), md5.digest(), Utils.StringToByteArray(Long.toHexString(checksumEngine.getValue())));
+    }
 
-        in.close();
+    /**
+     * Closes the stream, this also stops the thread that feeds it.
+     */
+    private static void close(Closeable registration, InputStream in) throws IOException {
+        if (registration != null) {
+            registration.close();
+        }
+        if (in != null) {
+            in.close();
+        }
+    }
 
-        return result;
+    private static void deletePartialFile(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        if (file.delete()) {
+            log.info("Deleted incomplete file " + file.getAbsolutePath());
+        } else {
+            log.warning("Failed to delete " + file.getAbsolutePath());
+        }
     }
 }
@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.ZipFile;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -31,30 +30,30 @@ public class WumadLoader {
     public static List<NUSTitle> getGamePartionsAsNUSTitles(@NonNull WumadInfo wumadInfo, byte[] commonKey) throws IOException, ParseException {
         List<NUSTitle> result = new ArrayList<>();
         for (val gamePartition : wumadInfo.getGamePartitions()) {
-            result.add(convertGamePartitionToNUSTitle(gamePartition, wumadInfo.getZipFile(), commonKey));
+            result.add(convertGamePartitionToNUSTitle(gamePartition, wumadInfo, commonKey));
         }
         return result;
     }
 
-    private static NUSTitle convertGamePartitionToNUSTitle(WumadGamePartition gamePartition, ZipFile wudmadFile, byte[] commonKey)
+    private static NUSTitle convertGamePartitionToNUSTitle(WumadGamePartition gamePartition, WumadInfo wumadInfo, byte[] commonKey)
             throws IOException, ParseException {
         final NUSTitleConfig config = new NUSTitleConfig();
         config.setCommonKey(commonKey);
         gamePartition.getTmd();
-        return NUSTitleLoader.loadNusTitle(config, () -> new NUSDataProviderWumad(gamePartition, wudmadFile), (dp, cd, ce) -> new DefaultNUSDataProcessor(dp, cd));
+        return NUSTitleLoader.loadNusTitle(config, () -> new NUSDataProviderWumad(gamePartition, wumadInfo), (dp, cd, ce) -> new DefaultNUSDataProcessor(dp, cd));
     }
 
     public static List<FSTDataProvider> getPartitonsAsFSTDataProvider(@NonNull WumadInfo wumadInfo, byte[] commonKey) throws IOException, ParseException {
         List<FSTDataProvider> result = new ArrayList<>();
         for (val gamePartition : wumadInfo.getGamePartitions()) {
-            NUSTitle t = convertGamePartitionToNUSTitle(gamePartition, wumadInfo.getZipFile(), commonKey);
+            NUSTitle t = convertGamePartitionToNUSTitle(gamePartition, wumadInfo, commonKey);
             FSTDataProviderNUSTitle res = new FSTDataProviderNUSTitle(t);
             res.setName(gamePartition.getPartitionName());
             result.add(res);
         }
 
         for (val dataPartition : wumadInfo.getDataPartitions()) {
-            result.add(new FSTDataProviderWumadDataPartition(dataPartition, wumadInfo.getZipFile()));
+            result.add(new FSTDataProviderWumadDataPartition(dataPartition, wumadInfo));
         }
 
         return result;
@@ -62,18 +62,33 @@ public final class ContentFSTInfo {
             log.info("Error: invalid ContentFSTInfo byte[] input");
             throw new ParseException("Failed to parse ContentFSTInfo", 0);
         }
-        ContentFSTInfoParam param = new ContentFSTInfoParam();
-        ByteBuffer buffer = ByteBuffer.allocate(input.length);
-        buffer.put(input);
+        return parseContentFST(ByteBuffer.wrap(input), 0);
+    }
 
-        buffer.position(0);
-        int offset = buffer.getInt();
-        int size = buffer.getInt();
-        long ownerTitleID = buffer.getLong();
-        int groupID = buffer.getInt();
-        byte unkown = buffer.get();
+    /**
+     * Creates a new ContentFSTInfo object from the data at the given position of a buffer. Only absolute reads are used, the position of the buffer is not
+     * changed.
+     * 
+     * @param buffer
+     *            buffer with the FST data, needs to be big endian
+     * @param offset
+     *            offset of the 0x20 byte ContentFSTInfo in the buffer
+     * @return ContentFSTInfo object
+     * @throws ParseException
+     */
+    public static ContentFSTInfo parseContentFST(ByteBuffer buffer, int offset) throws ParseException {
+        if (offset < 0 || offset + 0x20 > buffer.limit()) {
+            log.info("Error: ContentFSTInfo is out of bounds");
+            throw new ParseException("Failed to parse ContentFSTInfo", offset);
+        }
+        ContentFSTInfoParam param = new ContentFSTInfoParam();
+        int offsetSector = buffer.getInt(offset);
+        int size = buffer.getInt(offset + 0x04);
+        long ownerTitleID = buffer.getLong(offset + 0x08);
+        int groupID = buffer.getInt(offset + 0x10);
+        byte unkown = buffer.get(offset + 0x14);
 
-        param.setOffsetSector(offset);
+        param.setOffsetSector(offsetSector);
         param.setSizeSector(size);
         param.setOwnerTitleID(ownerTitleID);
         param.setGroupID(groupID);
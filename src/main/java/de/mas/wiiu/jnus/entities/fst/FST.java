@@ -16,13 +16,13 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus.entities.fst;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.text.ParseException;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import de.mas.wiiu.jnus.entities.content.ContentFSTInfo;
-import de.mas.wiiu.jnus.utils.ByteUtils;
 import lombok.Getter;
 
 /**
@@ -32,7 +32,7 @@ import lombok.Getter;
  *
  */
 public final class FST {
-    @Getter private final FSTEntry root = FSTEntry.getRootFSTEntry();
+    @Getter private FSTEntry root;
 
     @Getter private final int sectorSize;
     @Getter private final int contentCount;
@@ -53,12 +53,25 @@ public final class FST {
      * @throws ParseException
      */
     public static FST parseFST(byte[] fstData) throws ParseException {
-        if (!Arrays.equals(Arrays.copyOfRange(fstData, 0, 3), new byte[] { 0x46, 0x53, 0x54 })) {
+        return parseFST(ByteBuffer.wrap(fstData));
+    }
+
+    /**
+     * Creates a FST by the given buffer. The buffer is not copied, entries are decoded from it when they are accessed, so it must not be modified afterwards.
+     * 
+     * @param fstData
+     *            view on the raw decrypted FST data
+     * @return
+     * @throws ParseException
+     */
+    public static FST parseFST(ByteBuffer fstData) throws ParseException {
+        fstData = fstData.slice().order(ByteOrder.BIG_ENDIAN);
+        if (fstData.limit() < 0x20 || fstData.get(0) != 0x46 || fstData.get(1) != 0x53 || fstData.get(2) != 0x54) {
             throw new ParseException("Failed to parse FST", 0);
         }
 
-        int sectorSize = ByteUtils.getIntFromBytes(fstData, 0x04);
-        int contentCount = ByteUtils.getIntFromBytes(fstData, 0x08);
+        int sectorSize = fstData.getInt(0x04);
+        int contentCount = fstData.getInt(0x08);
 
         FST result = new FST(sectorSize, contentCount);
         
@@ -67,31 +80,12 @@ public final class FST {
 
         int fst_offset = contentfst_offset + contentfst_size;
 
-        int fileCount = ByteUtils.getIntFromBytes(fstData, fst_offset + 0x08);
-        int fst_size = fileCount * 0x10;
-
-        int nameOff = fst_offset + fst_size;
-        int nameSize = fstData.length - nameOff;
-        
-        // Get list with null-terminated Strings. Ends with \0\0.
-        for (int i = nameOff; i < fstData.length - 1; i++) {
-            if (fstData[i] == 0 && fstData[i + 1] == 0) {
-                nameSize = i - nameOff;
-            }
-        }
-
         Map<Integer, ContentFSTInfo> contentFSTInfos = result.getContentFSTInfos();
         for (int i = 0; i < contentCount; i++) {
-            byte contentFST[] = Arrays.copyOfRange(fstData, contentfst_offset + (i * 0x20), contentfst_offset + ((i + 1) * 0x20));
-            contentFSTInfos.put(i, ContentFSTInfo.parseContentFST(contentFST));
+            contentFSTInfos.put(i, ContentFSTInfo.parseContentFST(fstData, contentfst_offset + (i * 0x20)));
         }
 
-        byte fstSection[] = Arrays.copyOfRange(fstData, fst_offset, fst_offset + fst_size);
-        byte nameSection[] = Arrays.copyOfRange(fstData, nameOff, nameOff + nameSize);
-       
-        FSTEntry root = result.getRoot();
-
-        FSTService.parseFST(root, fstSection, nameSection, sectorSize);
+        result.root = FSTService.parseFST(fstData, fst_offset, sectorSize);
 
         return result;
     }
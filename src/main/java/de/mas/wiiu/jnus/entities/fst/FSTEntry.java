@@ -42,7 +42,7 @@ public class FSTEntry {
 
     @Getter private final Optional<FSTEntry> parent;
 
-    @Getter private final List<FSTEntry> children = new ArrayList<>();
+    private List<FSTEntry> children;
 
     @Getter private final short flags;
 
@@ -97,20 +97,52 @@ public class FSTEntry {
         return filename;
     }
 
+    public List<FSTEntry> getChildren() {
+        if (children == null) {
+            children = new ArrayList<>();
+        }
+        return children;
+    }
+
     public String getFullPath() {
         return getPath() + getFilename();
     }
 
-    private StringBuilder getPathInternal() {
-        if (parent.isPresent()) {
-            FSTEntry par = parent.get();
-            return par.getPathInternal().append(par.getFilename()).append('/');
+    public String getPath() {
+        Optional<FSTEntry> par = getParent();
+        if (par.isPresent()) {
+            return par.get().getPath() + par.get().getFilename() + "/";
         }
-        return new StringBuilder();
+        return "";
     }
 
-    public String getPath() {
-        return getPathInternal().toString();
+    /**
+     * Returns the entry with the given full path (e.g. "/code/app.xml") if it's located below this entry.
+     * 
+     * @param fullPath
+     *            full path with "/" as separator and a leading "/"
+     * @return
+     */
+    public Optional<FSTEntry> getEntryByFullPath(String fullPath) {
+        String prefix = isRoot() ? "/" : getFullPath() + "/";
+        if (!fullPath.startsWith(prefix) || fullPath.length() == prefix.length()) {
+            return Optional.empty();
+        }
+        FSTEntry cur = this;
+        for (String part : fullPath.substring(prefix.length()).split("/")) {
+            Optional<FSTEntry> next = Optional.empty();
+            for (FSTEntry child : cur.getChildren()) {
+                if (child.getFilename().equals(part)) {
+                    next = Optional.of(child);
+                    break;
+                }
+            }
+            if (!next.isPresent()) {
+                return Optional.empty();
+            }
+            cur = next.get();
+        }
+        return Optional.of(cur);
     }
 
     public int getEntryCount() {
@@ -172,8 +204,8 @@ public class FSTEntry {
 
     @Override
     public String toString() {
-        return "FSTEntry [filename=" + getFilename() + ", path=" + getPath() + ", flags=" + flags + ", filesize=" + fileSize + ", fileoffset=" + fileOffset
-                + ", isDir=" + isDir + ", isRoot=" + isRoot + ", notInPackage=" + isNotInPackage + "]";
+        return "FSTEntry [filename=" + getFilename() + ", path=" + getPath() + ", flags=" + getFlags() + ", filesize=" + getFileSize() + ", fileoffset="
+                + getFileOffset() + ", isDir=" + isDir() + ", isRoot=" + isRoot() + ", notInPackage=" + isNotInPackage() + "]";
     }
 
     @Data
@@ -0,0 +1,292 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.entities.fst;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The entry table of a FST, backed by a view on the raw FST data. Entries are addressed by their index, the {@link FSTEntry} objects are only thin views that
+ * are created on demand. Nothing is decoded up front: filenames, the children of a directory and the name lookup of a directory are only created once they are
+ * needed, so walking one directory doesn't pay for the rest of the tree.
+ * 
+ * Layout of an entry (0x10 bytes): type (1 byte), name offset (24 bit), file offset in sectors / parent index, file size / index after the last child, flags
+ * (2 bytes), content index (2 bytes).
+ * 
+ * The table can be used from multiple threads. The lazily created views, child lists and name lookups are published with compareAndSet, the parent indices of
+ * the children are written before their list is published. Names and paths are immutable strings, filling them twice in a race is harmless.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+final class FSTEntryTable {
+    static final int ENTRY_SIZE = 0x10;
+
+    private final ByteBuffer data;
+    private final int entriesOffset;
+    private final int namesOffset;
+    private final int entryCount;
+    private final int sectorSize;
+
+    private final int[] parents;
+    private final String[] names;
+    private final String[] fullPaths;
+    private final AtomicReferenceArray<FSTEntry> views;
+    private final AtomicReferenceArray<List<FSTEntry>> children;
+    private final AtomicReferenceArray<Map<String, Integer>> childIndices;
+
+    /**
+     * @param data
+     *            view on the raw FST data. The content is not copied, only absolute reads are used.
+     * @param entriesOffset
+     *            offset of the root entry
+     * @param sectorSize
+     *            factor for the file offsets
+     */
+    FSTEntryTable(ByteBuffer data, int entriesOffset, int sectorSize) {
+        this.data = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.entriesOffset = entriesOffset;
+        this.sectorSize = sectorSize;
+        this.entryCount = Math.max(1, (int) Math.min(getRawSize(0), (this.data.limit() - entriesOffset) / ENTRY_SIZE));
+        this.namesOffset = entriesOffset + entryCount * ENTRY_SIZE;
+
+        this.parents = new int[entryCount];
+        this.names = new String[entryCount];
+        this.fullPaths = new String[entryCount];
+        this.views = new AtomicReferenceArray<>(entryCount);
+        this.children = new AtomicReferenceArray<>(entryCount);
+        this.childIndices = new AtomicReferenceArray<>(entryCount);
+
+        names[0] = "";
+        fullPaths[0] = "";
+        parents[0] = -1;
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    FSTEntry getRoot() {
+        return getEntry(0);
+    }
+
+    /**
+     * The parent of the entry needs to be known at this point, which is always the case for entries that were reached by walking down the tree.
+     */
+    private FSTEntry getEntry(int index) {
+        FSTEntry result = views.get(index);
+        if (result == null) {
+            result = new FSTTableEntry(this, index);
+            if (!views.compareAndSet(index, null, result)) {
+                result = views.get(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a path relative to the given directory, e.g. "code/app.xml" relative to the root.
+     */
+    Optional<FSTEntry> getEntryByRelativePath(int dirIndex, String relativePath) {
+        int cur = dirIndex;
+        int start = 0;
+        while (start <= relativePath.length()) {
+            int end = relativePath.indexOf('/', start);
+            if (end < 0) {
+                end = relativePath.length();
+            }
+            if (!isDir(cur)) {
+                return Optional.empty();
+            }
+            Integer next = getChildIndices(cur).get(relativePath.substring(start, end));
+            if (next == null) {
+                return Optional.empty();
+            }
+            cur = next;
+            start = end + 1;
+        }
+        return Optional.of(getEntry(cur));
+    }
+
+    private Map<String, Integer> getChildIndices(int dirIndex) {
+        Map<String, Integer> result = childIndices.get(dirIndex);
+        if (result == null) {
+            result = new HashMap<>();
+            int end = getEnd(dirIndex);
+            int i = dirIndex + 1;
+            while (i < end) {
+                parents[i] = dirIndex;
+                // The first entry wins if a name appears twice.
+                result.putIfAbsent(getFilename(i), i);
+                i = isDir(i) ? getNextIndex(i, end) : i + 1;
+            }
+            // The parents of the children have been written above, the compareAndSet publishes them together with the map.
+            if (!childIndices.compareAndSet(dirIndex, null, result)) {
+                result = childIndices.get(dirIndex);
+            }
+        }
+        return result;
+    }
+
+    List<FSTEntry> getChildren(int index) {
+        List<FSTEntry> result = children.get(index);
+        if (result == null) {
+            if (!isDir(index)) {
+                result = Collections.emptyList();
+            } else {
+                result = new ArrayList<>();
+                int end = getEnd(index);
+                int i = index + 1;
+                while (i < end) {
+                    parents[i] = index;
+                    result.add(getEntry(i));
+                    i = isDir(i) ? getNextIndex(i, end) : i + 1;
+                }
+                result = Collections.unmodifiableList(result);
+            }
+            if (!children.compareAndSet(index, null, result)) {
+                result = children.get(index);
+            }
+        }
+        return result;
+    }
+
+    private int getEnd(int dirIndex) {
+        return dirIndex == 0 ? entryCount : getNextIndex(dirIndex, entryCount);
+    }
+
+    /**
+     * Index of the entry after the last child of the given directory. Broken values are clamped, so we never loop forever.
+     */
+    private int getNextIndex(int dirIndex, int parentEnd) {
+        long next = getRawSize(dirIndex);
+        if (next <= dirIndex) {
+            return dirIndex + 1;
+        }
+        return (int) Math.min(next, parentEnd);
+    }
+
+    Optional<FSTEntry> getParent(int index) {
+        if (index == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(getEntry(parents[index]));
+    }
+
+    String getFilename(int index) {
+        String result = names[index];
+        if (result == null) {
+            int nameOffset = namesOffset + (data.getInt(entriesOffset + index * ENTRY_SIZE) & 0x00FFFFFF);
+            int limit = data.limit();
+            int end = nameOffset;
+            while (end < limit && data.get(end) != 0) {
+                end++;
+            }
+            result = nameOffset < limit ? decode(nameOffset, end - nameOffset) : "";
+            names[index] = result;
+        }
+        return result;
+    }
+
+    private String decode(int offset, int length) {
+        if (data.hasArray()) {
+            return new String(data.array(), data.arrayOffset() + offset, length);
+        }
+        byte[] tmp = new byte[length];
+        for (int i = 0; i < length; i++) {
+            tmp[i] = data.get(offset + i);
+        }
+        return new String(tmp);
+    }
+
+    /**
+     * Path of the parent directory, including the trailing slash.
+     */
+    String getPath(int index) {
+        if (index == 0) {
+            return "";
+        }
+        return getFullPath(parents[index]) + "/";
+    }
+
+    String getFullPath(int index) {
+        String result = fullPaths[index];
+        if (result == null) {
+            result = getPath(index) + getFilename(index);
+            if (isDir(index)) {
+                // Only cache directories, they are the prefix of all their children.
+                fullPaths[index] = result;
+            }
+        }
+        return result;
+    }
+
+    boolean isDir(int index) {
+        return (getType(index) & FSTEntry.FSTEntry_DIR) == FSTEntry.FSTEntry_DIR;
+    }
+
+    boolean isNotInPackage(int index) {
+        return (getType(index) & FSTEntry.FSTEntry_notInNUS) == FSTEntry.FSTEntry_notInNUS;
+    }
+
+    long getFileOffset(int index) {
+        if (isDir(index)) {
+            return 0;
+        }
+        return (data.getInt(entriesOffset + index * ENTRY_SIZE + 0x04) & 0xFFFFFFFFL) * sectorSize;
+    }
+
+    long getFileSize(int index) {
+        if (isDir(index)) {
+            return 0;
+        }
+        return getRawSize(index);
+    }
+
+    short getFlags(int index) {
+        return data.getShort(entriesOffset + index * ENTRY_SIZE + 0x0C);
+    }
+
+    short getContentIndex(int index) {
+        return data.getShort(entriesOffset + index * ENTRY_SIZE + 0x0E);
+    }
+
+    int getSubTreeSize(int index) {
+        if (index == 0) {
+            return entryCount;
+        }
+        if (!isDir(index)) {
+            return 1;
+        }
+        return getNextIndex(index, entryCount) - index;
+    }
+
+    private byte getType(int index) {
+        return data.get(entriesOffset + index * ENTRY_SIZE);
+    }
+
+    private long getRawSize(int index) {
+        return data.getInt(entriesOffset + index * ENTRY_SIZE + 0x08) & 0xFFFFFFFFL;
+    }
+}
@@ -16,13 +16,9 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus.entities.fst;
 
+import java.nio.ByteBuffer;
 import java.text.ParseException;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
 
-import de.mas.wiiu.jnus.entities.fst.FSTEntry.FSTEntryParam;
 import de.mas.wiiu.jnus.utils.ByteUtils;
 
 public final class FSTService {
@@ -30,68 +26,32 @@ public final class FSTService {
     private FSTService() {
     }
 
-    public static void parseFST(FSTEntry rootEntry, byte[] fstSection, byte[] namesSection, int sectorSize) throws ParseException {
-        int totalEntries = ByteUtils.getIntFromBytes(fstSection, 0x08);
-
-        final Map<Integer, byte[]> data = new HashMap<>();
-
-        for (int i = 1; i < totalEntries; i++) {
-            data.put(i, Arrays.copyOfRange(fstSection, i * 0x10, (i + 1) * 0x10));
+    /**
+     * Parses the entry table of a FST. The returned root is a view on the given data which is kept as it is, no entries are copied.
+     * 
+     * @param fstData
+     *            view on the raw decrypted FST data
+     * @param entriesOffset
+     *            offset of the root entry inside the data
+     * @param sectorSize
+     *            factor for the file offsets
+     * @return the root entry
+     * @throws ParseException
+     */
+    public static FSTEntry parseFST(ByteBuffer fstData, int entriesOffset, int sectorSize) throws ParseException {
+        if (entriesOffset + FSTEntryTable.ENTRY_SIZE > fstData.limit()) {
+            throw new ParseException("FST entry table is out of bounds", entriesOffset);
         }
-
-        parseData(1, totalEntries, rootEntry, data, namesSection, sectorSize);
-
+        return new FSTEntryTable(fstData, entriesOffset, sectorSize).getRoot();
     }
 
-    private static int parseData(int i, int end, FSTEntry parent, Map<Integer, byte[]> data, byte[] namesSection, int sectorSize) throws ParseException {
-        while (i < end) {
-            byte[] curEntry = data.get(i);
-
-            FSTEntryParam entryParam = new FSTEntry.FSTEntryParam();
-
-            entryParam.setParent(Optional.of(parent));
-
-            long fileOffset = ByteUtils.getIntFromBytes(curEntry, 0x04);
-            long fileSize = ByteUtils.getUnsingedIntFromBytes(curEntry, 0x08);
-            short flags = ByteUtils.getShortFromBytes(curEntry, 0x0C);
-            short contentIndex = ByteUtils.getShortFromBytes(curEntry, 0x0E);
-
-            if ((curEntry[0] & FSTEntry.FSTEntry_notInNUS) == FSTEntry.FSTEntry_notInNUS) {
-                entryParam.setNotInPackage(true);
-            }
-            if ((curEntry[0] & FSTEntry.FSTEntry_DIR) == FSTEntry.FSTEntry_DIR) {
-                entryParam.setDir(true);
-            } else {
-                entryParam.setFileOffset(fileOffset * sectorSize);
-                entryParam.setFileSize(fileSize);
-            }
-
-            entryParam.setFlags(flags);
-            entryParam.setContentIndex(contentIndex);
-
-            final int nameOffset = getNameOffset(curEntry);
-            entryParam.setFileNameSupplier(() -> getName(nameOffset, namesSection));
-
-            FSTEntry entry = new FSTEntry(entryParam);
-
-            parent.addChildren(entry);
-
-            if (entryParam.isDir()) {
-                i = parseData(i + 1, (int) fileSize, entry, data, namesSection, sectorSize);
-            } else {
-                i++;
-            }
-        }
-        return i;
-
+    public static FSTEntry parseFST(byte[] fstData, int entriesOffset, int sectorSize) throws ParseException {
+        return parseFST(ByteBuffer.wrap(fstData), entriesOffset, sectorSize);
     }
 
     private static int getNameOffset(byte[] curEntry) {
-        // Its a 24bit number. We overwrite the first byte, then we can read it as an Integer.
-        // But at first we make a copy.
-        byte[] entryData = Arrays.copyOf(curEntry, curEntry.length);
-        entryData[0] = 0;
-        return ByteUtils.getIntFromBytes(entryData, 0);
+        // Its a 24bit number.
+        return ByteUtils.getIntFromBytes(curEntry, 0) & 0x00FFFFFF;
     }
 
     public static String getName(byte[] data, byte[] namesSection) {
@@ -104,7 +64,7 @@ public final class FSTService {
         while ((nameOffset + j) < namesSection.length && namesSection[nameOffset + j] != 0) {
             j++;
         }
-        return (new String(Arrays.copyOfRange(namesSection, nameOffset, nameOffset + j)));
+        return new String(namesSection, nameOffset, j);
     }
 
 }
@@ -0,0 +1,118 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.entities.fst;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A FSTEntry that is just a view on an entry of a {@link FSTEntryTable}.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+final class FSTTableEntry extends FSTEntry {
+    private static final FSTEntryParam EMPTY_PARAM = new FSTEntryParam();
+
+    private final FSTEntryTable table;
+    private final int index;
+
+    FSTTableEntry(FSTEntryTable table, int index) {
+        super(EMPTY_PARAM);
+        this.table = table;
+        this.index = index;
+    }
+
+    @Override
+    public String getFilename() {
+        return table.getFilename(index);
+    }
+
+    @Override
+    public String getPath() {
+        return table.getPath(index);
+    }
+
+    @Override
+    public String getFullPath() {
+        return table.getFullPath(index);
+    }
+
+    @Override
+    public Optional<FSTEntry> getParent() {
+        return table.getParent(index);
+    }
+
+    @Override
+    public List<FSTEntry> getChildren() {
+        return table.getChildren(index);
+    }
+
+    @Override
+    public void addChildren(FSTEntry entry) {
+        throw new UnsupportedOperationException("Entries of a parsed FST can't be modified.");
+    }
+
+    @Override
+    public int getEntryCount() {
+        return table.getSubTreeSize(index);
+    }
+
+    @Override
+    public Optional<FSTEntry> getEntryByFullPath(String fullPath) {
+        String prefix = getFullPath() + "/";
+        if (!isDir() || !fullPath.startsWith(prefix) || fullPath.length() == prefix.length()) {
+            return Optional.empty();
+        }
+        return table.getEntryByRelativePath(index, fullPath.substring(prefix.length()));
+    }
+
+    @Override
+    public short getFlags() {
+        return table.getFlags(index);
+    }
+
+    @Override
+    public long getFileSize() {
+        return table.getFileSize(index);
+    }
+
+    @Override
+    public long getFileOffset() {
+        return table.getFileOffset(index);
+    }
+
+    @Override
+    public boolean isDir() {
+        return index == 0 || table.isDir(index);
+    }
+
+    @Override
+    public boolean isRoot() {
+        return index == 0;
+    }
+
+    @Override
+    public boolean isNotInPackage() {
+        return index != 0 && table.isNotInPackage(index);
+    }
+
+    @Override
+    public short getContentIndex() {
+        return table.getContentIndex(index);
+    }
+}
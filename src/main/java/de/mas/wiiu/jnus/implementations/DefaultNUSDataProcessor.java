@@ -9,26 +9,63 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Optional;
 
+import de.mas.wiiu.jnus.Settings;
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.interfaces.ContentDecryptor;
 import de.mas.wiiu.jnus.interfaces.NUSDataProcessor;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
-import de.mas.wiiu.jnus.utils.ByteArrayBuffer;
+import de.mas.wiiu.jnus.utils.BlockReader;
+import de.mas.wiiu.jnus.utils.BufferPool;
 import de.mas.wiiu.jnus.utils.CheckSumWrongException;
+import de.mas.wiiu.jnus.utils.DecryptedBlockCache;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
 import de.mas.wiiu.jnus.utils.HashUtil;
 import de.mas.wiiu.jnus.utils.PipedInputStreamWithException;
 import de.mas.wiiu.jnus.utils.StreamUtils;
 import de.mas.wiiu.jnus.utils.Utils;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Counter;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Stage;
 import lombok.extern.java.Log;
 
 @Log
 public class DefaultNUSDataProcessor implements NUSDataProcessor {
     protected final NUSDataProvider dataProvider;
     private final Optional<ContentDecryptor> decryptor;
+    private final Optional<DecryptedBlockCache> blockCache;
 
     public DefaultNUSDataProcessor(NUSDataProvider dataProvider, Optional<ContentDecryptor> decryptor) {
         this.dataProvider = dataProvider;
         this.decryptor = decryptor;
+        if (Settings.DECRYPTED_BLOCK_CACHE_SIZE > 0) {
+            this.blockCache = Optional.of(new DecryptedBlockCache(Settings.DECRYPTED_BLOCK_CACHE_SIZE));
+        } else {
+            this.blockCache = Optional.empty();
+        }
+    }
+
+    private DefaultNUSDataProcessor(NUSDataProvider dataProvider, Optional<ContentDecryptor> decryptor, Optional<DecryptedBlockCache> blockCache) {
+        this.dataProvider = dataProvider;
+        this.decryptor = decryptor;
+        this.blockCache = blockCache;
+    }
+
+    /**
+     * Returns a processor for the same data that neither reads from nor fills the block cache, e.g. to verify the data itself instead of blocks that were
+     * verified earlier.
+     */
+    public DefaultNUSDataProcessor withoutBlockCache() {
+        if (!blockCache.isPresent()) {
+            return this;
+        }
+        return new DefaultNUSDataProcessor(dataProvider, decryptor, Optional.empty());
+    }
+
+    /**
+     * Cache of decrypted and verified blocks of hashed contents, empty if {@link Settings#DECRYPTED_BLOCK_CACHE_SIZE} is 0.
+     */
+    public Optional<DecryptedBlockCache> getBlockCache() {
+        return blockCache;
     }
 
     @Override
@@ -45,7 +82,7 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
         PipedOutputStream out = new PipedOutputStream();
         PipedInputStreamWithException in = new PipedInputStreamWithException(out, 0x10000);
 
-        new Thread(() -> {
+        ExecutorUtils.startThread(() -> {
             try {
                 readDecryptedContentToStream(out, c, offset, size);
                 in.throwException(null);
@@ -57,7 +94,7 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
 					e1.printStackTrace();
 				}
             }
-        }).start();
+        });
 
         return in;
     }
@@ -85,22 +122,19 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
             IV[1] = (byte) (c.getIndex() & 0xFF);
 
             long streamOffset = (offset / 16) * 16;
-            long streamFilesize = size;
 
             // if we have an offset we can't calculate the hash anymore
             // we need a new IV
             if (streamOffset > 15) {
-                streamFilesize = size;
-
                 streamOffset -= 16;
-                streamFilesize += 16;
 
                 // We need to get the current IV as soon as we get the InputStream.
                 IV = null;
-            } else if ((offset > 0 && offset < 16) && size < 16) {
-                streamFilesize = 16;
             }
 
+            // The last AES block can only be decrypted if it's read completely, not all providers return more data than requested.
+            long streamFilesize = Utils.align(offset + size, 16) - streamOffset;
+
             long curStreamOffset = streamOffset;
 
             InputStream in = dataProvider.readRawContentAsStream(c, streamOffset, streamFilesize);
@@ -132,20 +166,19 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
         PipedOutputStream out = new PipedOutputStream();
         PipedInputStreamWithException in = new PipedInputStreamWithException(out, 0x10000);
 
-        new Thread(() -> {
+        ExecutorUtils.startThread(() -> {
             try {
                 readPlainDecryptedContentToStream(out, c, offset, size, forceCheckHash);
                 in.throwException(null);
             } catch (Exception e) {
                 in.throwException(e);
                 try {
-					in.close();
+					out.close();
 				} catch (IOException e1) {
-					// TODO Auto-generated catch block
 					e1.printStackTrace();
 				}
             }
-        }).start();
+        });
 
         return in;
     }
@@ -153,17 +186,32 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
     @Override
     public long readPlainDecryptedContentToStream(OutputStream out, Content c, long offset, long size, boolean forceCheckHash) throws IOException {
         if (c.isHashed()) {
-            long payloadOffset = offset;
+            long written = 0;
+            if (blockCache.isPresent()) {
+                try {
+                    written = readCachedBlocksToStream(out, c, offset, size);
+                } catch (IOException e) {
+                    out.close();
+                    throw e;
+                }
+                if (written == size) {
+                    out.close();
+                    return written;
+                }
+            }
+
+            long payloadOffset = offset + written;
+            long missingSize = size - written;
             long streamOffset = payloadOffset;
             long streamFilesize = 0;
             
             streamOffset = (payloadOffset / 0xFC00) * 0x10000;
             long offsetInBlock = payloadOffset - ((streamOffset / 0x10000) * 0xFC00);
-            if (offsetInBlock + size < 0xFC00) {
+            if (offsetInBlock + missingSize < 0xFC00) {
                 streamFilesize = 0x10000L;
             } else {
                 long curVal = 0x10000;
-                long missing = (size - (0xFC00 - offsetInBlock));
+                long missing = (missingSize - (0xFC00 - offsetInBlock));
 
                 curVal += (missing / 0xFC00) * 0x10000;
 
@@ -177,7 +225,8 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
             InputStream in = readDecryptedContentAsStream(c, streamOffset, streamFilesize);
 
             try {
-                return processHashedStream(in, out, (int) (offset / 0xFC00), size, offsetInBlock, dataProvider.getContentH3Hash(c).get());
+                long res = processHashedStream(in, out, c, (int) (payloadOffset / 0xFC00), missingSize, offsetInBlock, dataProvider.getContentH3Hash(c).get());
+                return res < 0 && written > 0 ? written : res + written;
             } catch (NoSuchAlgorithmException | CheckSumWrongException e) {
                 throw new IOException(e);
             }
@@ -197,6 +246,34 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
         }
     }
 
+    /**
+     * Writes the data of the leading blocks that are already cached. Stops at the first block that is not cached.
+     * 
+     * @return number of bytes that were written
+     */
+    private long readCachedBlocksToStream(OutputStream out, Content c, long offset, long size) throws IOException {
+        long written = 0;
+        byte[] buffer = null;
+        try {
+            while (written < size) {
+                long curOffset = offset + written;
+                int offsetInBlock = (int) (curOffset % 0xFC00);
+                int length = (int) Math.min(0xFC00 - offsetInBlock, size - written);
+                if (buffer == null) {
+                    buffer = BufferPool.acquire(0xFC00);
+                }
+                if (!blockCache.get().copyTo(DecryptedBlockCache.getKey(c.getIndex(), curOffset / 0xFC00), offsetInBlock, buffer, 0, length)) {
+                    break;
+                }
+                out.write(buffer, 0, length);
+                written += length;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return written;
+    }
+
     private long processNonHashedStream(InputStream inputStream, OutputStream outputStream, long payloadOffset, long filesize, byte[] hash,
             long expectedSizeForHash) throws IOException, CheckSumWrongException {
         MessageDigest sha1 = null;
@@ -213,14 +290,14 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
 
         int BLOCKSIZE = 0x8000;
 
-        byte[] blockBuffer = new byte[BLOCKSIZE];
+        byte[] blockBuffer = BufferPool.acquire(BLOCKSIZE);
+        BlockReader reader = new BlockReader(inputStream);
 
         int inBlockBuffer;
         long written = 0;
         long writtenFallback = 0;
 
         try {
-            ByteArrayBuffer overflow = new ByteArrayBuffer(BLOCKSIZE);
 
             // We can only decrypt multiples of 16. So we need to align it.
             long toRead = Utils.align(filesize, 16);
@@ -230,7 +307,7 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
                 if (toRead < BLOCKSIZE) {
                     curReadSize = (int) toRead;
                 }
-                inBlockBuffer = StreamUtils.getChunkFromStream(inputStream, blockBuffer, overflow, curReadSize);
+                inBlockBuffer = reader.read(blockBuffer, 0, curReadSize);
                 if (inBlockBuffer <= 0) {
                     break;
                 }
@@ -249,6 +326,7 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
                 outputStream.write(output, 0, toWrite);
 
                 if (sha1 != null && sha1fallback != null) {
+                    long hashStart = Metrics.start();
                     sha1.update(output, 0, toWrite);
 
                     // In some cases it's using the hash of the whole .app file instead of the part
@@ -259,6 +337,7 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
                     }
                     sha1fallback.update(output, 0, (int) toFallback);
                     writtenFallback += toFallback;
+                    Metrics.time(Stage.HASH, hashStart);
                 }
 
                 if (written >= filesize && hash == null) {
@@ -267,6 +346,7 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
             } while (inBlockBuffer == BLOCKSIZE);
 
             if (sha1 != null && sha1fallback != null) {
+                long hashStart = Metrics.start();
                 long missingInHash = expectedSizeForHash - writtenFallback;
                 if (missingInHash > 0) {
                     sha1fallback.update(new byte[(int) missingInHash]);
@@ -275,7 +355,10 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
                 byte[] calculated_hash1 = sha1.digest();
                 byte[] calculated_hash2 = sha1fallback.digest();
                 byte[] expected_hash = hash;
+                Metrics.time(Stage.HASH, hashStart);
+                Metrics.count(Counter.HASH_VERIFICATIONS, 1);
                 if (!Arrays.equals(calculated_hash1, expected_hash) && !Arrays.equals(calculated_hash2, expected_hash)) {
+                    Metrics.count(Counter.HASH_FAILURES, 1);
                     throw new CheckSumWrongException("hash checksum failed ", calculated_hash1, expected_hash);
                 } else {
                     log.fine("Hash DOES match saves output stream.");
@@ -284,62 +367,73 @@ public class DefaultNUSDataProcessor implements NUSDataProcessor {
             }
         } finally {
             StreamUtils.closeAll(inputStream, outputStream);
+            BufferPool.release(blockBuffer);
         }
         return written;
     }
 
-    private long processHashedStream(InputStream inputStream, OutputStream outputStream, int block, long filesize, long payloadOffset, byte[] h3_hashes)
+    private long processHashedStream(InputStream inputStream, OutputStream outputStream, Content c, int block, long filesize, long payloadOffset, byte[] h3_hashes)
             throws IOException, NoSuchAlgorithmException, CheckSumWrongException {
-        int BLOCKSIZE = 0x10000;
-        int HASHBLOCKSIZE = 0xFC00;
-        int HASHSIZE = BLOCKSIZE - HASHBLOCKSIZE;
+        int BLOCKSIZE = HashUtil.HASHED_BLOCK_SIZE;
+        int HASHSIZE = HashUtil.HASHED_BLOCK_HASHES_SIZE;
+        int HASHBLOCKSIZE = BLOCKSIZE - HASHSIZE;
+        // The blocks are verified per H1 group.
+        int GROUPSIZE = 16;
 
         long curBlock = block;
+        long lastBlock = block + (payloadOffset + filesize + HASHBLOCKSIZE - 1) / HASHBLOCKSIZE;
 
-        byte[] blockBuffer = new byte[BLOCKSIZE];
-        ByteArrayBuffer overflow = new ByteArrayBuffer(BLOCKSIZE);
+        byte[] groupBuffer = BufferPool.acquire(BLOCKSIZE * GROUPSIZE);
+        BlockReader reader = new BlockReader(inputStream);
         long written = 0;
-        int inBlockBuffer = 0;
 
         long writeOffset = payloadOffset;
 
         try {
-            do {
-                inBlockBuffer = StreamUtils.getChunkFromStream(inputStream, blockBuffer, overflow, BLOCKSIZE);
-                if (inBlockBuffer < 0) {
+            groups: while (written < filesize && curBlock < lastBlock) {
+                // Read until the end of the current group, but not more blocks than needed.
+                int blocksToRead = (int) Math.min(GROUPSIZE - (curBlock % GROUPSIZE), lastBlock - curBlock);
+                int inGroupBuffer = reader.read(groupBuffer, 0, blocksToRead * BLOCKSIZE);
+                if (inGroupBuffer < 0) {
                     break;
                 }
 
-                if (inBlockBuffer != BLOCKSIZE) {
+                if (inGroupBuffer % BLOCKSIZE != 0) {
                     throw new IOException("buffer was not " + BLOCKSIZE + " bytes");
                 }
+                int blocks = inGroupBuffer / BLOCKSIZE;
 
-                byte[] hashes = null;
-                byte[] output = null;
+                HashUtil.checkHashedBlocks(groupBuffer, 0, blocks, h3_hashes, (int) curBlock);
 
-                hashes = Arrays.copyOfRange(blockBuffer, 0, HASHSIZE);
-                output = Arrays.copyOfRange(blockBuffer, HASHSIZE, BLOCKSIZE);
-
-                HashUtil.checkFileChunkHashes(hashes, h3_hashes, output, (int) curBlock);
+                for (int i = 0; i < blocks && written < filesize; i++) {
+                    int outputOffset = i * BLOCKSIZE + HASHSIZE;
+                    if (blockCache.isPresent()) {
+                        blockCache.get().put(DecryptedBlockCache.getKey(c.getIndex(), curBlock), groupBuffer, outputOffset, HASHBLOCKSIZE);
+                    }
 
-                try {
-                    long writeLength = Math.min((output.length - writeOffset), (filesize - written));
-                    outputStream.write(output, (int) writeOffset, (int) writeLength);
-                    written += writeLength;
-                } catch (IOException e) {
-                    if (e.getMessage().equals("Pipe closed")) {
-                        break;
+                    try {
+                        long writeLength = Math.min((HASHBLOCKSIZE - writeOffset), (filesize - written));
+                        outputStream.write(groupBuffer, (int) (outputOffset + writeOffset), (int) writeLength);
+                        written += writeLength;
+                    } catch (IOException e) {
+                        if (e.getMessage().equals("Pipe closed")) {
+                            break groups;
+                        }
+                        e.printStackTrace();
+                        throw e;
                     }
-                    e.printStackTrace();
-                    throw e;
-                }
-                writeOffset = 0;
+                    writeOffset = 0;
 
-                curBlock++;
-            } while (written < filesize);
+                    curBlock++;
+                }
+                if (blocks != blocksToRead) {
+                    break;
+                }
+            }
             log.finest("Decryption okay");
         } finally {
             StreamUtils.closeAll(inputStream, outputStream);
+            BufferPool.release(groupBuffer);
         }
         return written > 0 ? written : -1;
     }
@@ -4,21 +4,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import de.mas.wiiu.jnus.entities.fst.FSTEntry;
 import de.mas.wiiu.jnus.implementations.wud.wumad.WumadDataPartition;
+import de.mas.wiiu.jnus.implementations.wud.wumad.WumadInfo;
 import de.mas.wiiu.jnus.interfaces.FSTDataProvider;
 import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveEntry;
 
 public class FSTDataProviderWumadDataPartition implements FSTDataProvider {
     private final WumadDataPartition dataPartition;
-    private final ZipFile zipFile;
+    private final WumadInfo wumad;
 
-    public FSTDataProviderWumadDataPartition(WumadDataPartition dataPartition, ZipFile zipFile) {
+    public FSTDataProviderWumadDataPartition(WumadDataPartition dataPartition, WumadInfo wumadInfo) {
         this.dataPartition = dataPartition;
-        this.zipFile = zipFile;
+        this.wumad = wumadInfo;
     }
 
     @Override
@@ -38,14 +38,10 @@ public class FSTDataProviderWumadDataPartition implements FSTDataProvider {
 
     @Override
     public InputStream readFileAsStream(FSTEntry entry, long offset, long size) throws IOException {
-        ZipEntry zipEntry = zipFile.stream()
-                .filter(e -> e.getName().equals(String.format("p%s.s%04d.00000000.app", dataPartition.getPartitionName(), entry.getContentIndex())))
-                .findFirst()
-                .orElseThrow(() -> new FileNotFoundException());
-
-        InputStream in = zipFile.getInputStream(zipEntry);
-        StreamUtils.skipExactly(in, offset + entry.getFileOffset());
-        return in;
+        String filename = String.format("p%s.s%04d.00000000.app", dataPartition.getPartitionName(), entry.getContentIndex());
+        ZipArchiveEntry zipEntry = wumad.getArchive().getEntry(filename).orElseThrow(() -> new FileNotFoundException(filename + " not found"));
+
+        return wumad.getArchive().getInputStream(zipEntry, offset + entry.getFileOffset());
     }
 
 }
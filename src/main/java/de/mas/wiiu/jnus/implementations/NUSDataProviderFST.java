@@ -49,6 +49,7 @@ public class NUSDataProviderFST implements NUSDataProvider {
         String filename = content.getFilename();
         Optional<FSTEntry> contentFileOpt = FSTUtils.getChildOfDirectory(base, filename);
         FSTEntry contentFile = contentFileOpt.orElseThrow(() -> new FileNotFoundException(filename + " was not found."));
+        // No metrics here, the source of the FSTDataProvider already reports the read data.
         return fstDataProvider.readFileAsStream(contentFile, offset, size);
     }
 
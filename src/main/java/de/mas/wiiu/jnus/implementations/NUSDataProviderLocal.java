@@ -21,14 +21,18 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 import de.mas.wiiu.jnus.Settings;
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
 import de.mas.wiiu.jnus.utils.FileUtils;
-import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.TitleMetadataCache;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 import lombok.Getter;
 import lombok.extern.java.Log;
 
@@ -44,17 +48,31 @@ public final class NUSDataProviderLocal implements NUSDataProvider {
         return getLocalPath() + File.separator + c.getFilename();
     }
 
-    @Override
-    public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException {
+    private File getContentFile(Content content) throws FileNotFoundException {
         File filepath = FileUtils.getFileIgnoringFilenameCases(getLocalPath(), content.getFilename());
         if (filepath == null || !filepath.exists()) {
             String errormsg = "Couldn't open \"" + getLocalPath() + File.separator + content.getFilename() + "\", file does not exist";
             log.warning(errormsg);
             throw new FileNotFoundException(errormsg);
         }
-        InputStream in = new FileInputStream(filepath);
-        StreamUtils.skipExactly(in, offset);
-        return in;
+        return filepath;
+    }
+
+    @Override
+    public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException {
+        FileInputStream in = new FileInputStream(getContentFile(content));
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return Metrics.wrap(in, Source.LOCAL);
+    }
+
+    @Override
+    public Optional<FileChannel> openRawContentChannel(Content content) throws IOException {
+        return Optional.of(FileChannel.open(getContentFile(content).toPath(), StandardOpenOption.READ));
     }
 
     @Override
@@ -103,6 +121,15 @@ public final class NUSDataProviderLocal implements NUSDataProvider {
         return Optional.of(Files.readAllBytes(file.toPath()));
     }
 
+    @Override
+    public Optional<String> getSourceFingerprint() {
+        File file = FileUtils.getFileIgnoringFilenameCases(getLocalPath(), Settings.TMD_FILENAME);
+        if (file == null || !file.exists()) {
+            return Optional.empty();
+        }
+        return Optional.of(TitleMetadataCache.getFileFingerprint(file));
+    }
+
     @Override
     public void cleanup() throws IOException {
         // We don't need this
@@ -21,13 +21,16 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 import de.mas.wiiu.jnus.Settings;
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
-import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 import lombok.Getter;
 
 public class NUSDataProviderLocalBackup implements NUSDataProvider {
@@ -47,15 +50,29 @@ public class NUSDataProviderLocalBackup implements NUSDataProvider {
         return getLocalPath() + File.separator + c.getFilename();
     }
 
-    @Override
-    public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException {
+    private File getContentFile(Content content) throws FileNotFoundException {
         File filepath = new File(getFilePathOnDisk(content));
         if (!filepath.exists()) {
             throw new FileNotFoundException(filepath.getAbsolutePath() + " was not found.");
         }
-        InputStream in = new FileInputStream(filepath);
-        StreamUtils.skipExactly(in, offset);
-        return in;
+        return filepath;
+    }
+
+    @Override
+    public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException {
+        FileInputStream in = new FileInputStream(getContentFile(content));
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return Metrics.wrap(in, Source.LOCAL);
+    }
+
+    @Override
+    public Optional<FileChannel> openRawContentChannel(Content content) throws IOException {
+        return Optional.of(FileChannel.open(getContentFile(content).toPath(), StandardOpenOption.READ));
     }
 
     @Override
@@ -0,0 +1,162 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.implementations;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
+import de.mas.wiiu.jnus.interfaces.Parallelizable;
+import de.mas.wiiu.jnus.utils.MappedFile;
+import de.mas.wiiu.jnus.utils.TitleMetadataCache;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * Like the {@link NUSDataProviderLocal}, but the directory is listed only once and every content file is kept open and read via memory-mapped regions. Reads
+ * are served from the page cache without opening or seeking the file again, any number of threads can read at the same time.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class NUSDataProviderLocalMapped implements NUSDataProvider, Parallelizable {
+    @Getter private final String localPath;
+
+    /** Files of the directory by their name in lower case. */
+    private final Map<String, File> files = new HashMap<>();
+    private final Map<Integer, MappedFile> mappedContents = new ConcurrentHashMap<>();
+
+    public NUSDataProviderLocalMapped(String localPath) {
+        this.localPath = localPath;
+        File[] list = new File(localPath).listFiles(File::isFile);
+        if (list != null) {
+            for (File f : list) {
+                File existing = files.putIfAbsent(f.getName().toLowerCase(Locale.ROOT), f.getAbsoluteFile());
+                if (existing != null) {
+                    log.warning("Found " + existing.getName() + " and " + f.getName() + " in " + localPath + ", using " + existing.getName());
+                }
+            }
+        }
+    }
+
+    private File getFile(String filename) throws FileNotFoundException {
+        File file = files.get(filename.toLowerCase(Locale.ROOT));
+        if (file == null) {
+            String errormsg = "Couldn't open \"" + getLocalPath() + File.separator + filename + "\", file does not exist";
+            log.warning(errormsg);
+            throw new FileNotFoundException(errormsg);
+        }
+        return file;
+    }
+
+    private MappedFile getMappedContent(Content content) throws IOException {
+        MappedFile mapped = mappedContents.get(content.getID());
+        if (mapped != null) {
+            return mapped;
+        }
+        synchronized (mappedContents) {
+            mapped = mappedContents.get(content.getID());
+            if (mapped == null) {
+                mapped = new MappedFile(getFile(content.getFilename()));
+                mappedContents.put(content.getID(), mapped);
+            }
+            return mapped;
+        }
+    }
+
+    @Override
+    public byte[] readRawContent(Content content, long offset, int size) throws IOException {
+        MappedFile mapped = getMappedContent(content);
+        long start = Metrics.start();
+        byte[] result = new byte[size];
+        int read = Math.max(0, mapped.read(offset, result, 0, size));
+        Metrics.bytesRead(Source.LOCAL, read, start);
+        if (read < size) {
+            throw new IOException("Only " + read + " of " + size + " bytes could be read from " + mapped.getFile() + " at offset " + offset);
+        }
+        return result;
+    }
+
+    @Override
+    public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException {
+        return Metrics.wrap(getMappedContent(content).getInputStream(offset, size), Source.LOCAL);
+    }
+
+    @Override
+    public Optional<FileChannel> openRawContentChannel(Content content) throws IOException {
+        return Optional.of(FileChannel.open(getFile(content.getFilename()).toPath(), StandardOpenOption.READ));
+    }
+
+    @Override
+    public Optional<byte[]> getContentH3Hash(Content content) throws IOException {
+        return Optional.of(Files.readAllBytes(getFile(String.format("%08X%s", content.getID(), Settings.H3_EXTENTION)).toPath()));
+    }
+
+    @Override
+    public Optional<byte[]> getRawTMD() throws IOException {
+        return Optional.of(Files.readAllBytes(getFile(Settings.TMD_FILENAME).toPath()));
+    }
+
+    @Override
+    public Optional<byte[]> getRawTicket() throws IOException {
+        return Optional.of(Files.readAllBytes(getFile(Settings.TICKET_FILENAME).toPath()));
+    }
+
+    @Override
+    public Optional<byte[]> getRawCert() throws IOException {
+        return Optional.of(Files.readAllBytes(getFile(Settings.CERT_FILENAME).toPath()));
+    }
+
+    @Override
+    public Optional<String> getSourceFingerprint() {
+        File file = files.get(Settings.TMD_FILENAME.toLowerCase(Locale.ROOT));
+        if (file == null) {
+            return Optional.empty();
+        }
+        return Optional.of(TitleMetadataCache.getFileFingerprint(file));
+    }
+
+    @Override
+    public void cleanup() throws IOException {
+        synchronized (mappedContents) {
+            for (MappedFile mapped : mappedContents.values()) {
+                mapped.close();
+            }
+            mappedContents.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NUSDataProviderLocalMapped [localPath=" + localPath + "]";
+    }
+}
@@ -27,6 +27,8 @@ import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
 import de.mas.wiiu.jnus.interfaces.Parallelizable;
 import de.mas.wiiu.jnus.utils.download.NUSDownloadService;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 import lombok.Getter;
 
 public class NUSDataProviderRemote implements NUSDataProvider, Parallelizable {
@@ -41,7 +43,7 @@ public class NUSDataProviderRemote implements NUSDataProvider, Parallelizable {
     @Override
     public InputStream readRawContentAsStream(Content content, long fileOffsetBlock, long size) throws IOException {
         NUSDownloadService downloadService = NUSDownloadService.getDefaultInstance();
-        return downloadService.getInputStreamForURL(getRemoteURL(content), fileOffsetBlock, size);
+        return Metrics.wrap(downloadService.getInputStreamForURL(getRemoteURL(content), fileOffsetBlock, size), Source.REMOTE);
     }
 
     private String getRemoteURL(Content content) {
@@ -68,6 +70,16 @@ public class NUSDataProviderRemote implements NUSDataProvider, Parallelizable {
         return resOpt;
     }
 
+    @Override
+    public void primeContentH3Hash(Content content, byte[] h3Hash) {
+        h3Hashes.put(content.getID(), Optional.of(h3Hash));
+    }
+
+    @Override
+    public Optional<String> getSourceFingerprint() {
+        return Optional.of(Settings.URL_BASE + "|" + String.format("%016X", titleID) + "|" + version);
+    }
+
     Optional<byte[]> tmdCache = null;
 
     @Override
@@ -28,6 +28,7 @@ import de.mas.wiiu.jnus.implementations.wud.parser.WUDGamePartition;
 import de.mas.wiiu.jnus.implementations.wud.reader.WUDDiscReader;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
 import de.mas.wiiu.jnus.utils.FSTUtils;
+import de.mas.wiiu.jnus.utils.TitleMetadataCache;
 import lombok.Getter;
 import lombok.extern.java.Log;
 
@@ -65,7 +66,7 @@ public class NUSDataProviderWUD implements NUSDataProvider {
 
     @Override
     public Optional<byte[]> getContentH3Hash(Content content) throws IOException {
-        if (!getGamePartitionHeader().isCalculatedHashes()) {
+        if (!getGamePartitionHeader().isCalculatedHashes() && !getGamePartitionHeader().getH3Hashes().containsKey(content.getIndex())) {
             log.info("Calculating h3 hashes");
             getGamePartitionHeader().calculateHashes(getGamePartition().getTmd().getAllContents());
         }
@@ -87,6 +88,20 @@ public class NUSDataProviderWUD implements NUSDataProvider {
         return Optional.of(getGamePartition().getRawCert());
     }
 
+    @Override
+    public void primeContentH3Hash(Content content, byte[] h3Hash) {
+        getGamePartitionHeader().addH3Hashes(content.getIndex(), h3Hash);
+    }
+
+    @Override
+    public Optional<String> getSourceFingerprint() {
+        if (getDiscReader().getImage() == null || getDiscReader().getImage().getFileHandle() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(TitleMetadataCache.getFileFingerprint(getDiscReader().getImage().getFileHandle()) + "|" + getGamePartition().getPartitionName()
+                + "|" + getGamePartition().getPartitionOffset());
+    }
+
     public GamePartitionHeader getGamePartitionHeader() {
         return getGamePartition().getPartitionHeader();
     }
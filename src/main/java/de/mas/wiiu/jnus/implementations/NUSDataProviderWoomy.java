@@ -19,26 +19,37 @@ package de.mas.wiiu.jnus.implementations;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
 
 import de.mas.wiiu.jnus.Settings;
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.implementations.woomy.WoomyInfo;
-import de.mas.wiiu.jnus.implementations.woomy.WoomyZipFile;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
-import de.mas.wiiu.jnus.utils.StreamUtils;
-import lombok.AccessLevel;
+import de.mas.wiiu.jnus.utils.TitleMetadataCache;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveReader;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.Setter;
+import lombok.Synchronized;
 import lombok.extern.java.Log;
 
+/**
+ * Provides the data of a woomy file. The archive is opened only once and shared between all reads. Small files like the TMD, ticket, cert and .h3 files are
+ * cached after the first read.
+ * 
+ * @author Maschell
+ *
+ */
 @Log
 public class NUSDataProviderWoomy implements NUSDataProvider {
     @Getter private final WoomyInfo woomyInfo;
-    @Setter(AccessLevel.PRIVATE) private WoomyZipFile woomyZipFile;
+    private ZipArchiveReader archive;
+
+    private final Map<String, byte[]> smallFileCache = new ConcurrentHashMap<>();
 
     public NUSDataProviderWoomy(WoomyInfo woomyInfo) {
         this.woomyInfo = woomyInfo;
@@ -46,86 +57,79 @@ public class NUSDataProviderWoomy implements NUSDataProvider {
 
     @Override
     public InputStream readRawContentAsStream(@NonNull Content content, long offset, long size) throws IOException {
-        WoomyZipFile zipFile = getSharedWoomyZipFile();
         ZipEntry entry = getWoomyInfo().getContentFiles().get(content.getFilename().toLowerCase());
         if (entry == null) {
             log.warning("Inputstream for " + content.getFilename() + " not found");
             throw new FileNotFoundException("Inputstream for " + content.getFilename() + " not found");
         }
-        InputStream in = zipFile.getInputStream(entry);
-        StreamUtils.skipExactly(in, offset);
-        return in;
+        return Metrics.wrap(getArchive().getInputStream(entry, offset), Source.WOOMY);
     }
 
     @Override
     public Optional<byte[]> getContentH3Hash(Content content) throws IOException {
-        ZipEntry entry = getWoomyInfo().getContentFiles().get(content.getFilename().toLowerCase());
-        if (entry != null) {
-            WoomyZipFile zipFile = getNewWoomyZipFile();
-            byte[] result = zipFile.getEntryAsByte(entry);
-            zipFile.close();
-            return Optional.of(result);
+        String h3Filename = String.format("%08x%s", content.getID(), Settings.H3_EXTENTION);
+        if (!getWoomyInfo().getContentFiles().containsKey(h3Filename)) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        return Optional.of(getSmallFile(h3Filename));
     }
 
     @Override
     public Optional<byte[]> getRawTMD() throws IOException {
-        ZipEntry entry = getWoomyInfo().getContentFiles().get(Settings.TMD_FILENAME);
-        if (entry == null) {
-            log.warning(Settings.TMD_FILENAME + " not found in woomy file");
-            throw new FileNotFoundException(Settings.TMD_FILENAME + " not found in woomy file");
-        }
-        WoomyZipFile zipFile = getNewWoomyZipFile();
-        byte[] result = zipFile.getEntryAsByte(entry);
-        zipFile.close();
-        return Optional.of(result);
+        return Optional.of(getSmallFile(Settings.TMD_FILENAME));
     }
 
     @Override
     public Optional<byte[]> getRawCert() throws IOException {
-        ZipEntry entry = getWoomyInfo().getContentFiles().get(Settings.CERT_FILENAME);
-        if (entry == null) {
-            log.warning(Settings.TICKET_FILENAME + " not found in woomy file");
-            throw new FileNotFoundException(Settings.TICKET_FILENAME + " not found in woomy file");
-        }
-
-        WoomyZipFile zipFile = getNewWoomyZipFile();
-        byte[] result = zipFile.getEntryAsByte(entry);
-        zipFile.close();
-        return Optional.of(result);
+        return Optional.of(getSmallFile(Settings.CERT_FILENAME));
     }
 
     @Override
     public Optional<byte[]> getRawTicket() throws IOException {
-        ZipEntry entry = getWoomyInfo().getContentFiles().get(Settings.TICKET_FILENAME);
-        if (entry == null) {
-            log.warning(Settings.TICKET_FILENAME + " not found in woomy file");
-            throw new FileNotFoundException(Settings.TICKET_FILENAME + " not found in woomy file");
-        }
+        return Optional.of(getSmallFile(Settings.TICKET_FILENAME));
+    }
+
+    @Override
+    public void primeContentH3Hash(Content content, byte[] h3Hash) {
+        smallFileCache.put(String.format("%08x%s", content.getID(), Settings.H3_EXTENTION), h3Hash);
+    }
 
-        WoomyZipFile zipFile = getNewWoomyZipFile();
-        byte[] result = zipFile.getEntryAsByte(entry);
-        zipFile.close();
-        return Optional.of(result);
+    @Override
+    public Optional<String> getSourceFingerprint() {
+        return Optional.of(TitleMetadataCache.getFileFingerprint(getWoomyInfo().getWoomyFile()));
     }
 
-    public WoomyZipFile getSharedWoomyZipFile() throws ZipException, IOException {
-        if (this.woomyZipFile == null || this.woomyZipFile.isClosed()) {
-            this.woomyZipFile = getNewWoomyZipFile();
+    private byte[] getSmallFile(String filename) throws IOException {
+        byte[] result = smallFileCache.get(filename);
+        if (result == null) {
+            ZipEntry entry = getWoomyInfo().getContentFiles().get(filename);
+            if (entry == null) {
+                log.warning(filename + " not found in woomy file");
+                throw new FileNotFoundException(filename + " not found in woomy file");
+            }
+            result = getArchive().readEntry(getArchive().getEntry(entry.getName())
+                    .orElseThrow(() -> new FileNotFoundException(filename + " not found in woomy file")));
+            smallFileCache.put(filename, result);
         }
-        return this.woomyZipFile;
+        return result;
     }
 
-    private WoomyZipFile getNewWoomyZipFile() throws ZipException, IOException {
-        return new WoomyZipFile(getWoomyInfo().getWoomyFile());
+    @Synchronized
+    public ZipArchiveReader getArchive() throws IOException {
+        if (this.archive == null) {
+            this.archive = new ZipArchiveReader(getWoomyInfo().getWoomyFile());
+        }
+        return this.archive;
     }
 
     @Override
+    @Synchronized
     public void cleanup() throws IOException {
-        if (this.woomyZipFile != null && this.woomyZipFile.isClosed()) {
-            this.woomyZipFile.close();
+        if (this.archive != null) {
+            this.archive.close();
+            this.archive = null;
         }
+        smallFileCache.clear();
     }
 
 }
@@ -20,60 +20,38 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Optional;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import de.mas.wiiu.jnus.entities.TMD;
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.implementations.wud.GamePartitionHeader;
 import de.mas.wiiu.jnus.implementations.wud.wumad.WumadGamePartition;
+import de.mas.wiiu.jnus.implementations.wud.wumad.WumadInfo;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
-import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.TitleMetadataCache;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveEntry;
 
 public class NUSDataProviderWumad implements NUSDataProvider {
-    private final ZipFile wumad;
+    private final WumadInfo wumad;
     private final WumadGamePartition partition;
 
-    private final Map<String, ZipEntry> files = new HashMap<>();
-
-    public NUSDataProviderWumad(WumadGamePartition gamePartition, ZipFile wudmadFile) {
-        this.wumad = wudmadFile;
+    public NUSDataProviderWumad(WumadGamePartition gamePartition, WumadInfo wumadInfo) {
+        this.wumad = wumadInfo;
         this.partition = gamePartition;
-        files.putAll(loadFileList(wudmadFile));
-    }
-
-    private Map<String, ZipEntry> loadFileList(ZipFile zipFile) {
-        Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
-        Map<String, ZipEntry> result = new HashMap<>();
-        while (zipEntries.hasMoreElements()) {
-            ZipEntry entry = (ZipEntry) zipEntries.nextElement();
-            if (!entry.isDirectory()) {
-                String entryName = entry.getName();
-                result.put(entryName.toLowerCase(Locale.ENGLISH), entry);
-            }
-        }
-        return result;
     }
 
     @Override
     public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException {
-        ZipEntry entry = files.values().stream().filter(e -> e.getName().startsWith("p" + partition.getPartitionName() + "."))
-                .filter(e -> e.getName().endsWith(content.getFilename().toLowerCase())).findFirst().orElseThrow(() -> new FileNotFoundException());
-        InputStream in = wumad.getInputStream(entry);
-        StreamUtils.skipExactly(in, offset);
-
-        return in;
+        ZipArchiveEntry entry = wumad.getPartitionFile(partition.getPartitionName(), content.getFilename()).orElseThrow(
+                () -> new FileNotFoundException(content.getFilename() + " not found in partition " + partition.getPartitionName()));
+        return Metrics.wrap(wumad.getArchive().getInputStream(entry, offset), Source.WUMAD);
     }
-
     @Override
     public Optional<byte[]> getContentH3Hash(Content content) throws IOException {
         GamePartitionHeader partitionHeader = partition.getPartitionHeader();
-        if (!partitionHeader.isCalculatedHashes()) {
+        if (!partitionHeader.isCalculatedHashes() && !partitionHeader.getH3Hashes().containsKey(content.getIndex())) {
             try {
                 partitionHeader.calculateHashes(TMD.parseTMD(getRawTMD().get()).getAllContents());
             } catch (ParseException e) {
@@ -83,6 +61,16 @@ public class NUSDataProviderWumad implements NUSDataProvider {
         return partitionHeader.getH3Hash(content);
     }
 
+    @Override
+    public void primeContentH3Hash(Content content, byte[] h3Hash) {
+        partition.getPartitionHeader().addH3Hashes(content.getIndex(), h3Hash);
+    }
+
+    @Override
+    public Optional<String> getSourceFingerprint() {
+        return Optional.of(TitleMetadataCache.getFileFingerprint(wumad.getArchive().getFile()) + "|" + partition.getPartitionName());
+    }
+
     @Override
     public Optional<byte[]> getRawTMD() throws IOException {
         return Optional.of(partition.getRawTMD());
@@ -100,6 +88,7 @@ public class NUSDataProviderWumad implements NUSDataProvider {
 
     @Override
     public void cleanup() throws IOException {
-        wumad.close();
+        wumad.getArchive().close();
+        wumad.getZipFile().close();
     }
 }
@@ -0,0 +1,112 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.implementations.woomy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import de.mas.wiiu.jnus.NUSTitle;
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.entities.TMD;
+import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveWriter;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveWriter.CompressedEntry;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+/**
+ * Creates .woomy files from any NUSDataProvider in one pass. The encrypted contents are streamed into the archive without compression, the small files (TMD,
+ * ticket, cert, .h3) are compressed in parallel meanwhile.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class WoomyWriter {
+    private WoomyWriter() {
+        // Utility class
+    }
+
+    public static void writeWoomy(@NonNull NUSTitle title, @NonNull File outputFile) throws IOException {
+        TMD tmd = title.getTMD();
+        writeWoomy(title.getDataProcessor().getDataProvider(), tmd, String.format("%016X", tmd.getTitleID()), outputFile);
+    }
+
+    public static void writeWoomy(@NonNull NUSDataProvider dataProvider, @NonNull TMD tmd, @NonNull String name, @NonNull File outputFile) throws IOException {
+        String folder = String.format("%016x/", tmd.getTitleID());
+        List<Content> contents = tmd.getAllContents().values().stream().sorted(Comparator.comparingInt(Content::getIndex)).collect(Collectors.toList());
+
+        // The data providers are not necessarily thread safe, only the compression happens in the background.
+        List<CompletableFuture<Optional<CompressedEntry>>> smallFiles = new ArrayList<>();
+        Optional<byte[]> rawTMD = dataProvider.getRawTMD();
+        Optional<byte[]> rawTicket = dataProvider.getRawTicket();
+        Optional<byte[]> rawCert = dataProvider.getRawCert();
+        smallFiles.add(ZipArchiveWriter.compressAsync(folder + Settings.TMD_FILENAME, () -> rawTMD));
+        smallFiles.add(ZipArchiveWriter.compressAsync(folder + Settings.TICKET_FILENAME, () -> rawTicket));
+        smallFiles.add(ZipArchiveWriter.compressAsync(folder + Settings.CERT_FILENAME, () -> rawCert));
+        for (Content c : contents) {
+            if (c.isHashed()) {
+                String h3Filename = String.format("%s%08X%s", folder, c.getID(), Settings.H3_EXTENTION);
+                Optional<byte[]> h3 = dataProvider.getContentH3Hash(c);
+                smallFiles.add(ZipArchiveWriter.compressAsync(h3Filename, () -> h3));
+            }
+        }
+
+        boolean success = false;
+        ZipArchiveWriter zip = new ZipArchiveWriter(outputFile);
+        try {
+            for (Content c : contents) {
+                log.info("Adding " + c.getFilename() + " to " + outputFile.getName());
+                long size = c.getEncryptedFileSizeAligned();
+                try (InputStream in = dataProvider.readRawContentAsStream(c, 0, size)) {
+                    zip.writeStored(folder + c.getFilename(), in, size);
+                }
+            }
+            int fileCount = contents.size() + zip.writeAll(smallFiles).size();
+
+            byte[] metadata = createMetadata(name, folder, fileCount);
+            zip.write(ZipArchiveWriter.compress(Settings.WOOMY_METADATA_FILENAME, metadata));
+            success = true;
+        } finally {
+            zip.close();
+            if (!success && !outputFile.delete()) {
+                log.warning("Failed to delete incomplete " + outputFile);
+            }
+        }
+    }
+
+    private static byte[] createMetadata(String name, String folder, int fileCount) {
+        String escapedName = escapeXML(name);
+        // No whitespace between the entries, the parser expects only element nodes inside <entries>.
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<info><name>" + escapedName + "</name><icon>0</icon><entries><entry name=\"" + escapedName
+                + "\" folder=\"" + escapeXML(folder) + "\" entries=\"" + fileCount + "\"/></entries></info>\n";
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escapeXML(String input) {
+        return input.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
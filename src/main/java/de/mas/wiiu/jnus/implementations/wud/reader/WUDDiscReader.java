@@ -24,9 +24,9 @@ import java.io.OutputStream;
 import java.io.PipedOutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 import de.mas.wiiu.jnus.implementations.wud.WUDImage;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
 import de.mas.wiiu.jnus.utils.PipedInputStreamWithException;
 import de.mas.wiiu.jnus.utils.StreamUtils;
 import de.mas.wiiu.jnus.utils.cryptography.AESDecryption;
@@ -60,14 +60,14 @@ public abstract class WUDDiscReader {
         PipedOutputStream out = new PipedOutputStream();
         PipedInputStreamWithException in = new PipedInputStreamWithException(out, 0x8000);
 
-        new Thread(() -> {
+        ExecutorUtils.startThread(() -> {
             try {
                 readEncryptedToStream(out, offset, size);
                 in.throwException(null);
             } catch (Exception e) {
                 in.throwException(e);
             }
-        }).start();
+        });
 
         return in;
     }
@@ -77,14 +77,14 @@ public abstract class WUDDiscReader {
         PipedOutputStream out = new PipedOutputStream();
         PipedInputStreamWithException in = new PipedInputStreamWithException(out, 0x8000);
 
-        new Thread(() -> {
+        ExecutorUtils.startThread(() -> {
             try {
                 readDecryptedToOutputStream(out, offset, fileOffset, size, key, IV, useFixedIV);
                 in.throwException(null);
             } catch (Exception e) {
                 in.throwException(e);
             }
-        }).start();
+        });
 
         return in;
     }
@@ -102,12 +102,9 @@ public abstract class WUDDiscReader {
         int chunkSize = 0x10000;
 
         byte[] encryptedChunk = readEncryptedToByteArray(readOffset, 0, chunkSize);
-        byte[] decryptedChunk = new byte[chunkSize];
 
         AESDecryption aesDecryption = new AESDecryption(key, IV);
-        decryptedChunk = aesDecryption.decrypt(encryptedChunk);
-
-        return decryptedChunk;
+        return aesDecryption.decrypt(encryptedChunk);
     }
 
     public long readDecryptedToOutputStream(OutputStream outputStream, long clusterOffset, long fileOffset, long size, byte[] key, byte[] IV,
@@ -151,7 +148,7 @@ public abstract class WUDDiscReader {
                 copySize = (usedSize > maxCopySize) ? maxCopySize : usedSize;
 
                 try {
-                    outputStream.write(Arrays.copyOfRange(buffer, (int) blockOffset, (int) (blockOffset + copySize)));
+                    outputStream.write(buffer, (int) blockOffset, (int) copySize);
                 } catch (IOException e) {
                     if (e.getMessage().equals("Pipe closed")) {
                         break;
@@ -19,11 +19,13 @@ package de.mas.wiiu.jnus.implementations.wud.reader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.util.Arrays;
 
 import de.mas.wiiu.jnus.implementations.wud.WUDImage;
 import de.mas.wiiu.jnus.implementations.wud.WUDImageCompressedInfo;
+import de.mas.wiiu.jnus.utils.BufferPool;
 import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 
 public class WUDDiscReaderCompressed extends WUDDiscReader {
 
@@ -53,7 +55,7 @@ public class WUDDiscReaderCompressed extends WUDDiscReader {
         // compressed read must be handled on a per-sector level
 
         int bufferSize = 0x8000;
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = BufferPool.acquire(bufferSize);
 
         RandomAccessFile input = getRandomAccessFileStream();
         try {
@@ -68,14 +70,16 @@ public class WUDDiscReaderCompressed extends WUDDiscReader {
                     long realSectorIndex = info.getSectorIndex((int) sectorIndex);
                     long offset2 = info.getOffsetSectorArray() + realSectorIndex * info.getSectorSize() + sectorOffset;
 
+                    long start = Metrics.start();
                     input.seek(offset2);
-                    int read = input.read(buffer);
+                    int read = input.read(buffer, 0, bufferSize);
+                    Metrics.bytesRead(Source.WUX, read, start);
 
                     if (read < 0) {
                         break;
                     }
                     try {
-                        out.write(Arrays.copyOfRange(buffer, 0, bytesToRead));
+                        out.write(buffer, 0, bytesToRead);
                     } catch (IOException e) {
                         if (e.getMessage().equals("Pipe closed")) {
                             break;
@@ -90,6 +94,7 @@ public class WUDDiscReaderCompressed extends WUDDiscReader {
             }
         } finally {
             StreamUtils.closeAll(input, out);
+            BufferPool.release(buffer);
         }
         return size - usedSize;
     }
@@ -21,9 +21,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.util.Arrays;
 
 import de.mas.wiiu.jnus.implementations.wud.WUDImage;
+import de.mas.wiiu.jnus.utils.BufferPool;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 import lombok.extern.java.Log;
 
 @Log
@@ -41,50 +43,55 @@ public class WUDDiscReaderSplitted extends WUDDiscReader {
         RandomAccessFile input = getFileByOffset(offset);
 
         int bufferSize = 0x8000;
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = BufferPool.acquire(bufferSize);
         long totalread = 0;
         long curOffset = offset;
 
         int part = getFilePartByOffset(offset);
         long offsetInFile = getOffsetInFilePart(part, curOffset);
 
-        do {
-            offsetInFile = getOffsetInFilePart(part, curOffset);
-            int curReadSize = bufferSize;
-            if ((offsetInFile + bufferSize) >= WUD_SPLITTED_FILE_SIZE) { // Will we read above the part?
-                long toRead = WUD_SPLITTED_FILE_SIZE - offsetInFile;
-                if (toRead == 0) { // just load the new file
-                    input.close();
-                    input = getFileByOffset(curOffset);
-                    part++;
-                    offsetInFile = getOffsetInFilePart(part, curOffset);
-                } else {
-                    curReadSize = (int) toRead; // And first only read until the part ends
+        try {
+            do {
+                offsetInFile = getOffsetInFilePart(part, curOffset);
+                int curReadSize = bufferSize;
+                if ((offsetInFile + bufferSize) >= WUD_SPLITTED_FILE_SIZE) { // Will we read above the part?
+                    long toRead = WUD_SPLITTED_FILE_SIZE - offsetInFile;
+                    if (toRead == 0) { // just load the new file
+                        input.close();
+                        input = getFileByOffset(curOffset);
+                        part++;
+                        offsetInFile = getOffsetInFilePart(part, curOffset);
+                    } else {
+                        curReadSize = (int) toRead; // And first only read until the part ends
+                    }
                 }
-            }
-
-            int read = input.read(buffer, 0, curReadSize);
-            if (read < 0) {
-                break;
-            }
-            if (totalread + read > size) {
-                read = (int) (size - totalread);
-            }
-            try {
-                outputStream.write(Arrays.copyOfRange(buffer, 0, read));
-            } catch (IOException e) {
-                if (e.getMessage().equals("Pipe closed")) {
+
+                long start = Metrics.start();
+                int read = input.read(buffer, 0, curReadSize);
+                Metrics.bytesRead(Source.WUD_SPLITTED, read, start);
+                if (read < 0) {
                     break;
-                } else {
-                    input.close();
-                    throw e;
                 }
-            }
-            totalread += read;
-            curOffset += read;
-        } while (totalread < size);
+                if (totalread + read > size) {
+                    read = (int) (size - totalread);
+                }
+                try {
+                    outputStream.write(buffer, 0, read);
+                } catch (IOException e) {
+                    if (e.getMessage().equals("Pipe closed")) {
+                        break;
+                    } else {
+                        throw e;
+                    }
+                }
+                totalread += read;
+                curOffset += read;
+            } while (totalread < size);
+        } finally {
+            input.close();
+            BufferPool.release(buffer);
+        }
 
-        input.close();
         outputStream.close();
         return totalread;
     }
@@ -20,10 +20,12 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Arrays;
 
 import de.mas.wiiu.jnus.implementations.wud.WUDImage;
+import de.mas.wiiu.jnus.utils.BufferPool;
 import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 
 public class WUDDiscReaderUncompressed extends WUDDiscReader {
     public WUDDiscReaderUncompressed(WUDImage image) {
@@ -38,29 +40,34 @@ public class WUDDiscReaderUncompressed extends WUDDiscReader {
         StreamUtils.skipExactly(input, offset);
 
         int bufferSize = 0x8000;
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = BufferPool.acquire(bufferSize);
         long totalread = 0;
-        do {
-            int read = input.read(buffer);
-            if (read < 0) {
-                break;
-            }
-            if (totalread + read > size) {
-                read = (int) (size - totalread);
-            }
-            try {
-                outputStream.write(Arrays.copyOfRange(buffer, 0, read));
-            } catch (IOException e) {
-                if (e.getMessage().equals("Pipe closed")) {
+        try {
+            do {
+                long start = Metrics.start();
+                int read = input.read(buffer, 0, bufferSize);
+                Metrics.bytesRead(Source.WUD, read, start);
+                if (read < 0) {
                     break;
-                } else {
-                    input.close();
-                    throw e;
                 }
-            }
-            totalread += read;
-        } while (totalread < size);
-        input.close();
+                if (totalread + read > size) {
+                    read = (int) (size - totalread);
+                }
+                try {
+                    outputStream.write(buffer, 0, read);
+                } catch (IOException e) {
+                    if (e.getMessage().equals("Pipe closed")) {
+                        break;
+                    } else {
+                        throw e;
+                    }
+                }
+                totalread += read;
+            } while (totalread < size);
+        } finally {
+            input.close();
+            BufferPool.release(buffer);
+        }
         outputStream.close();
         return totalread;
     }
@@ -69,7 +76,7 @@ public class WUDDiscReaderUncompressed extends WUDDiscReader {
     public InputStream readEncryptedToStream(long offset, long size) throws IOException {
         FileInputStream input = new FileInputStream(getImage().getFileHandle());
         StreamUtils.skipExactly(input, offset);
-        return input;
+        return Metrics.wrap(input, Source.WUD);
     }
 
 }
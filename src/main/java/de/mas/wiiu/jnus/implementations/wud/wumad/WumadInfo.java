@@ -17,10 +17,17 @@
 package de.mas.wiiu.jnus.implementations.wud.wumad;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.zip.ZipFile;
 
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveEntry;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveReader;
 import lombok.Data;
 import lombok.Setter;
 
@@ -38,6 +45,24 @@ public class WumadInfo {
     }
 
     @Setter private ZipFile zipFile;
+    @Setter private ZipArchiveReader archive;
+
+    /**
+     * Entries of all partitions, grouped by the partition name and then by the lower case filename (e.g. "0000000a.app").
+     */
+    private final Map<String, Map<String, ZipArchiveEntry>> partitionFiles = new HashMap<>();
+
+    void addPartitionFile(String partitionName, String filename, ZipArchiveEntry entry) {
+        partitionFiles.computeIfAbsent(partitionName, k -> new HashMap<>()).put(filename.toLowerCase(Locale.ENGLISH), entry);
+    }
+
+    public Map<String, ZipArchiveEntry> getPartitionFiles(String partitionName) {
+        return Collections.unmodifiableMap(partitionFiles.getOrDefault(partitionName, Collections.emptyMap()));
+    }
+
+    public Optional<ZipArchiveEntry> getPartitionFile(String partitionName, String filename) {
+        return Optional.ofNullable(partitionFiles.getOrDefault(partitionName, Collections.emptyMap()).get(filename.toLowerCase(Locale.ENGLISH)));
+    }
 
     WumadInfo() {
     }
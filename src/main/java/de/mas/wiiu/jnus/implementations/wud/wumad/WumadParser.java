@@ -26,7 +26,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
@@ -39,6 +38,8 @@ import de.mas.wiiu.jnus.entities.fst.FSTEntry;
 import de.mas.wiiu.jnus.implementations.wud.GamePartitionHeader;
 import de.mas.wiiu.jnus.utils.FSTUtils;
 import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveEntry;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveReader;
 import lombok.val;
 
 public class WumadParser {
@@ -56,17 +57,29 @@ public class WumadParser {
         try {
             ZipFile zipFile = new ZipFile(wumadFile);
             result.setZipFile(zipFile);
+            ZipArchiveReader archive = new ZipArchiveReader(wumadFile);
+            result.setArchive(archive);
 
             // Let's get all possible partitions
-            Map<String, List<ZipEntry>> allPartitions = zipFile.stream().filter(e -> e.getName().startsWith("p"))
+            Map<String, List<ZipArchiveEntry>> allPartitions = archive.getEntries().stream().filter(e -> e.getName().startsWith("p"))
                     .collect(Collectors.groupingBy(e -> e.getName().substring(1, 3)));
 
+            // Index the files once, e.g. "p01.s0001.0000000a.app" can be found via "01" and "0000000a.app".
+            for (val e : allPartitions.entrySet()) {
+                for (ZipArchiveEntry entry : e.getValue()) {
+                    String name = entry.getName();
+                    int extensionStart = name.lastIndexOf('.');
+                    int filenameStart = extensionStart > 0 ? name.lastIndexOf('.', extensionStart - 1) : -1;
+                    result.addPartitionFile(e.getKey(), name.substring(filenameStart + 1), entry);
+                }
+            }
+
             Map<String, FSTEntry> gamepartitions = new HashMap<>();
 
             // If we have a SI partition, let parse the FST to get all game partitions.
-            ZipEntry siFST = zipFile.getEntry(SI_FST_FILENAME);
-            if (siFST != null) {
-                byte[] fstBytes = StreamUtils.getBytesFromStream(zipFile.getInputStream(siFST), (int) siFST.getSize());
+            Optional<ZipArchiveEntry> siFST = archive.getEntry(SI_FST_FILENAME);
+            if (siFST.isPresent()) {
+                byte[] fstBytes = archive.readEntry(siFST.get());
 
                 FST parsedFST = FST.parseFST(fstBytes);
                 gamepartitions.putAll(parsedFST.getRoot().getDirChildren().stream().collect(Collectors.toMap(e -> e.getFilename(), e -> e)));
@@ -74,18 +87,20 @@ public class WumadParser {
 
             // process all game partitions. Remove the partitions from the "all partitions" list on success.
             for (val e : gamepartitions.entrySet()) {
-                ZipEntry data = zipFile.getEntry(String.format("sip.s00%s.00000000.app", e.getKey()));
+                String dataFilename = String.format("sip.s00%s.00000000.app", e.getKey());
+                ZipArchiveEntry data = archive.getEntry(dataFilename).orElseThrow(() -> new FileNotFoundException(dataFilename + " not found"));
 
-                byte[] rawTMD = getFSTEntryAsByte("/" + e.getKey() + "/" + WUD_TMD_FILENAME, e.getValue(), zipFile, data)
+                byte[] rawTMD = getFSTEntryAsByte("/" + e.getKey() + "/" + WUD_TMD_FILENAME, e.getValue(), archive, data)
                         .orElseThrow(() -> new FileNotFoundException());
-                byte[] rawCert = getFSTEntryAsByte("/" + e.getKey() + "/" + WUD_CERT_FILENAME, e.getValue(), zipFile, data)
+                byte[] rawCert = getFSTEntryAsByte("/" + e.getKey() + "/" + WUD_CERT_FILENAME, e.getValue(), archive, data)
                         .orElseThrow(() -> new FileNotFoundException());
-                byte[] rawTIK = getFSTEntryAsByte("/" + e.getKey() + "/" + WUD_TICKET_FILENAME, e.getValue(), zipFile, data)
+                byte[] rawTIK = getFSTEntryAsByte("/" + e.getKey() + "/" + WUD_TICKET_FILENAME, e.getValue(), archive, data)
                         .orElseThrow(() -> new FileNotFoundException());
 
-                ZipEntry headerEntry = zipFile.getEntry(String.format("p%s.header.bin", e.getKey()));
+                String headerFilename = String.format("p%s.header.bin", e.getKey());
+                ZipArchiveEntry headerEntry = archive.getEntry(headerFilename).orElseThrow(() -> new FileNotFoundException(headerFilename + " not found"));
 
-                byte[] header = StreamUtils.getBytesFromStream(zipFile.getInputStream(headerEntry), (int) headerEntry.getSize());
+                byte[] header = archive.readEntry(headerEntry);
 
                 WumadGamePartition curPartition = new WumadGamePartition(e.getKey(), GamePartitionHeader.parseHeader(header), rawTMD, rawCert, rawTIK);
 
@@ -95,9 +110,10 @@ public class WumadParser {
 
             // The remaining partitions are data partitions.
             for (val e : allPartitions.entrySet()) {
-                ZipEntry fstEntry = e.getValue().stream().filter(f -> f.getName().contains("fst")).findFirst().orElseThrow(() -> new FileNotFoundException());
+                ZipArchiveEntry fstEntry = e.getValue().stream().filter(f -> f.getName().contains("fst")).findFirst()
+                        .orElseThrow(() -> new FileNotFoundException());
 
-                byte[] fstBytes = StreamUtils.getBytesFromStream(zipFile.getInputStream(fstEntry), (int) fstEntry.getSize());
+                byte[] fstBytes = archive.readEntry(fstEntry);
 
                 FST parsedFST = FST.parseFST(fstBytes);
 
@@ -115,16 +131,15 @@ public class WumadParser {
         return result;
     }
 
-    private static Optional<byte[]> getFSTEntryAsByte(String filePath, FSTEntry dirRoot, ZipFile zipFile, ZipEntry data) throws IOException {
+    private static Optional<byte[]> getFSTEntryAsByte(String filePath, FSTEntry dirRoot, ZipArchiveReader archive, ZipArchiveEntry data)
+            throws IOException {
         Optional<FSTEntry> entryOpt = FSTUtils.getEntryByFullPath(dirRoot, filePath);
         if (!entryOpt.isPresent()) {
             return Optional.empty();
         }
         FSTEntry entry = entryOpt.get();
 
-        InputStream in = zipFile.getInputStream(data);
-
-        StreamUtils.skipExactly(in, entry.getFileOffset());
+        InputStream in = archive.getInputStream(data, entry.getFileOffset());
         return Optional.of(StreamUtils.getBytesFromStream(in, (int) entry.getFileSize()));
     }
 }
@@ -0,0 +1,212 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.implementations.wud.wumad;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import de.mas.wiiu.jnus.NUSTitle;
+import de.mas.wiiu.jnus.entities.TMD;
+import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
+import de.mas.wiiu.jnus.utils.Utils;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveWriter;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveWriter.CompressedEntry;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+/**
+ * Creates .wumad files with a single game partition from any NUSDataProvider in one pass.
+ * 
+ * The archive contains the SI partition (FST and the TMD, cert and ticket of the game partition), the partition header with the H3 hashes and the encrypted
+ * contents. The contents are streamed into the archive without compression, everything else is compressed in parallel meanwhile.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class WumadWriter {
+    public static final String DEFAULT_PARTITION_NAME = "GM";
+
+    private static final int SI_FST_SECTOR_SIZE = 0x20;
+
+    private WumadWriter() {
+        // Utility class
+    }
+
+    public static void writeWumad(@NonNull NUSTitle title, @NonNull File outputFile) throws IOException {
+        writeWumad(title.getDataProcessor().getDataProvider(), title.getTMD(), DEFAULT_PARTITION_NAME, outputFile);
+    }
+
+    /**
+     * @param partitionName
+     *            two character name of the game partition
+     */
+    public static void writeWumad(@NonNull NUSDataProvider dataProvider, @NonNull TMD tmd, @NonNull String partitionName, @NonNull File outputFile)
+            throws IOException {
+        if (partitionName.length() != 2) {
+            throw new IllegalArgumentException("The partition name needs to be two characters long.");
+        }
+        List<Content> contents = tmd.getAllContents().values().stream().sorted(Comparator.comparingInt(Content::getIndex)).collect(Collectors.toList());
+
+        byte[] rawTMD = dataProvider.getRawTMD().orElseThrow(() -> new IOException("TMD is missing"));
+        byte[] rawCert = dataProvider.getRawCert().orElseThrow(() -> new IOException("Cert is missing"));
+        byte[] rawTicket = dataProvider.getRawTicket().orElseThrow(() -> new IOException("Ticket is missing"));
+
+        // The data providers are not necessarily thread safe, only the compression happens in the background.
+        List<byte[]> h3Hashes = new ArrayList<>();
+        for (Content c : contents) {
+            byte[] h3 = null;
+            if (c.isHashed() && c.isEncrypted()) {
+                h3 = dataProvider.getContentH3Hash(c).orElseThrow(() -> new IOException("H3 hashes are missing"));
+                checkH3Length(c, h3);
+            }
+            h3Hashes.add(h3);
+        }
+
+        List<CompletableFuture<Optional<CompressedEntry>>> metaFiles = new ArrayList<>();
+        byte[][] siData = createSIPartition(partitionName, rawTMD, rawCert, rawTicket);
+        metaFiles.add(ZipArchiveWriter.compressAsync(WumadParser.SI_FST_FILENAME, () -> Optional.of(siData[0])));
+        metaFiles.add(ZipArchiveWriter.compressAsync(String.format("sip.s00%s.00000000.app", partitionName), () -> Optional.of(siData[1])));
+        metaFiles.add(ZipArchiveWriter.compressAsync(String.format("p%s.header.bin", partitionName),
+                () -> Optional.of(createPartitionHeader(contents, h3Hashes))));
+
+        boolean success = false;
+        ZipArchiveWriter zip = new ZipArchiveWriter(outputFile);
+        try {
+            for (Content c : contents) {
+                log.info("Adding " + c.getFilename() + " to " + outputFile.getName());
+                long size = c.getEncryptedFileSizeAligned();
+                try (InputStream in = dataProvider.readRawContentAsStream(c, 0, size)) {
+                    zip.writeStored(String.format("p%s.%s", partitionName, c.getFilename().toLowerCase(Locale.ENGLISH)), in, size);
+                }
+            }
+            zip.writeAll(metaFiles);
+            success = true;
+        } finally {
+            zip.close();
+            if (!success && !outputFile.delete()) {
+                log.warning("Failed to delete incomplete " + outputFile);
+            }
+        }
+    }
+
+    /**
+     * A .h3 file has one hash for each started 0x1000 hashed blocks. Anything else would end up as a broken partition header.
+     */
+    private static void checkH3Length(Content c, byte[] h3) throws IOException {
+        long blocks = c.getEncryptedFileSize() / 0x10000;
+        long expectedLength = (blocks + 0xFFF) / 0x1000 * 0x14;
+        if (h3.length != expectedLength) {
+            throw new IOException(String.format("The H3 hashes of %s have a size of 0x%X bytes, expected 0x%X", c.getFilename(), h3.length, expectedLength));
+        }
+    }
+
+    /**
+     * The header only holds what the parsers actually use: the number of contents at 0x10, followed by a table with the size of the H3 hashes of each
+     * content and the H3 hashes of all hashed contents.
+     */
+    private static byte[] createPartitionHeader(List<Content> contents, List<byte[]> h3Hashes) throws IOException {
+        ByteArrayOutputStream hashes = new ByteArrayOutputStream();
+        ByteBuffer table = ByteBuffer.allocate(0x40 + contents.size() * 0x04);
+        table.putInt(0x10, contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            byte[] h3 = h3Hashes.get(i);
+            if (h3 == null) {
+                continue;
+            }
+            // The GamePartitionHeader expects blocks / 0x1000 + 1 hashes, that's one more than the .h3 has if the number of blocks is a multiple of 0x1000.
+            int expectedLength = (int) (contents.get(i).getEncryptedFileSize() / 0x10000 / 0x1000 + 1) * 0x14;
+            table.putInt(0x40 + i * 0x04, expectedLength);
+            hashes.write(Arrays.copyOf(h3, expectedLength));
+        }
+        hashes.close();
+
+        byte[] result = Arrays.copyOf(table.array(), table.capacity() + hashes.size());
+        System.arraycopy(hashes.toByteArray(), 0, result, table.capacity(), hashes.size());
+        return result;
+    }
+
+    /**
+     * Creates the FST and the data of a SI partition that contains the TMD, cert and ticket of a single game partition.
+     * 
+     * @return the FST and the data
+     */
+    private static byte[][] createSIPartition(String partitionName, byte[] rawTMD, byte[] rawCert, byte[] rawTicket) {
+        String[] filenames = { WumadParser.WUD_TMD_FILENAME, WumadParser.WUD_CERT_FILENAME, WumadParser.WUD_TICKET_FILENAME };
+        byte[][] files = { rawTMD, rawCert, rawTicket };
+
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        names.write(0); // root
+        int dirNameOffset = names.size();
+        writeName(names, partitionName);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        int entryCount = 2 + files.length;
+        ByteBuffer entries = ByteBuffer.allocate(entryCount * 0x10);
+        // root
+        entries.putInt(0x00, FSTEntry.FSTEntry_DIR << 24);
+        entries.putInt(0x08, entryCount);
+        // partition directory
+        entries.putInt(0x10, (FSTEntry.FSTEntry_DIR << 24) | dirNameOffset);
+        entries.putInt(0x18, entryCount);
+        for (int i = 0; i < files.length; i++) {
+            int pos = (2 + i) * 0x10;
+            entries.putInt(pos, names.size());
+            writeName(names, filenames[i]);
+            entries.putInt(pos + 0x04, data.size() / SI_FST_SECTOR_SIZE);
+            entries.putInt(pos + 0x08, files[i].length);
+            data.write(files[i], 0, files[i].length);
+            int padding = (int) (Utils.align(data.size(), SI_FST_SECTOR_SIZE) - data.size());
+            data.write(new byte[padding], 0, padding);
+        }
+        names.write(0);
+
+        ByteBuffer header = ByteBuffer.allocate(0x20 + 0x20);
+        header.put("FST".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(0x04, SI_FST_SECTOR_SIZE);
+        header.putInt(0x08, 1); // one content info, all zero.
+
+        ByteArrayOutputStream fst = new ByteArrayOutputStream();
+        fst.write(header.array(), 0, header.capacity());
+        fst.write(entries.array(), 0, entries.capacity());
+        byte[] nameBytes = names.toByteArray();
+        fst.write(nameBytes, 0, nameBytes.length);
+
+        return new byte[][] { fst.toByteArray(), data.toByteArray() };
+    }
+
+    private static void writeName(ByteArrayOutputStream names, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        names.write(bytes, 0, bytes.length);
+        names.write(0);
+    }
+}
@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.io.PipedOutputStream;
 
 import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
 import de.mas.wiiu.jnus.utils.PipedInputStreamWithException;
 
 public interface FSTDataProvider {
@@ -50,7 +51,7 @@ public interface FSTDataProvider {
         PipedOutputStream out = new PipedOutputStream();
         PipedInputStreamWithException in = new PipedInputStreamWithException(out, 0x10000);
 
-        new Thread(() -> {
+        ExecutorUtils.startThread(() -> {
             try {
                 readFileToStream(out, entry, offset, size);
                 in.throwException(null);
@@ -62,7 +63,7 @@ public interface FSTDataProvider {
 					e1.printStackTrace();
 				}
             }
-        }).start();
+        });
 
         return in;
     }
@@ -19,6 +19,7 @@ package de.mas.wiiu.jnus.interfaces;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Optional;
 
 import de.mas.wiiu.jnus.entities.content.Content;
@@ -40,6 +41,16 @@ public interface NUSDataProvider {
 
     public InputStream readRawContentAsStream(Content content, long offset, long size) throws IOException;
 
+    /**
+     * Opens a channel to the raw data of the content that supports positional reads, the raw data can then be copied with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} without passing it through the Java heap. Providers that don't read
+     * from a plain file return an empty Optional and have to be read via {@link #readRawContentAsStream(Content, long, long)}. The caller has to close the
+     * channel.
+     */
+    default public Optional<FileChannel> openRawContentChannel(Content content) throws IOException {
+        return Optional.empty();
+    }
+
     public Optional<byte[]> getContentH3Hash(Content content) throws IOException;
 
     public Optional<byte[]> getRawTMD() throws IOException;
@@ -53,4 +64,19 @@ public interface NUSDataProvider {
     default public void setFST(FST fst) {
 
     }
+
+    /**
+     * Returns a value that identifies the source of the data, e.g. the path and modification time of the image. It's used to validate cached metadata,
+     * providers that return an empty Optional are not cached.
+     */
+    default public Optional<String> getSourceFingerprint() {
+        return Optional.empty();
+    }
+
+    /**
+     * Hands over a H3 hash that was loaded from the metadata cache, so the provider doesn't need to read or calculate it again.
+     */
+    default public void primeContentH3Hash(Content content, byte[] h3Hash) {
+
+    }
 }
\ No newline at end of file
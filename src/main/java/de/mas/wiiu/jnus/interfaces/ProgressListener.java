@@ -0,0 +1,53 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.interfaces;
+
+import java.util.Locale;
+
+/**
+ * Receives the progress of long running operations like the compression of a WUD or an extraction. Calls are throttled (see
+ * {@link de.mas.wiiu.jnus.Settings#PROGRESS_INTERVAL_MS}), the last call of an operation always reports the final state. The listener may be called from
+ * different threads, but never concurrently for the same operation.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * @param operation
+     *            short description of the operation, e.g. "Compressing"
+     * @param done
+     *            bytes processed so far
+     * @param total
+     *            total number of bytes, 0 if unknown
+     * @param bytesPerSecond
+     *            average rate since the operation started
+     */
+    void onProgress(String operation, long done, long total, double bytesPerSecond);
+
+    /**
+     * Returns a listener that prints the progress into one line on stdout, like the operations of the WUDService did before.
+     */
+    static ProgressListener console() {
+        return (operation, done, total, bytesPerSecond) -> {
+            double percent = total > 0 ? (double) done / total * 100 : 0;
+            System.out.print(String.format(Locale.ROOT, "\r%s: %.2fMB done (%.2f%%) %.2fMB/s\t", operation, done / 1024.0 / 1024.0, percent,
+                    bytesPerSecond / 1024.0 / 1024.0));
+            if (total > 0 && done >= total) {
+                System.out.println();
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a stream in blocks of a fixed size. Each call fills the given range of the caller's array directly from the stream, only the last block can be
+ * shorter. There is no intermediate buffer and no locking, a BlockReader must only be used by one thread at a time.
+ * 
+ * <pre>
+ * BlockReader reader = new BlockReader(in);
+ * int read;
+ * while ((read = reader.read(block, 0, BLOCKSIZE)) > 0) {
+ *     // block[0 .. read]
+ * }
+ * </pre>
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class BlockReader {
+    private final InputStream in;
+    private boolean eof = false;
+
+    public BlockReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads until length bytes are in the buffer or the stream ends.
+     * 
+     * @return the number of bytes read, less than length only at the end of the stream, -1 if the stream has already ended
+     */
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (eof) {
+            return -1;
+        }
+        int res = readFully(in, buffer, offset, length);
+        if (res < length) {
+            // Don't touch the stream again, a pipe whose writer is gone would throw instead of returning -1.
+            eof = true;
+        }
+        return res;
+    }
+
+    public boolean isEOF() {
+        return eof;
+    }
+
+    /**
+     * Reads until length bytes are in the buffer or the stream ends.
+     * 
+     * @return the number of bytes read, less than length only at the end of the stream, -1 if nothing could be read
+     */
+    public static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            int read;
+            try {
+                read = in.read(buffer, offset + done, length - done);
+            } catch (IOException e) {
+                // The thread that fed the pipe has ended without closing it, everything it wrote has been read.
+                if (!"Write end dead".equals(e.getMessage())) {
+                    throw e;
+                }
+                read = -1;
+            }
+            if (read < 0) {
+                break;
+            }
+            done += read;
+        }
+        return done == 0 && length > 0 ? -1 : done;
+    }
+}
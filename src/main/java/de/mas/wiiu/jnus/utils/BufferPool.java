@@ -0,0 +1,206 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mas.wiiu.jnus.Settings;
+import lombok.Data;
+
+/**
+ * Pool of buffers that is shared by the readers, the decryption and the hashing. Buffers are grouped in size classes (powers of two from
+ * {@link #MIN_SIZE} to {@link #MAX_SIZE}), a borrowed buffer can be bigger than requested. Bigger requests are allocated and dropped without pooling.
+ * 
+ * Heap arrays and direct ByteBuffers are pooled separately, each up to {@link Settings#BUFFER_POOL_MAX_SIZE} bytes. Buffers must be returned to the pool
+ * they are from and must not be used after they were returned. Returning a buffer is optional, a lost buffer is just collected by the GC.
+ * 
+ * <pre>
+ * byte[] buffer = BufferPool.acquire(0x8000);
+ * try {
+ *     // use buffer[0 .. 0x8000]
+ * } finally {
+ *     BufferPool.release(buffer);
+ * }
+ * </pre>
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class BufferPool {
+    public static final int MIN_SIZE = 0x1000;
+    public static final int MAX_SIZE = 0x1000000;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+
+    private static final Pool<byte[]> heap = new Pool<>();
+    private static final Pool<ByteBuffer> direct = new Pool<>();
+
+    private BufferPool() {
+        // Utility class
+    }
+
+    /**
+     * Returns an array with at least the given size. The content is undefined.
+     */
+    public static byte[] acquire(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        if (sizeClass < 0) {
+            heap.misses.incrementAndGet();
+            return new byte[minSize];
+        }
+        byte[] result = heap.poll(sizeClass);
+        return result != null ? result : new byte[classSize(sizeClass)];
+    }
+
+    public static void release(byte[] buffer) {
+        if (buffer != null) {
+            heap.offer(buffer, buffer.length);
+        }
+    }
+
+    /**
+     * Returns a cleared direct ByteBuffer with a capacity of at least the given size. The limit is set to the requested size.
+     */
+    public static ByteBuffer acquireDirect(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        ByteBuffer result;
+        if (sizeClass < 0) {
+            direct.misses.incrementAndGet();
+            result = ByteBuffer.allocateDirect(minSize);
+        } else {
+            result = direct.poll(sizeClass);
+            if (result == null) {
+                result = ByteBuffer.allocateDirect(classSize(sizeClass));
+            }
+        }
+        result.clear();
+        result.limit(minSize);
+        return result;
+    }
+
+    public static void releaseDirect(ByteBuffer buffer) {
+        if (buffer != null && buffer.isDirect()) {
+            direct.offer(buffer, buffer.capacity());
+        }
+    }
+
+    /**
+     * Drops all pooled buffers.
+     */
+    public static void clear() {
+        heap.clear();
+        direct.clear();
+    }
+
+    public static Statistics getHeapStatistics() {
+        return heap.getStatistics();
+    }
+
+    public static Statistics getDirectStatistics() {
+        return direct.getStatistics();
+    }
+
+    private static int sizeClass(int size) {
+        if (size > MAX_SIZE || Settings.BUFFER_POOL_MAX_SIZE <= 0) {
+            return -1;
+        }
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private static int classSize(int sizeClass) {
+        return 1 << (sizeClass + MIN_SHIFT);
+    }
+
+    /**
+     * Usage of one of the pools. Hits and misses count the requests that could or couldn't be served from the pool, discarded counts returned buffers that
+     * were dropped because the pool was full or they were not from the pool.
+     */
+    @Data
+    public static final class Statistics {
+        private final long hits;
+        private final long misses;
+        private final long released;
+        private final long discarded;
+        private final long pooledBuffers;
+        private final long pooledBytes;
+    }
+
+    private static final class Pool<T> {
+        @SuppressWarnings({ "rawtypes", "unchecked" }) private final ConcurrentLinkedDeque<T>[] free = new ConcurrentLinkedDeque[CLASSES];
+        private final AtomicLong pooledBytes = new AtomicLong();
+        private final AtomicLong pooledBuffers = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong released = new AtomicLong();
+        private final AtomicLong discarded = new AtomicLong();
+
+        private Pool() {
+            for (int i = 0; i < CLASSES; i++) {
+                free[i] = new ConcurrentLinkedDeque<>();
+            }
+        }
+
+        private T poll(int sizeClass) {
+            // LIFO, the most recently used buffer is the most likely one to still be in the CPU cache.
+            T result = free[sizeClass].pollFirst();
+            if (result == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            pooledBuffers.decrementAndGet();
+            pooledBytes.addAndGet(-classSize(sizeClass));
+            return result;
+        }
+
+        private void offer(T buffer, int length) {
+            released.incrementAndGet();
+            int sizeClass = sizeClass(length);
+            if (sizeClass < 0 || classSize(sizeClass) != length) {
+                discarded.incrementAndGet();
+                return;
+            }
+            if (pooledBytes.addAndGet(length) > Settings.BUFFER_POOL_MAX_SIZE) {
+                pooledBytes.addAndGet(-length);
+                discarded.incrementAndGet();
+                return;
+            }
+            pooledBuffers.incrementAndGet();
+            free[sizeClass].offerFirst(buffer);
+        }
+
+        private void clear() {
+            for (ConcurrentLinkedDeque<T> deque : free) {
+                T buffer;
+                while ((buffer = deque.pollFirst()) != null) {
+                    pooledBuffers.decrementAndGet();
+                    pooledBytes.addAndGet(-(buffer instanceof byte[] ? ((byte[]) buffer).length : ((ByteBuffer) buffer).capacity()));
+                }
+            }
+        }
+
+        private Statistics getStatistics() {
+            return new Statistics(hits.get(), misses.get(), released.get(), discarded.get(), pooledBuffers.get(), pooledBytes.get());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.extern.java.Log;
+
+/**
+ * Allows to stop a long running operation from another thread. Operations check the token regularly and throw an {@link OperationCancelledException}.
+ * Streams that are registered via {@link #closeOnCancel(Closeable)} are closed right away when the token is cancelled, this stops threads that are blocked
+ * in a read or feed a pipe.
+ * 
+ * One token can be shared by several operations, they are all cancelled at once.
+ */
+@Log
+public final class CancellationToken {
+    private volatile boolean cancelled = false;
+    private final List<Closeable> resources = new ArrayList<>();
+
+    public void cancel() {
+        List<Closeable> toClose;
+        synchronized (resources) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toClose = new ArrayList<>(resources);
+            resources.clear();
+        }
+        for (Closeable c : toClose) {
+            closeQuietly(c);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() throws OperationCancelledException {
+        if (cancelled) {
+            throw new OperationCancelledException("Operation was cancelled");
+        }
+    }
+
+    /**
+     * Closes the given resource when the token is cancelled, if the token is already cancelled it's closed immediately. The returned Closeable removes the
+     * registration again (it doesn't close the resource) and should be called when the operation is done.
+     */
+    public Closeable closeOnCancel(Closeable resource) {
+        synchronized (resources) {
+            if (!cancelled) {
+                resources.add(resource);
+                return () -> {
+                    synchronized (resources) {
+                        resources.remove(resource);
+                    }
+                };
+            }
+        }
+        closeQuietly(resource);
+        return () -> {
+        };
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException e) {
+            log.fine("Failed to close a resource of a cancelled operation: " + e.getMessage());
+        }
+    }
+}
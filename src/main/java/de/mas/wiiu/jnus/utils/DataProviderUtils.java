@@ -16,9 +16,11 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus.utils;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Optional;
@@ -26,6 +28,8 @@ import java.util.Optional;
 import de.mas.wiiu.jnus.Settings;
 import de.mas.wiiu.jnus.entities.content.Content;
 import de.mas.wiiu.jnus.interfaces.NUSDataProvider;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
 import lombok.NonNull;
 import lombok.extern.java.Log;
 
@@ -37,6 +41,8 @@ import lombok.extern.java.Log;
  *
  */
 public class DataProviderUtils {
+    /** Maximum size of a single transferTo call, the progress is updated after each of them. */
+    private static final long TRANSFER_CHUNK_SIZE = 0x800000;
 
     private DataProviderUtils() {
 
@@ -54,8 +60,16 @@ public class DataProviderUtils {
      */
     public static void saveEncryptedContentWithH3Hash(@NonNull NUSDataProvider dataProvider, @NonNull Content content, @NonNull String outputFolder)
             throws IOException {
+        saveEncryptedContentWithH3Hash(dataProvider, content, outputFolder, null);
+    }
+
+    /**
+     * Like {@link #saveEncryptedContentWithH3Hash(NUSDataProvider, Content, String)}, the saved bytes are added to the given tracker (may be {@code null}).
+     */
+    public static void saveEncryptedContentWithH3Hash(@NonNull NUSDataProvider dataProvider, @NonNull Content content, @NonNull String outputFolder,
+            ProgressTracker progress) throws IOException {
         saveContentH3Hash(dataProvider, content, outputFolder);
-        saveEncryptedContent(dataProvider, content, outputFolder);
+        saveEncryptedContent(dataProvider, content, outputFolder, progress);
     }
 
     /**
@@ -117,6 +131,16 @@ public class DataProviderUtils {
      * @throws IOException
      */
     public static void saveEncryptedContent(@NonNull NUSDataProvider dataProvider, @NonNull Content content, @NonNull String outputFolder) throws IOException {
+        saveEncryptedContent(dataProvider, content, outputFolder, null);
+    }
+
+    /**
+     * Like {@link #saveEncryptedContent(NUSDataProvider, Content, String)}, the saved bytes are added to the given tracker (may be {@code null}). If the
+     * tracker's operation is cancelled the download is stopped and the partial file is removed. If the data provider offers a channel to the content, the
+     * data is copied via {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} instead of streaming it.
+     */
+    public static void saveEncryptedContent(@NonNull NUSDataProvider dataProvider, @NonNull Content content, @NonNull String outputFolder,
+            ProgressTracker progress) throws IOException {
         int maxTries = 3;
         int i = 0;
         while (i < maxTries) {
@@ -124,6 +148,9 @@ public class DataProviderUtils {
             if (output.exists()) {
                 if (output.length() == content.getEncryptedFileSizeAligned()) {
                     log.fine(content.getFilename() + "Encrypted content alreadys exists, skipped");
+                    if (progress != null) {
+                        progress.add(content.getEncryptedFileSizeAligned());
+                    }
                     return;
                 } else {
                     log.info(content.getFilename() + " Encrypted content alreadys exists, but the length is not as expected. Saving it again. "
@@ -133,13 +160,45 @@ public class DataProviderUtils {
             }
 
             Utils.createDir(outputFolder);
+            Optional<FileChannel> channelOpt = dataProvider.openRawContentChannel(content);
+            if (channelOpt.isPresent()) {
+                log.fine("copying " + content.getFilename());
+                long size = content.getEncryptedFileSizeAligned();
+                FileChannel channel = channelOpt.get();
+                Closeable registration = progress != null ? progress.closeOnCancel(channel) : null;
+                try {
+                    FileUtils.FileAsChannelWrapper(output, size, out -> transferFully(channel, out, size, progress));
+                } catch (IOException e) {
+                    throw progress != null ? progress.translate(e) : e;
+                } finally {
+                    if (registration != null) {
+                        registration.close();
+                    }
+                    channel.close();
+                }
+                return;
+            }
+
             InputStream inputStream = dataProvider.readRawContentAsStream(content);
             if (inputStream == null) {
                 log.warning(content.getFilename() + " Couldn't save encrypted content. Input stream was null");
                 return;
             }
             log.fine("loading " + content.getFilename());
-            FileUtils.saveInputStreamToFile(output, inputStream, content.getEncryptedFileSizeAligned());
+            if (progress == null) {
+                FileUtils.saveInputStreamToFile(output, inputStream, content.getEncryptedFileSizeAligned());
+            } else {
+                long size = content.getEncryptedFileSizeAligned();
+                Closeable registration = progress.closeOnCancel(inputStream);
+                try {
+                    FileUtils.FileAsOutputStreamWrapper(output, size,
+                            out -> StreamUtils.saveInputStreamToOutputStream(inputStream, progress.wrap(out), size));
+                } catch (IOException e) {
+                    throw progress.translate(e);
+                } finally {
+                    registration.close();
+                }
+            }
 
             File outputNow = new File(outputFolder + File.separator + content.getFilename());
             if (outputNow.exists()) {
@@ -155,4 +214,24 @@ public class DataProviderUtils {
             }
         }
     }
+
+    /**
+     * Copies up to size bytes from the start of the input channel to the output channel. Stops early if the input is shorter.
+     */
+    private static void transferFully(FileChannel in, FileChannel out, long size, ProgressTracker progress) throws IOException {
+        long end = Math.min(size, in.size());
+        long position = 0;
+        while (position < end) {
+            long start = Metrics.start();
+            long transferred = in.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, end - position), out);
+            if (transferred <= 0) {
+                break;
+            }
+            Metrics.bytesRead(Source.LOCAL, transferred, start);
+            position += transferred;
+            if (progress != null) {
+                progress.add(transferred);
+            }
+        }
+    }
 }
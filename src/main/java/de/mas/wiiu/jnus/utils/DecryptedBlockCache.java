@@ -0,0 +1,113 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Counter;
+import lombok.Getter;
+
+/**
+ * Bounded LRU cache for decrypted and verified blocks. The size limit is given in bytes. Evicted buffers are kept in a small pool and reused for new
+ * blocks of the same size.
+ * 
+ * The cached buffers never leave the cache, data is always copied while holding the lock. That way a buffer can't be reused while someone is still reading
+ * it.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class DecryptedBlockCache {
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private final long maxSize;
+    private long size = 0;
+
+    private final LinkedHashMap<Long, byte[]> blocks = new LinkedHashMap<>(64, 0.75f, true);
+    private final Deque<byte[]> pool = new ArrayDeque<>();
+
+    @Getter private long hits = 0;
+    @Getter private long misses = 0;
+
+    /**
+     * @param maxSize
+     *            max number of cached bytes
+     */
+    public DecryptedBlockCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates the key for a block of a content.
+     */
+    public static long getKey(short contentIndex, long block) {
+        return ((contentIndex & 0xFFFFL) << 48) | (block & 0xFFFFFFFFFFFFL);
+    }
+
+    public synchronized void put(long key, byte[] data, int offset, int length) {
+        if (length > maxSize || blocks.containsKey(key)) {
+            return;
+        }
+        Iterator<Map.Entry<Long, byte[]>> it = blocks.entrySet().iterator();
+        while (size + length > maxSize && it.hasNext()) {
+            byte[] evicted = it.next().getValue();
+            it.remove();
+            size -= evicted.length;
+            if (pool.size() < MAX_POOLED_BUFFERS) {
+                pool.push(evicted);
+            }
+        }
+
+        byte[] buffer = pool.peek() != null && pool.peek().length == length ? pool.pop() : new byte[length];
+        System.arraycopy(data, offset, buffer, 0, length);
+        blocks.put(key, buffer);
+        size += length;
+    }
+
+    /**
+     * Copies a part of a cached block.
+     * 
+     * @return false if the block is not cached
+     */
+    public synchronized boolean copyTo(long key, int offsetInBlock, byte[] dest, int destOffset, int length) {
+        byte[] block = blocks.get(key);
+        if (block == null || offsetInBlock + length > block.length) {
+            misses++;
+            Metrics.count(Counter.BLOCK_CACHE_MISSES, 1);
+            return false;
+        }
+        hits++;
+        Metrics.count(Counter.BLOCK_CACHE_HITS, 1);
+        System.arraycopy(block, offsetInBlock, dest, destOffset, length);
+        return true;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        pool.clear();
+        size = 0;
+    }
+}
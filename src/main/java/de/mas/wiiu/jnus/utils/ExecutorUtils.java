@@ -0,0 +1,213 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.interfaces.CheckedFunction;
+import lombok.extern.java.Log;
+
+/**
+ * Executors and threads used for parallel extraction and decryption.
+ * 
+ * Work is submitted with {@link #runBounded(Collection, int, Executor, CheckedFunction)}, which only keeps a limited number of tasks in flight and starts the
+ * next one when a task finishes. Virtual threads are used when the JDK provides them and {@link Settings#USE_VIRTUAL_THREADS} is set.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class ExecutorUtils {
+    private static ExecutorService defaultExecutor;
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private static final Method START_VIRTUAL_THREAD = findMethod(Thread.class, "startVirtualThread", Runnable.class);
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+    private ExecutorUtils() {
+        // Utility class
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return START_VIRTUAL_THREAD != null && NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Returns the executor the services use if no other executor was set. It uses virtual threads if possible, otherwise a fixed number of daemon threads
+     * ({@link Settings#WORKER_THREADS}).
+     */
+    public static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = createExecutor();
+        }
+        return defaultExecutor;
+    }
+
+    public static synchronized void setDefaultExecutor(ExecutorService executor) {
+        defaultExecutor = executor;
+    }
+
+    private static ExecutorService createExecutor() {
+        if (Settings.USE_VIRTUAL_THREADS && isVirtualThreadSupported()) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warning("Failed to create a virtual thread executor: " + e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, Settings.WORKER_THREADS), r -> {
+            Thread t = new Thread(r, "JNUSLib-worker-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a thread that feeds a pipe. These threads block until the other side reads the data, so they must not be run on a bounded pool. A virtual thread
+     * is used if possible.
+     */
+    public static Thread startThread(Runnable runnable) {
+        if (Settings.USE_VIRTUAL_THREADS && START_VIRTUAL_THREAD != null) {
+            try {
+                return (Thread) START_VIRTUAL_THREAD.invoke(null, runnable);
+            } catch (ReflectiveOperationException e) {
+                log.warning("Failed to start a virtual thread: " + e.getMessage());
+            }
+        }
+        Thread t = new Thread(runnable);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Runs the task for each item on the given executor, with at most maxInFlight tasks running at the same time. The next task is only submitted after one
+     * finished, so the executor queue stays short and no thread blocks while waiting. After the first failure no new tasks are started, the returned future
+     * completes exceptionally with it once the tasks that are still running have finished.
+     */
+    public static <T> CompletableFuture<Void> runBounded(Collection<T> items, int maxInFlight, Executor executor, CheckedFunction<T> task) {
+        BoundedRunner<T> runner = new BoundedRunner<>(items.iterator(), executor, task);
+        runner.start(Math.max(1, maxInFlight));
+        return runner.result;
+    }
+
+    private static final class BoundedRunner<T> {
+        private final Iterator<T> items;
+        private final Executor executor;
+        private final CheckedFunction<T> task;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int running = 0;
+        private int requested = 0;
+        private boolean starting = false;
+        private Throwable error = null;
+
+        private BoundedRunner(Iterator<T> items, Executor executor, CheckedFunction<T> task) {
+            this.items = items;
+            this.executor = executor;
+            this.task = task;
+        }
+
+        /**
+         * Starts up to count new tasks. Finished tasks call this again, if another thread is already starting tasks it takes over the request. This keeps the
+         * stack flat if the executor runs the tasks in the calling thread.
+         */
+        private void start(int count) {
+            synchronized (this) {
+                requested += count;
+                if (starting) {
+                    return;
+                }
+                starting = true;
+            }
+            while (true) {
+                T item;
+                synchronized (this) {
+                    if (requested == 0) {
+                        starting = false;
+                        break;
+                    }
+                    requested--;
+                    if (error != null || !items.hasNext()) {
+                        continue;
+                    }
+                    item = items.next();
+                    running++;
+                }
+                submit(item);
+            }
+            completeIfDone();
+        }
+
+        private void submit(T item) {
+            CompletableFuture<Void> future;
+            try {
+                future = CompletableFuture.runAsync(() -> {
+                    try {
+                        task.apply(item);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+            } catch (RuntimeException e) {
+                finished(e);
+                return;
+            }
+            future.whenComplete((v, e) -> finished(e));
+        }
+
+        private void finished(Throwable e) {
+            synchronized (this) {
+                running--;
+                if (e != null && error == null) {
+                    error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                }
+            }
+            start(1);
+        }
+
+        private void completeIfDone() {
+            Throwable failure;
+            synchronized (this) {
+                if (running > 0 || (error == null && items.hasNext())) {
+                    return;
+                }
+                failure = error;
+            }
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(null);
+            }
+        }
+    }
+}
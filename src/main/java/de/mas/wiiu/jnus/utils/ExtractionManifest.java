@@ -0,0 +1,205 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.entities.TMD;
+import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * Manifest of an extraction. It stores the ID and the hash of each content of the TMD and which range of which content each extracted file comes from.
+ * 
+ * When a title is extracted again (e.g. after an update), a file is unchanged if the manifest of the previous extraction has the same range of a content with
+ * the same hash for it. Only the other files need to be decrypted again.
+ * 
+ * The manifest is a small text file:
+ * 
+ * <pre>
+ * JNUSLib extraction manifest 1
+ * title 0005000012341234
+ * content &lt;index&gt; &lt;ID&gt; &lt;hash&gt;
+ * file &lt;content index&gt; &lt;offset&gt; &lt;size&gt; &lt;full path&gt;
+ * </pre>
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class ExtractionManifest {
+    private static final String HEADER = "JNUSLib extraction manifest 1";
+
+    @Getter private final long titleID;
+    private final Map<Short, ContentInfo> contents = new TreeMap<>();
+    private final Map<String, FileInfo> files = new LinkedHashMap<>();
+
+    @Data
+    public static class ContentInfo {
+        private final short index;
+        private final int ID;
+        private final String hash;
+    }
+
+    @Data
+    public static class FileInfo {
+        private final String path;
+        private final short contentIndex;
+        private final long offset;
+        private final long size;
+    }
+
+    private ExtractionManifest(long titleID) {
+        this.titleID = titleID;
+    }
+
+    public static File getManifestFile(String outputFolder) {
+        return new File(outputFolder, Settings.EXTRACTION_MANIFEST_FILENAME);
+    }
+
+    public Map<Short, ContentInfo> getContents() {
+        return Collections.unmodifiableMap(contents);
+    }
+
+    public Map<String, FileInfo> getFiles() {
+        return Collections.unmodifiableMap(files);
+    }
+
+    /**
+     * Creates the manifest for the given files. Directories and files that are not in the package are ignored.
+     */
+    public static ExtractionManifest create(TMD tmd, Collection<FSTEntry> entries) {
+        ExtractionManifest result = new ExtractionManifest(tmd.getTitleID());
+        for (Content c : tmd.getAllContents().values()) {
+            result.contents.put(c.getIndex(), new ContentInfo(c.getIndex(), c.getID(), Utils.ByteArrayToString(c.getSHA2Hash())));
+        }
+        for (FSTEntry entry : entries) {
+            if (entry.isDir() || entry.isNotInPackage()) {
+                continue;
+            }
+            String path = entry.getFullPath();
+            result.files.put(path, new FileInfo(path, entry.getContentIndex(), entry.getFileOffset(), entry.getFileSize()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if this manifest (of an earlier extraction) has the file at the same range of a content with the same hash as in the given manifest.
+     */
+    public boolean isUnchanged(ExtractionManifest current, String path) {
+        FileInfo oldFile = files.get(path);
+        FileInfo newFile = current.files.get(path);
+        if (oldFile == null || newFile == null || oldFile.getOffset() != newFile.getOffset() || oldFile.getSize() != newFile.getSize()) {
+            return false;
+        }
+        ContentInfo oldContent = contents.get(oldFile.getContentIndex());
+        ContentInfo newContent = current.contents.get(newFile.getContentIndex());
+        return oldContent != null && newContent != null && oldContent.getHash().equals(newContent.getHash());
+    }
+
+    /**
+     * Returns the paths of the files of this manifest that are not part of the given manifest anymore.
+     */
+    public List<String> getRemovedFiles(ExtractionManifest current) {
+        List<String> result = new ArrayList<>();
+        for (String path : files.keySet()) {
+            if (!current.files.containsKey(path)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads a manifest. Returns an empty Optional if the file doesn't exist or can't be parsed.
+     */
+    public static Optional<ExtractionManifest> load(File file) {
+        if (!file.isFile()) {
+            return Optional.empty();
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) {
+                log.info("Ignoring unknown extraction manifest " + file.getAbsolutePath());
+                return Optional.empty();
+            }
+            String[] title = in.readLine().split(" ");
+            if (title.length != 2 || !title[0].equals("title")) {
+                throw new IOException("Missing title ID");
+            }
+            ExtractionManifest result = new ExtractionManifest(Long.parseUnsignedLong(title[1], 16));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("content ")) {
+                    String[] parts = line.split(" ");
+                    short index = (short) Integer.parseInt(parts[1], 16);
+                    result.contents.put(index, new ContentInfo(index, (int) Long.parseLong(parts[2], 16), parts[3]));
+                } else if (line.startsWith("file ")) {
+                    String[] parts = line.split(" ", 5);
+                    result.files.put(parts[4], new FileInfo(parts[4], (short) Integer.parseInt(parts[1], 16), Long.parseLong(parts[2], 16),
+                            Long.parseLong(parts[3], 16)));
+                } else if (!line.isEmpty()) {
+                    throw new IOException("Unknown line: " + line);
+                }
+            }
+            return Optional.of(result);
+        } catch (IOException | RuntimeException e) {
+            log.warning("Failed to read the extraction manifest " + file.getAbsolutePath() + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void save(File file) throws IOException {
+        File tmpFile = new File(file.getAbsolutePath() + ".part");
+        try (BufferedWriter out = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            out.write(String.format("title %016X", titleID));
+            out.newLine();
+            for (ContentInfo c : contents.values()) {
+                out.write(String.format("content %04X %08X %s", c.getIndex(), c.getID(), c.getHash()));
+                out.newLine();
+            }
+            for (FileInfo f : files.values()) {
+                out.write(String.format("file %04X %X %X %s", f.getContentIndex(), f.getOffset(), f.getSize(), f.getPath()));
+                out.newLine();
+            }
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import lombok.Data;
+
+/**
+ * Orders FST entries the way they are stored. Files are grouped by their content and sorted by their offset. Each group is then split into runs which can be
+ * decrypted with a single sequential read, every block of a content is only decrypted (and verified) once per run.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class ExtractionPlanner {
+    private ExtractionPlanner() {
+        // Utility class
+    }
+
+    @Data
+    public static class ContentRun {
+        private final short contentIndex;
+        /** Offset of the first byte of the run inside the decrypted content. */
+        private final long offset;
+        private long size;
+        /** The files of this run, ordered by their offset. They never overlap. */
+        private final List<FSTEntry> entries = new ArrayList<>();
+
+        public long getEnd() {
+            return offset + size;
+        }
+    }
+
+    /**
+     * Creates the runs for the given entries. Directories and files that are not in the package are ignored. A new run is started if the gap to the previous
+     * file is bigger than maxGap or if files overlap.
+     * 
+     * @param entries
+     *            files to extract
+     * @param maxGap
+     *            max number of bytes between two files in one run
+     * @return runs, ordered by content and offset
+     */
+    public static List<ContentRun> plan(List<FSTEntry> entries, long maxGap) {
+        Map<Short, List<FSTEntry>> byContent = new TreeMap<>();
+        for (FSTEntry entry : entries) {
+            if (entry.isDir() || entry.isNotInPackage()) {
+                continue;
+            }
+            byContent.computeIfAbsent(entry.getContentIndex(), k -> new ArrayList<>()).add(entry);
+        }
+
+        List<ContentRun> result = new ArrayList<>();
+        for (Map.Entry<Short, List<FSTEntry>> e : byContent.entrySet()) {
+            List<FSTEntry> files = e.getValue();
+            Collections.sort(files, Comparator.comparingLong(FSTEntry::getFileOffset).thenComparingLong(FSTEntry::getFileSize));
+
+            ContentRun cur = null;
+            for (FSTEntry file : files) {
+                if (cur == null || file.getFileOffset() < cur.getEnd() || file.getFileOffset() - cur.getEnd() > maxGap) {
+                    cur = new ContentRun(e.getKey(), file.getFileOffset());
+                    result.add(cur);
+                }
+                cur.getEntries().add(file);
+                cur.setSize(file.getFileOffset() + file.getFileSize() - cur.getOffset());
+            }
+        }
+        return result;
+    }
+}
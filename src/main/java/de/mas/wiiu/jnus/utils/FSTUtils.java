@@ -17,14 +17,16 @@
 package de.mas.wiiu.jnus.utils;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.io.FilenameUtils;
-
 import de.mas.wiiu.jnus.entities.content.ContentFSTInfo;
 import de.mas.wiiu.jnus.entities.fst.FST;
 import de.mas.wiiu.jnus.entities.fst.FSTEntry;
@@ -37,15 +39,8 @@ public class FSTUtils {
             fullPath = "/" + fullPath;
         }
 
-        String dirPath = FilenameUtils.getFullPathNoEndSeparator(fullPath);
-        Optional<FSTEntry> pathOpt = Optional.of(root);
-        if (!dirPath.equals("/")) {
-            pathOpt = getFileEntryDir(root, dirPath);
-        }
-
-        String path = fullPath;
-
-        return pathOpt.flatMap(e -> e.getChildren().stream().filter(c -> c.getFullPath().equals(path)).findAny());
+        // Entries inside directories that are not in the package are only returned when they are located directly in the given root.
+        return root.getEntryByFullPath(fullPath).filter(e -> !hasParentNotInPackage(root, e));
     }
 
     public static Optional<FSTEntry> getFileEntryDir(FSTEntry curEntry, String string) {
@@ -72,19 +67,18 @@ public class FSTUtils {
     }
 
     public static Optional<FSTEntry> getEntryByFullPath(FSTEntry root, String filePath) {
-        for (FSTEntry cur : root.getFileChildren()) {
-            if (cur.getFullPath().equals(filePath)) {
-                return Optional.of(cur);
-            }
-        }
+        return root.getEntryByFullPath(filePath).filter(e -> !e.isDir() && !hasParentNotInPackage(root, e));
+    }
 
-        for (FSTEntry cur : root.getDirChildren()) {
-            Optional<FSTEntry> res = getEntryByFullPath(cur, filePath);
-            if (res.isPresent()) {
-                return res;
+    private static boolean hasParentNotInPackage(FSTEntry root, FSTEntry entry) {
+        Optional<FSTEntry> cur = entry.getParent();
+        while (cur.isPresent() && cur.get() != root) {
+            if (cur.get().isNotInPackage()) {
+                return true;
             }
+            cur = cur.get().getParent();
         }
-        return Optional.empty();
+        return false;
     }
 
     public static Optional<FSTEntry> getChildOfDirectory(FSTEntry root, String filename) {
@@ -120,6 +114,134 @@ public class FSTUtils {
                 });
     }
 
+    /**
+     * Returns all files that match the given glob. The glob is matched against the full path, "/" separates the segments. Supported are "*" (any number of
+     * characters inside a segment), "?" (one character inside a segment) and "**" as a whole segment (any number of directories).
+     * 
+     * The glob is matched segment by segment against the filenames while walking the tree, so directories that can't match are skipped entirely and no full
+     * paths are created.
+     * 
+     * @param root
+     *            entry the glob is relative to
+     * @param glob
+     *            e.g. "/content/**&#47;*.szs" or "/code/*.rpx"
+     * @param allowNotInPackage
+     *            also return files that are not in the package
+     * @return
+     */
+    public static List<FSTEntry> getFSTEntriesByGlob(FSTEntry root, String glob, boolean allowNotInPackage) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : glob.replace(File.separator, "/").split("/")) {
+            if (segment.isEmpty() || (segment.equals("**") && !segments.isEmpty() && segments.get(segments.size() - 1).equals("**"))) {
+                continue;
+            }
+            segments.add(segment);
+        }
+        List<FSTEntry> result = new ArrayList<>();
+        if (!segments.isEmpty()) {
+            collectByGlob(root, segments, 0, allowNotInPackage, result);
+        }
+        if (segments.indexOf("**") >= 0 && segments.indexOf("**") < segments.size() - 1) {
+            // A "**" followed by more segments can reach the same entry via different directories, e.g. "/**/a/**/b" finds "/a/a/b" twice.
+            Set<FSTEntry> found = Collections.newSetFromMap(new IdentityHashMap<>());
+            result.removeIf(e -> !found.add(e));
+        }
+        return result;
+    }
+
+    private static void collectByGlob(FSTEntry dir, List<String> segments, int segmentIndex, boolean allowNotInPackage, List<FSTEntry> result) {
+        String segment = segments.get(segmentIndex);
+        boolean lastSegment = segmentIndex == segments.size() - 1;
+        if (segment.equals("**")) {
+            if (lastSegment) {
+                getAllFSTEntryChildrenAsStream(dir, allowNotInPackage).forEach(result::add);
+                return;
+            }
+            // The "**" matches no directory...
+            collectByGlob(dir, segments, segmentIndex + 1, allowNotInPackage, result);
+            // ...or at least one.
+            for (FSTEntry child : dir.getChildren()) {
+                if (child.isDir() && (allowNotInPackage || !child.isNotInPackage())) {
+                    collectByGlob(child, segments, segmentIndex, allowNotInPackage, result);
+                }
+            }
+            return;
+        }
+        for (FSTEntry child : dir.getChildren()) {
+            if ((!allowNotInPackage && child.isNotInPackage()) || child.isDir() == lastSegment || !globMatches(segment, child.getFilename())) {
+                continue;
+            }
+            if (lastSegment) {
+                result.add(child);
+            } else {
+                collectByGlob(child, segments, segmentIndex + 1, allowNotInPackage, result);
+            }
+        }
+    }
+
+    /**
+     * Matches a single segment of a glob against a filename. "*" matches any number of characters, "?" exactly one.
+     */
+    static boolean globMatches(String pattern, String name) {
+        int p = 0;
+        int n = 0;
+        int starP = -1;
+        int starN = 0;
+        while (n < name.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+                p++;
+                n++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starP = p++;
+                starN = n;
+            } else if (starP >= 0) {
+                // Let the last "*" consume one more character.
+                p = starP + 1;
+                n = ++starN;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * Returns all files whose full path starts with the given prefix, e.g. "/content/sound/" or "/meta/icon". Only the directory the prefix ends in is
+     * searched, everything else is skipped.
+     * 
+     * @param root
+     *            root of the FST
+     * @param prefix
+     *            prefix of the full path
+     * @param allowNotInPackage
+     *            also return files that are not in the package
+     * @return
+     */
+    public static List<FSTEntry> getFSTEntriesByPathPrefix(FSTEntry root, String prefix, boolean allowNotInPackage) {
+        String path = prefix.replace(File.separator, "/");
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        int lastSeparator = path.lastIndexOf('/');
+        String dirPath = path.substring(0, lastSeparator);
+        String filenamePrefix = path.substring(lastSeparator + 1);
+
+        Optional<FSTEntry> dirOpt = dirPath.isEmpty() ? Optional.of(root) : root.getEntryByFullPath(dirPath);
+        if (!dirOpt.isPresent() || !dirOpt.get().isDir() || (!allowNotInPackage && hasParentNotInPackage(root, dirOpt.get()))
+                || (!allowNotInPackage && dirOpt.get() != root && dirOpt.get().isNotInPackage())) {
+            return new ArrayList<>();
+        }
+
+        return dirOpt.get().getChildren().stream() //
+                .filter(e -> allowNotInPackage || !e.isNotInPackage()) //
+                .filter(e -> e.getFilename().startsWith(filenamePrefix)) //
+                .flatMap(e -> e.isDir() ? getAllFSTEntryChildrenAsStream(e, allowNotInPackage) : Stream.of(e)) //
+                .collect(Collectors.toList());
+    }
+
     public static Optional<ContentFSTInfo> getFSTInfoForContent(FST fst, short contentIndex) {
         return fst.getContentFSTInfos().entrySet().stream().filter(e -> e.getKey().shortValue() == contentIndex).map(e -> e.getValue()).findAny();
     }
@@ -0,0 +1,111 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * InputStream for a region of a FileChannel. Uses positional reads only, so any number of streams can share the same channel without synchronisation. Closing
+ * the stream doesn't close the channel.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public class FileChannelInputStream extends InputStream {
+    private static final int MAX_READ_SIZE = 0x100000;
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+    private long mark;
+
+    /**
+     * @param channel
+     *            channel to read from
+     * @param position
+     *            absolute position of the first byte
+     * @param size
+     *            size of the region
+     */
+    public FileChannelInputStream(FileChannel channel, long position, long size) {
+        this.channel = channel;
+        this.position = position;
+        this.mark = position;
+        this.end = position + size;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buf = new byte[1];
+        int res = read(buf, 0, 1);
+        return res <= 0 ? -1 : buf[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        // Reading into a heap buffer makes the JDK copy it through a temporary direct buffer of its own, a pooled one is reused by all threads.
+        ByteBuffer buffer = BufferPool.acquireDirect((int) Math.min(Math.min(len, remaining), MAX_READ_SIZE));
+        try {
+            int res = channel.read(buffer, position);
+            if (res > 0) {
+                buffer.flip();
+                buffer.get(b, off, res);
+                position += res;
+            }
+            return res;
+        } finally {
+            BufferPool.releaseDirect(buffer);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        position = mark;
+    }
+}
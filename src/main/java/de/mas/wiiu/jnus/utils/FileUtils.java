@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 import de.mas.wiiu.jnus.interfaces.CheckedFunction;
 import lombok.NonNull;
@@ -75,29 +76,79 @@ public final class FileUtils {
      * @throws IOException
      */
     public static void FileAsOutputStreamWrapper(@NonNull File outputFile, long filesize, CheckedFunction<OutputStream> action) throws IOException {
+        FileAsPartFileWrapper(outputFile, filesize, action);
+        commitPartFile(outputFile);
+    }
+
+    /**
+     * Like {@link #FileAsOutputStreamWrapper(File, long, CheckedFunction)}, but provides the FileChannel of the target file. The channel is positioned at the
+     * start of the file.
+     * 
+     * @param outputFile
+     * @param filesize
+     * @param action
+     * @throws IOException
+     */
+    public static void FileAsChannelWrapper(@NonNull File outputFile, long filesize, CheckedFunction<FileChannel> action) throws IOException {
+        FileAsRandomAccessFileWrapper(outputFile, filesize, file -> action.apply(file.getChannel()));
+        commitPartFile(outputFile);
+    }
+
+    /**
+     * Like {@link #FileAsOutputStreamWrapper(File, long, CheckedFunction)}, but the data stays in the temp file ({@link #getPartFile(File)}) until
+     * {@link #commitPartFile(File)} is called. This allows to verify data before it's visible under the target name.
+     * 
+     * @param outputFile
+     * @param filesize
+     * @param action
+     * @throws IOException
+     */
+    public static void FileAsPartFileWrapper(@NonNull File outputFile, long filesize, CheckedFunction<OutputStream> action) throws IOException {
+        FileAsRandomAccessFileWrapper(outputFile, filesize, file -> action.apply(new RandomFileOutputStream(file)));
+    }
+
+    /**
+     * Returns the temp file the data of the given target file is written to before it's renamed.
+     */
+    public static File getPartFile(@NonNull File outputFile) {
+        return new File(outputFile.getAbsolutePath() + "." + outputFile.getAbsolutePath().hashCode() + ".part");
+    }
+
+    /**
+     * Replaces the target file with its temp file.
+     */
+    public static void commitPartFile(@NonNull File outputFile) throws IOException {
+        if (outputFile.exists()) {
+            outputFile.delete();
+        }
+        if (!getPartFile(outputFile).renameTo(outputFile)) {
+            throw new IOException("Failed to rename " + getPartFile(outputFile) + " to " + outputFile);
+        }
+    }
+
+    private static void FileAsRandomAccessFileWrapper(File outputFile, long filesize, CheckedFunction<RandomAccessFile> action) throws IOException {
         // Create a new temp file which already has the target filesize allocated.
-        String tempFilePath = outputFile.getAbsolutePath() + "." + outputFile.getAbsolutePath().hashCode() + ".part";
-        File tempFile = new File(tempFilePath);
+        File tempFile = getPartFile(outputFile);
         if (tempFile.exists()) {
             tempFile.delete();
         }
 
         tempFile.createNewFile();
-        RandomAccessFile outStream = new RandomAccessFile(tempFilePath, "rw");
+        boolean success = false;
+        RandomAccessFile outStream = new RandomAccessFile(tempFile, "rw");
         try {
             outStream.setLength(filesize);
             outStream.seek(0L);
 
-            action.apply(new RandomFileOutputStream(outStream));
+            action.apply(outStream);
+            success = true;
         } finally {
             outStream.close();
+            // Don't leave the .part file behind if the operation failed or was cancelled.
+            if (!success) {
+                tempFile.delete();
+            }
         }
-
-        // Rename temp file.
-        if (outputFile.exists()) {
-            outputFile.delete();
-        }
-        tempFile.renameTo(outputFile);
     }
 
     public static File getFileIgnoringFilenameCases(String folder, String filename) {
@@ -26,11 +26,28 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Counter;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Stage;
 import lombok.extern.java.Log;
 
 @Log
 public final class HashUtil {
+    /** Size of a block of a hashed content, 0x400 bytes of hashes followed by 0xFC00 bytes of data. */
+    public static final int HASHED_BLOCK_SIZE = 0x10000;
+    public static final int HASHED_BLOCK_HASHES_SIZE = 0x400;
+
+    private static final ThreadLocal<MessageDigest> SHA1_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private HashUtil() {
         // Utility class
     }
@@ -74,6 +91,12 @@ public final class HashUtil {
         return sha1.digest(data);
     }
 
+    public static byte[] hashSHA1(byte[] data, int offset, int length) throws NoSuchAlgorithmException {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA1");
+        sha1.update(data, offset, length);
+        return sha1.digest();
+    }
+
     public static byte[] hashSHA1(InputStream in, long length) throws NoSuchAlgorithmException, IOException {
         return hashSHA1(in, length, 0);
     }
@@ -99,11 +122,11 @@ public final class HashUtil {
         long target_size = alignment == 0 ? inputSize1 : Utils.align(inputSize1, alignment);
         long cur_position = 0;
         int inBlockBufferRead = 0;
-        byte[] blockBuffer = new byte[bufferSize];
-        ByteArrayBuffer overflow = new ByteArrayBuffer(bufferSize);
+        byte[] blockBuffer = BufferPool.acquire(bufferSize);
+        BlockReader reader = new BlockReader(in);
         try {
             do {
-                inBlockBufferRead = StreamUtils.getChunkFromStream(in, blockBuffer, overflow, bufferSize);
+                inBlockBufferRead = reader.read(blockBuffer, 0, bufferSize);
 
                 if (inBlockBufferRead <= 0) break;
 
@@ -118,6 +141,7 @@ public final class HashUtil {
             }
         } finally {
             in.close();
+            BufferPool.release(blockBuffer);
         }
 
         return digest.digest();
@@ -208,40 +232,75 @@ public final class HashUtil {
     }
 
     public static void checkFileChunkHashes(byte[] hashes, byte[] h3Hashes, byte[] output, int block) throws CheckSumWrongException, NoSuchAlgorithmException {
-        int H0_start = (block % 16) * 20;
-        int H1_start = (16 + (block / 16) % 16) * 20;
-        int H2_start = (32 + (block / 256) % 16) * 20;
-        int H3_start = ((block / 4096) % 16) * 20;
-
-        byte[] real_h0_hash = HashUtil.hashSHA1(output);
-        byte[] expected_h0_hash = Arrays.copyOfRange(hashes, H0_start, H0_start + 20);
+        long start = Metrics.start();
+        Metrics.count(Counter.HASH_VERIFICATIONS, 1);
+        try {
+            verifyFileChunkHashes(hashes, 0, HashUtil.hashSHA1(output), h3Hashes, block);
+        } catch (CheckSumWrongException e) {
+            Metrics.count(Counter.HASH_FAILURES, 1);
+            throw e;
+        } finally {
+            Metrics.time(Stage.HASH, start);
+        }
+    }
 
-        if (!Arrays.equals(real_h0_hash, expected_h0_hash)) {
-            throw new CheckSumWrongException("h0 checksumfail", real_h0_hash, expected_h0_hash);
-        } else {
-            log.finest("h0 checksum right!");
+    /**
+     * Verifies consecutive decrypted blocks of a hashed content at once. The H0 hashes of the data of all blocks are calculated first, in parallel if
+     * {@link Settings#PARALLEL_HASH_VERIFICATION} is set. Then each block is checked like in {@link #checkFileChunkHashes(byte[], byte[], byte[], int)}, the
+     * H1 (and H2/H3) hashes once per group. Passing the 16 blocks of a H1 group verifies the complete group in one call.
+     * 
+     * @param data
+     *            the blocks, {@link #HASHED_BLOCK_SIZE} bytes each
+     * @param offset
+     *            offset of the first block in data
+     * @param blockCount
+     *            number of blocks
+     * @param h3Hashes
+     *            the H3 hashes of the content, may be null
+     * @param firstBlock
+     *            index of the first block in the content
+     */
+    public static void checkHashedBlocks(byte[] data, int offset, int blockCount, byte[] h3Hashes, int firstBlock)
+            throws CheckSumWrongException, NoSuchAlgorithmException {
+        long start = Metrics.start();
+        Metrics.count(Counter.HASH_VERIFICATIONS, blockCount);
+        try {
+            byte[][] h0Hashes = new byte[blockCount][];
+            IntStream blocks = IntStream.range(0, blockCount);
+            if (Settings.PARALLEL_HASH_VERIFICATION && blockCount > 1) {
+                blocks = blocks.parallel();
+            }
+            blocks.forEach(i -> {
+                MessageDigest sha1 = SHA1_DIGEST.get();
+                sha1.update(data, offset + i * HASHED_BLOCK_SIZE + HASHED_BLOCK_HASHES_SIZE, HASHED_BLOCK_SIZE - HASHED_BLOCK_HASHES_SIZE);
+                h0Hashes[i] = sha1.digest();
+            });
+            for (int i = 0; i < blockCount; i++) {
+                verifyFileChunkHashes(data, offset + i * HASHED_BLOCK_SIZE, h0Hashes[i], h3Hashes, firstBlock + i);
+            }
+        } catch (CheckSumWrongException e) {
+            Metrics.count(Counter.HASH_FAILURES, 1);
+            throw e;
+        } finally {
+            Metrics.time(Stage.HASH, start);
         }
+    }
 
-        if ((block % 16) == 0) {
-            byte[] expected_h1_hash = Arrays.copyOfRange(hashes, H1_start, H1_start + 20);
-            byte[] real_h1_hash = HashUtil.hashSHA1(Arrays.copyOfRange(hashes, H0_start, H0_start + (16 * 20)));
+    private static void verifyFileChunkHashes(byte[] hashes, int hashesOffset, byte[] real_h0_hash, byte[] h3Hashes, int block)
+            throws CheckSumWrongException, NoSuchAlgorithmException {
+        int H0_start = hashesOffset + (block % 16) * 20;
+        int H1_start = hashesOffset + (16 + (block / 16) % 16) * 20;
+        int H2_start = hashesOffset + (32 + (block / 256) % 16) * 20;
+        int H3_start = ((block / 4096) % 16) * 20;
 
-            if (!Arrays.equals(expected_h1_hash, real_h1_hash)) {
-                throw new CheckSumWrongException("h1 checksumfail", real_h1_hash, expected_h1_hash);
-            } else {
-                log.finest("h1 checksum right!");
-            }
+        checkHash("h0", real_h0_hash, hashes, H0_start);
+
+        if ((block % 16) == 0) {
+            checkHash("h1", HashUtil.hashSHA1(hashes, H0_start, 16 * 20), hashes, H1_start);
         }
 
         if ((block % 256) == 0) {
-            byte[] expected_h2_hash = Arrays.copyOfRange(hashes, H2_start, H2_start + 20);
-            byte[] real_h2_hash = HashUtil.hashSHA1(Arrays.copyOfRange(hashes, H1_start, H1_start + (16 * 20)));
-
-            if (!Arrays.equals(expected_h2_hash, real_h2_hash)) {
-                throw new CheckSumWrongException("h2 checksumfail", real_h2_hash, expected_h2_hash);
-            } else {
-                log.finest("h2 checksum right!");
-            }
+            checkHash("h2", HashUtil.hashSHA1(hashes, H1_start, 16 * 20), hashes, H2_start);
         }
 
         if (h3Hashes == null) {
@@ -249,15 +308,16 @@ public final class HashUtil {
             return;
         }
         if ((block % 4096) == 0) {
-            byte[] expected_h3_hash = Arrays.copyOfRange(h3Hashes, H3_start, H3_start + 20);
-            byte[] real_h3_hash = HashUtil.hashSHA1(Arrays.copyOfRange(hashes, H2_start, H2_start + (16 * 20)));
+            checkHash("h3", HashUtil.hashSHA1(hashes, H2_start, 16 * 20), h3Hashes, H3_start);
+        }
+    }
 
-            if (!Arrays.equals(expected_h3_hash, real_h3_hash)) {
-                throw new CheckSumWrongException("h3 checksumfail", real_h3_hash, expected_h3_hash);
-            } else {
-                log.finest("h3 checksum right!");
+    private static void checkHash(String name, byte[] real, byte[] expected, int expectedOffset) throws CheckSumWrongException {
+        for (int i = 0; i < real.length; i++) {
+            if (real[i] != expected[expectedOffset + i]) {
+                throw new CheckSumWrongException(name + " checksumfail", real, Arrays.copyOfRange(expected, expectedOffset, expectedOffset + real.length));
             }
         }
-
+        log.finest(name + " checksum right!");
     }
 }
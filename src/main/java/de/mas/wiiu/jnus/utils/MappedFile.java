@@ -0,0 +1,140 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.mas.wiiu.jnus.Settings;
+import lombok.Getter;
+
+/**
+ * A read-only file that is kept open and read via memory-mapped regions of {@link Settings#MAPPED_REGION_SIZE} bytes. The regions are mapped on first use.
+ * All reads are positional, so any number of threads can read at the same time. The mappings are released by the garbage collector after the file was closed.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public class MappedFile implements Closeable {
+    @Getter private final File file;
+    @Getter private final long size;
+    private final int regionSize;
+    private final FileChannel channel;
+    private final AtomicReferenceArray<MappedByteBuffer> regions;
+
+    public MappedFile(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regionSize = Settings.MAPPED_REGION_SIZE;
+        this.regions = new AtomicReferenceArray<>((int) ((size + regionSize - 1) / regionSize));
+    }
+
+    private ByteBuffer getRegion(int index) throws IOException {
+        // The array publishes the mapped regions safely to other threads, the lock only makes sure every region is mapped once.
+        MappedByteBuffer region = regions.get(index);
+        if (region == null) {
+            synchronized (regions) {
+                region = regions.get(index);
+                if (region == null) {
+                    long start = (long) index * regionSize;
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+                    regions.set(index, region);
+                }
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Reads up to len bytes starting at the given position of the file. Returns the number of bytes read, -1 if the position is at or after the end of the
+     * file.
+     */
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        len = (int) Math.min(len, size - position);
+        int done = 0;
+        while (done < len) {
+            long cur = position + done;
+            // Every read works on its own view of the shared region.
+            ByteBuffer view = getRegion((int) (cur / regionSize)).duplicate();
+            view.position((int) (cur % regionSize));
+            int length = Math.min(len - done, view.remaining());
+            view.get(b, off + done, length);
+            done += length;
+        }
+        return done;
+    }
+
+    /**
+     * Returns an InputStream for the given region of the file. Closing the stream doesn't close the file.
+     */
+    public InputStream getInputStream(long position, long length) {
+        long end = Math.min(size, position + length);
+        return new InputStream() {
+            private long pos = position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] buf = new byte[1];
+                int res = read(buf, 0, 1);
+                return res <= 0 ? -1 : buf[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (pos >= end) {
+                    return -1;
+                }
+                int res = MappedFile.this.read(pos, b, off, (int) Math.min(len, end - pos));
+                if (res > 0) {
+                    pos += res;
+                }
+                return res;
+            }
+
+            @Override
+            public long skip(long n) {
+                long skipped = Math.max(0, Math.min(n, end - pos));
+                pos += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(Integer.MAX_VALUE, end - pos);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
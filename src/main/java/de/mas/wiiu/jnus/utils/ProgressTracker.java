@@ -0,0 +1,138 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.interfaces.ProgressListener;
+import lombok.Getter;
+
+/**
+ * Counts the processed bytes of an operation, forwards them throttled to a {@link ProgressListener} and checks the {@link CancellationToken} on each update.
+ * Listener and token are optional. The tracker can be used by multiple threads.
+ */
+public final class ProgressTracker {
+    @Getter private final String operation;
+    @Getter private final long total;
+    private final ProgressListener listener;
+    @Getter private final CancellationToken token;
+
+    private final AtomicLong done = new AtomicLong();
+    private final long startTime = System.nanoTime();
+    private final AtomicLong nextReport = new AtomicLong();
+    private final Object reportLock = new Object();
+
+    public ProgressTracker(String operation, long total, ProgressListener listener, CancellationToken token) {
+        this.operation = operation;
+        this.total = total;
+        this.listener = listener;
+        this.token = token;
+    }
+
+    public long getDone() {
+        return done.get();
+    }
+
+    public void throwIfCancelled() throws OperationCancelledException {
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+
+    public boolean isCancelled() {
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * Adds the given number of bytes to the progress. Throws an OperationCancelledException if the operation was cancelled.
+     */
+    public void add(long bytes) throws OperationCancelledException {
+        throwIfCancelled();
+        long cur = done.addAndGet(bytes);
+        if (listener == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextReport.get();
+        if (now - next >= 0 && nextReport.compareAndSet(next, now + Settings.PROGRESS_INTERVAL_MS * 1000000L)) {
+            report(cur, now);
+        }
+    }
+
+    /**
+     * Reports the final state to the listener.
+     */
+    public void finish() {
+        if (listener != null) {
+            report(done.get(), System.nanoTime());
+        }
+    }
+
+    private void report(long cur, long now) {
+        double seconds = (now - startTime) / 1e9;
+        synchronized (reportLock) {
+            listener.onProgress(operation, cur, total, seconds > 0 ? cur / seconds : 0);
+        }
+    }
+
+    /**
+     * Registers the resource at the token, see {@link CancellationToken#closeOnCancel(Closeable)}.
+     */
+    public Closeable closeOnCancel(Closeable resource) {
+        if (token == null) {
+            return () -> {
+            };
+        }
+        return token.closeOnCancel(resource);
+    }
+
+    /**
+     * Turns an IOException that was caused by a cancellation (e.g. a closed pipe) into an OperationCancelledException.
+     */
+    public IOException translate(IOException e) {
+        if (isCancelled() && !(e instanceof OperationCancelledException)) {
+            OperationCancelledException res = new OperationCancelledException(operation + " was cancelled");
+            res.initCause(e);
+            return res;
+        }
+        return e;
+    }
+
+    /**
+     * Returns an OutputStream that adds all bytes written into it to the progress.
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                add(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                add(len);
+            }
+        };
+    }
+}
@@ -45,21 +45,11 @@ public final class StreamUtils {
         try {
             synchronized (in) {
                 byte[] result = new byte[size];
-                byte[] buffer = null;
-                if (size < 0x8000) {
-                    buffer = new byte[size];
-                } else {
-                    buffer = new byte[0x8000];
-                }
                 int toRead = size;
-                int curReadChunk = buffer.length;
                 do {
-                    if (toRead < curReadChunk) {
-                        curReadChunk = toRead;
-                    }
-                    int read = in.read(buffer, 0, curReadChunk);
+                    // Read directly into the result, there is no need for another buffer.
+                    int read = in.read(result, size - toRead, Math.min(toRead, 0x8000));
                     if (read < 0) break;
-                    System.arraycopy(buffer, 0, result, size - toRead, read);
                     toRead -= read;
                 } while (toRead > 0);
                 return result;
@@ -69,62 +59,27 @@ public final class StreamUtils {
         }
     }
 
+    /**
+     * Reads BLOCKSIZE bytes into the output, less only at the end of the stream.
+     * 
+     * @deprecated Use a {@link BlockReader}, it doesn't need the overflow buffer. Data that is still in the overflow buffer is returned first.
+     */
+    @Deprecated
     public static int getChunkFromStream(InputStream inputStream, byte[] output, ByteArrayBuffer overflowbuffer, int BLOCKSIZE) throws IOException {
-        synchronized (inputStream) {
-            int bytesRead = -1;
-            int inBlockBuffer = 0;
+        int inBlockBuffer = 0;
+        if (overflowbuffer != null && overflowbuffer.getLengthOfDataInBuffer() > 0) {
+            int fromOverflow = Math.min(overflowbuffer.getLengthOfDataInBuffer(), BLOCKSIZE);
             byte[] overflowbuf = overflowbuffer.getBuffer();
-            do {
-                try {
-                    bytesRead = inputStream.read(overflowbuf, overflowbuffer.getLengthOfDataInBuffer(), overflowbuffer.getSpaceLeft());
-                } catch (IOException e) {
-                    log.info(e.getMessage());
-                    if (!e.getMessage().equals("Write end dead")) {
-                        throw e;
-                    }
-                    bytesRead = -1;
-                }
-
-                if (bytesRead <= 0) {
-                    if (overflowbuffer.getLengthOfDataInBuffer() > 0) {
-                        System.arraycopy(overflowbuf, 0, output, 0, overflowbuffer.getLengthOfDataInBuffer());
-                        inBlockBuffer = overflowbuffer.getLengthOfDataInBuffer();
-                    } else {
-                        if (inBlockBuffer == 0) {
-                            return bytesRead;
-                        }
-                    }
-                    break;
-                }
-
-                overflowbuffer.addLengthOfDataInBuffer(bytesRead);
-
-                if (inBlockBuffer + overflowbuffer.getLengthOfDataInBuffer() > BLOCKSIZE) {
-                    int tooMuch = (inBlockBuffer + bytesRead) - BLOCKSIZE;
-                    int toRead = BLOCKSIZE - inBlockBuffer;
-
-                    System.arraycopy(overflowbuf, 0, output, inBlockBuffer, toRead);
-                    inBlockBuffer += toRead;
-
-                    if (tooMuch > 0) {
-                        System.arraycopy(overflowbuf, toRead, overflowbuf, 0, tooMuch);
-                        overflowbuffer.setLengthOfDataInBuffer(tooMuch);
-                    } else {
-                        // Moving into front.
-                        int missingLength = overflowbuffer.getLengthOfDataInBuffer() - toRead;
-                        if (missingLength > 0) {
-                            System.arraycopy(overflowbuf, toRead, overflowbuf, 0, missingLength);
-                            overflowbuffer.setLengthOfDataInBuffer(missingLength);
-                        }
-                    }
-                } else {
-                    System.arraycopy(overflowbuf, 0, output, inBlockBuffer, overflowbuffer.getLengthOfDataInBuffer());
-                    inBlockBuffer += overflowbuffer.getLengthOfDataInBuffer();
-                    overflowbuffer.resetLengthOfDataInBuffer();
-                }
-            } while (inBlockBuffer != BLOCKSIZE);
-            return inBlockBuffer;
+            System.arraycopy(overflowbuf, 0, output, 0, fromOverflow);
+            System.arraycopy(overflowbuf, fromOverflow, overflowbuf, 0, overflowbuffer.getLengthOfDataInBuffer() - fromOverflow);
+            overflowbuffer.setLengthOfDataInBuffer(overflowbuffer.getLengthOfDataInBuffer() - fromOverflow);
+            inBlockBuffer = fromOverflow;
+        }
+        int read = BlockReader.readFully(inputStream, output, inBlockBuffer, BLOCKSIZE - inBlockBuffer);
+        if (read < 0) {
+            return inBlockBuffer > 0 ? inBlockBuffer : -1;
         }
+        return inBlockBuffer + read;
     }
 
     public static long saveInputStreamToOutputStream(InputStream inputStream, OutputStream outputStream, long filesize) throws IOException {
@@ -152,13 +107,13 @@ public final class StreamUtils {
             }
 
             int BUFFER_SIZE = 0x8000;
-            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] buffer = BufferPool.acquire(BUFFER_SIZE);
             int read = 0;
             long totalRead = 0;
 
             try {
                 do {
-                    read = inputStream.read(buffer);
+                    read = inputStream.read(buffer, 0, BUFFER_SIZE);
                     if (read < 0) {
                         break;
                     }
@@ -191,6 +146,7 @@ public final class StreamUtils {
 
             } finally {
                 StreamUtils.closeAll(inputStream, outputStream);
+                BufferPool.release(buffer);
             }
         }
         return written > 0 ? written : -1;
@@ -211,6 +167,36 @@ public final class StreamUtils {
         }
     }
 
+    /**
+     * Copies exactly size bytes from the InputStream to the OutputStream. Unlike {@link #saveInputStreamToOutputStream(InputStream, OutputStream, long)}
+     * nothing is read beyond that and none of the streams are closed, so the InputStream can be used for the following data.
+     */
+    public static void copyExactly(InputStream in, OutputStream out, long size, byte[] buffer) throws IOException {
+        long missing = size;
+        while (missing > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, missing));
+            if (read < 0) {
+                throw new EOFException("Stream ended " + missing + " bytes too early");
+            }
+            out.write(buffer, 0, read);
+            missing -= read;
+        }
+    }
+
+    /**
+     * Reads exactly len bytes into the given array. Like {@link #copyExactly(InputStream, OutputStream, long, byte[])} the stream is not closed.
+     */
+    public static void readExactly(InputStream in, byte[] dest, int off, int len) throws IOException {
+        int done = 0;
+        while (done < len) {
+            int read = in.read(dest, off + done, len - done);
+            if (read < 0) {
+                throw new EOFException("Stream ended " + (len - done) + " bytes too early");
+            }
+            done += read;
+        }
+    }
+
     public static void closeAll(Closeable... stream) throws IOException {
         IOException exception = null;
         for (Closeable cur : stream) {
@@ -0,0 +1,210 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.entities.TMD;
+import de.mas.wiiu.jnus.entities.Ticket;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * On-disk cache of the metadata that is needed to open a title: the decrypted FST (which includes the content offsets) and the H3 hashes of the contents.
+ * 
+ * An entry is only used if the title ID, the hash of the TMD, the hash of the title key and the fingerprint of the source (see
+ * {@link de.mas.wiiu.jnus.interfaces.NUSDataProvider#getSourceFingerprint()}) still match. The FST is stored uncompressed, so loading it is just a memory map
+ * of the file and a hash check.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class TitleMetadataCache {
+    private static final int MAGIC = 0x4A4E4D43; // "JNMC"
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 0x14;
+
+    @Getter private final ByteBuffer FSTData;
+    @Getter private final Map<Short, byte[]> h3Hashes;
+
+    private TitleMetadataCache(ByteBuffer fstData, Map<Short, byte[]> h3Hashes) {
+        this.FSTData = fstData;
+        this.h3Hashes = Collections.unmodifiableMap(h3Hashes);
+    }
+
+    /**
+     * Returns the cache file for the given title. The name contains a short hash of the TMD and of the source fingerprint, so different versions or sources of
+     * the same title don't overwrite each other's cache.
+     */
+    public static File getCacheFile(File cacheFolder, TMD tmd, byte[] rawTMD, String sourceFingerprint) throws NoSuchAlgorithmException {
+        String tmdHash = Utils.ByteArrayToString(Arrays.copyOf(HashUtil.hashSHA1(rawTMD), 4));
+        String sourceHash = Utils.ByteArrayToString(Arrays.copyOf(HashUtil.hashSHA1(sourceFingerprint.getBytes(StandardCharsets.UTF_8)), 4));
+        return new File(cacheFolder, String.format("%016X_%s_%s%s", tmd.getTitleID(), tmdHash, sourceHash, Settings.METADATA_CACHE_EXTENTION));
+    }
+
+    /**
+     * Returns a fingerprint for a local file, it changes when the file is replaced or modified.
+     */
+    public static String getFileFingerprint(File file) {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * Loads the cached metadata of the given title. Returns an empty Optional if there is no cache file or it doesn't match the given title anymore.
+     */
+    public static Optional<TitleMetadataCache> load(File cacheFolder, TMD tmd, byte[] rawTMD, Optional<Ticket> ticket, String sourceFingerprint) {
+        File cacheFile;
+        try {
+            cacheFile = getCacheFile(cacheFolder, tmd, rawTMD, sourceFingerprint);
+        } catch (NoSuchAlgorithmException e) {
+            log.warning("Failed to load metadata cache: " + e.getMessage());
+            return Optional.empty();
+        }
+        if (!cacheFile.isFile()) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != tmd.getTitleID()
+                    || !Arrays.equals(getBytes(buffer, HASH_LENGTH), HashUtil.hashSHA1(rawTMD))
+                    || !Arrays.equals(getBytes(buffer, HASH_LENGTH), getKeyHash(ticket))
+                    || !Arrays.equals(getBytes(buffer, buffer.getInt()), sourceFingerprint.getBytes(StandardCharsets.UTF_8))) {
+                log.info("Ignoring outdated metadata cache " + cacheFile);
+                return Optional.empty();
+            }
+
+            int h3Count = buffer.getInt();
+            Map<Short, byte[]> h3Hashes = new HashMap<>();
+            for (int i = 0; i < h3Count; i++) {
+                short index = buffer.getShort();
+                h3Hashes.put(index, getBytes(buffer, buffer.getInt()));
+            }
+
+            byte[] fstHash = getBytes(buffer, HASH_LENGTH);
+            int fstLength = buffer.getInt();
+            ByteBuffer fstData = buffer.slice();
+            fstData.limit(fstLength);
+
+            MessageDigest sha1 = MessageDigest.getInstance("SHA1");
+            sha1.update(fstData.duplicate());
+            if (!Arrays.equals(sha1.digest(), fstHash)) {
+                log.warning("Metadata cache " + cacheFile + " is corrupted.");
+                return Optional.empty();
+            }
+            return Optional.of(new TitleMetadataCache(fstData, h3Hashes));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | NoSuchAlgorithmException e) {
+            log.warning("Failed to load metadata cache " + cacheFile + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves the metadata of the given title. The file is replaced atomically where possible.
+     */
+    public static void save(File cacheFolder, TMD tmd, byte[] rawTMD, Optional<Ticket> ticket, String sourceFingerprint, byte[] fstData,
+            Map<Short, byte[]> h3Hashes) throws IOException {
+        File cacheFile;
+        try {
+            cacheFile = getCacheFile(cacheFolder, tmd, rawTMD, sourceFingerprint);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        if (!cacheFolder.isDirectory() && !cacheFolder.mkdirs()) {
+            throw new IOException("Failed to create " + cacheFolder);
+        }
+        // Every writer gets its own temp file, concurrent saves of the same title must not write into the same file.
+        File tmpFile = File.createTempFile(cacheFile.getName() + ".", ".part", cacheFolder);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 0x10000))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(tmd.getTitleID());
+            out.write(HashUtil.hashSHA1(rawTMD));
+            out.write(getKeyHash(ticket));
+            byte[] fingerprint = sourceFingerprint.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(fingerprint.length);
+            out.write(fingerprint);
+
+            out.writeInt(h3Hashes.size());
+            for (Map.Entry<Short, byte[]> e : h3Hashes.entrySet()) {
+                out.writeShort(e.getKey());
+                out.writeInt(e.getValue().length);
+                out.write(e.getValue());
+            }
+
+            out.write(HashUtil.hashSHA1(fstData));
+            out.writeInt(fstData.length);
+            out.write(fstData);
+        } catch (NoSuchAlgorithmException e) {
+            tmpFile.delete();
+            throw new IOException(e);
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+        boolean success = false;
+        try {
+            try {
+                Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static byte[] getKeyHash(Optional<Ticket> ticket) throws NoSuchAlgorithmException {
+        if (!ticket.isPresent()) {
+            return new byte[HASH_LENGTH];
+        }
+        return HashUtil.hashSHA1(ticket.get().getDecryptedKey());
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] result = new byte[length];
+        buffer.get(result);
+        return result;
+    }
+}
@@ -16,6 +16,7 @@
  ****************************************************************************/
 package de.mas.wiiu.jnus.utils.cryptography;
 
+import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -24,6 +25,7 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -78,6 +80,22 @@ public class AESDecryption {
         return decrypt(input, 0, len);
     }
 
+    /**
+     * Decrypts len bytes of the input into the given output array and returns the number of bytes written. Unlike the other methods no new array is
+     * allocated.
+     * 
+     * @throws IOException
+     *             if the length is not a multiple of the AES block size or the output array is too small
+     */
+    @Synchronized("cipher")
+    public int decrypt(byte[] input, int offset, int len, byte[] output, int outputOffset) throws IOException {
+        try {
+            return cipher.doFinal(input, offset, len, output, outputOffset);
+        } catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+            throw new IOException("Failed to decrypt " + len + " bytes", e);
+        }
+    }
+
     @Synchronized("cipher")
     public byte[] decrypt(byte[] input, int offset, int len) {
         try {
@@ -23,9 +23,13 @@ import java.util.Arrays;
 
 import de.mas.wiiu.jnus.entities.Ticket;
 import de.mas.wiiu.jnus.interfaces.ContentDecryptor;
-import de.mas.wiiu.jnus.utils.ByteArrayBuffer;
+import de.mas.wiiu.jnus.utils.BufferPool;
+import de.mas.wiiu.jnus.utils.BlockReader;
 import de.mas.wiiu.jnus.utils.StreamUtils;
 import de.mas.wiiu.jnus.utils.Utils;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Counter;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Stage;
 
 public class NUSDecryption extends AESDecryption implements ContentDecryptor {
     public NUSDecryption(byte[] AESKey, byte[] IV) {
@@ -36,16 +40,18 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
         this(ticket.getDecryptedKey(), ticket.getIV());
     }
 
-    private byte[] decryptFileChunk(byte[] blockBuffer, int BLOCKSIZE, byte[] IV) {
-        return decryptFileChunk(blockBuffer, 0, BLOCKSIZE, IV);
-    }
-
-    private byte[] decryptFileChunk(byte[] blockBuffer, int offset, int BLOCKSIZE, byte[] IV) {
+    /**
+     * Decrypts BLOCKSIZE bytes of the blockBuffer into the output array.
+     */
+    private void decryptFileChunk(byte[] blockBuffer, int offset, int BLOCKSIZE, byte[] IV, byte[] output) throws IOException {
+        long start = Metrics.start();
         if (IV != null) {
             setIV(IV);
             init();
         }
-        return decrypt(blockBuffer, offset, BLOCKSIZE);
+        decrypt(blockBuffer, offset, BLOCKSIZE, output, 0);
+        Metrics.count(Counter.DECRYPTED_BYTES, BLOCKSIZE);
+        Metrics.time(Stage.DECRYPT, start);
     }
 
     @Override
@@ -60,15 +66,17 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
 
         long soffset = payloadOffset;
 
-        byte[] encryptedBlockBuffer = new byte[BLOCKSIZE];
-        ByteArrayBuffer overflow = new ByteArrayBuffer(BLOCKSIZE);
+        byte[] encryptedBlockBuffer = BufferPool.acquire(BLOCKSIZE);
+        byte[] hashes = BufferPool.acquire(HASHSIZE);
+        byte[] output = BufferPool.acquire(HASHEDBLOCKSIZE);
+        BlockReader reader = new BlockReader(in);
 
         long wrote = 0;
         int inBlockBuffer = 0;
 
         try {
             do {
-                inBlockBuffer = StreamUtils.getChunkFromStream(in, encryptedBlockBuffer, overflow, BLOCKSIZE);
+                inBlockBuffer = reader.read(encryptedBlockBuffer, 0, BLOCKSIZE);
                 if (inBlockBuffer < 0) {
                     return wrote;
                 }
@@ -77,12 +85,13 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
                     throw new IOException("wasn't able to read  " + BLOCKSIZE);
                 }
 
-                byte[] hashes = decryptFileChunk(encryptedBlockBuffer, HASHSIZE, new byte[16]);
+                Metrics.count(Counter.DECRYPTED_BLOCKS, 1);
+                decryptFileChunk(encryptedBlockBuffer, 0, HASHSIZE, new byte[16], hashes);
 
                 int H0_start = (int) (((int) block % 16) * 20);
 
                 byte[] IV = Arrays.copyOfRange(hashes, H0_start, H0_start + 16);
-                byte[] output = decryptFileChunk(encryptedBlockBuffer, HASHSIZE, HASHEDBLOCKSIZE, IV);
+                decryptFileChunk(encryptedBlockBuffer, HASHSIZE, HASHEDBLOCKSIZE, IV, output);
 
                 try {
                     if (writeSize > size) {
@@ -140,6 +149,9 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
             } while (wrote < size && (inBlockBuffer == BLOCKSIZE));
         } finally {
             StreamUtils.closeAll(in, out);
+            BufferPool.release(encryptedBlockBuffer);
+            BufferPool.release(hashes);
+            BufferPool.release(output);
         }
         return wrote > 0 ? wrote : -1;
     }
@@ -149,14 +161,15 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
             throws IOException {
         int BLOCKSIZE = 0x80000;
 
-        byte[] blockBuffer = new byte[BLOCKSIZE];
+        byte[] blockBuffer = BufferPool.acquire(BLOCKSIZE);
+        byte[] output = BufferPool.acquire(BLOCKSIZE);
+        BlockReader reader = new BlockReader(inputStream);
 
         int inBlockBuffer;
         long written = 0;
         long read = 0;
 
         try {
-            ByteArrayBuffer overflow = new ByteArrayBuffer(BLOCKSIZE);
 
             // We can only decrypt multiples of 16. So we need to align it.
             long toRead = Utils.align(size, 16);
@@ -167,19 +180,21 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
                 if (toRead < BLOCKSIZE) {
                     curReadSize = (int) (toRead + writeOffset);
                 }
-                inBlockBuffer = StreamUtils.getChunkFromStream(inputStream, blockBuffer, overflow, (int) Utils.align(curReadSize, 16));
+                inBlockBuffer = reader.read(blockBuffer, 0, (int) Utils.align(curReadSize, 16));
 
                 if (inBlockBuffer < 0) {
                     break;
                 }
 
-                byte[] output = decryptFileChunk(blockBuffer, (int) Utils.align(inBlockBuffer, 16), IV);
+                Metrics.count(Counter.DECRYPTED_BLOCKS, 1);
+                int decrypted = (int) Utils.align(inBlockBuffer, 16);
+                decryptFileChunk(blockBuffer, 0, decrypted, IV, output);
 
                 if (inBlockBuffer > 16) {
                     IV = Arrays.copyOfRange(blockBuffer, BLOCKSIZE - 16, BLOCKSIZE);
                 }
 
-                long writeLength = Math.min((output.length - writeOffset), (size - written));
+                long writeLength = Math.min((decrypted - writeOffset), (size - written));
 
                 try {
                     read += inBlockBuffer;
@@ -200,6 +215,8 @@ public class NUSDecryption extends AESDecryption implements ContentDecryptor {
 
         } finally {
             StreamUtils.closeAll(inputStream, outputStream);
+            BufferPool.release(blockBuffer);
+            BufferPool.release(output);
         }
         return written > 0 ? written : -1;
     }
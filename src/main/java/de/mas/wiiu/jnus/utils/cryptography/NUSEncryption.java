@@ -8,7 +8,7 @@ import java.util.Arrays;
 
 import de.mas.wiiu.jnus.entities.Ticket;
 import de.mas.wiiu.jnus.interfaces.ContentEncryptor;
-import de.mas.wiiu.jnus.utils.ByteArrayBuffer;
+import de.mas.wiiu.jnus.utils.BlockReader;
 import de.mas.wiiu.jnus.utils.IVCache;
 import de.mas.wiiu.jnus.utils.StreamUtils;
 import lombok.Synchronized;
@@ -45,7 +45,7 @@ public class NUSEncryption extends AESEncryption implements ContentEncryptor {
 
         int buffer_size = BLOCKSIZE;
         byte[] decryptedBlockBuffer = new byte[buffer_size];
-        ByteArrayBuffer overflowbuffer = new ByteArrayBuffer(buffer_size);
+        BlockReader reader = new BlockReader(in);
         int block = (int) (offset / 0x10000);
         int inBlockBuffer = 0;
         long read = 0;
@@ -53,7 +53,7 @@ public class NUSEncryption extends AESEncryption implements ContentEncryptor {
 
         try {
             do {
-                inBlockBuffer = StreamUtils.getChunkFromStream(in, decryptedBlockBuffer, overflowbuffer, BLOCKSIZE);
+                inBlockBuffer = reader.read(decryptedBlockBuffer, 0, BLOCKSIZE);
                 read += inBlockBuffer;
                 if (read - offset < payloadOffset) {
                     continue;
@@ -102,7 +102,7 @@ public class NUSEncryption extends AESEncryption implements ContentEncryptor {
 
         int buffer_size = BLOCKSIZE;
         byte[] decryptedBlockBuffer = new byte[buffer_size];
-        ByteArrayBuffer overflowbuffer = new ByteArrayBuffer(buffer_size);
+        BlockReader reader = new BlockReader(in);
         int inBlockBuffer = 0;
 
         setIV(IV);
@@ -119,7 +119,7 @@ public class NUSEncryption extends AESEncryption implements ContentEncryptor {
                 if (curReadLength == 0) {
                     curReadLength = buffer_size;
                 }
-                inBlockBuffer = StreamUtils.getChunkFromStream(in, decryptedBlockBuffer, overflowbuffer, curReadLength);
+                inBlockBuffer = reader.read(decryptedBlockBuffer, 0, curReadLength);
                 if (inBlockBuffer < 0) {
                     break;
                 }
@@ -0,0 +1,195 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.delta;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary diff of two byte arrays based on a rolling checksum (like rsync). The old data is split into blocks, the new data is scanned for these blocks with a
+ * rolling checksum. Matches are extended as far as possible and stored as a copy of the old data, everything else is stored as literal bytes.
+ * 
+ * A diff is a sequence of operations, each starts with a byte:
+ * <ul>
+ * <li>{@link #OP_COPY}: long offset in the old data, int length</li>
+ * <li>{@link #OP_INSERT}: int length, followed by the bytes</li>
+ * <li>{@link #OP_END}: end of the diff</li>
+ * </ul>
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class BinaryDiff {
+    public static final int OP_END = 0;
+    public static final int OP_COPY = 1;
+    public static final int OP_INSERT = 2;
+
+    public static final int BLOCK_SIZE = 0x400;
+    /** Max number of old blocks with the same checksum that are compared. */
+    private static final int MAX_CANDIDATES = 8;
+
+    private BinaryDiff() {
+        // Utility class
+    }
+
+    /**
+     * Writes the diff that turns oldData into newData.
+     */
+    public static void diff(byte[] oldData, byte[] newData, DataOutputStream out) throws IOException {
+        Map<Integer, int[]> blocks = indexBlocks(oldData);
+
+        int pos = 0;
+        int literalStart = 0;
+        int a = 0;
+        int b = 0;
+        boolean hasChecksum = false;
+        while (!blocks.isEmpty() && pos + BLOCK_SIZE <= newData.length) {
+            if (!hasChecksum) {
+                int checksum = checksum(newData, pos);
+                a = checksum & 0xFFFF;
+                b = checksum >>> 16;
+                hasChecksum = true;
+            }
+            int match = findMatch(blocks.get((b << 16) | a), oldData, newData, pos);
+            if (match >= 0) {
+                int length = BLOCK_SIZE;
+                while (match + length < oldData.length && pos + length < newData.length && oldData[match + length] == newData[pos + length]) {
+                    length++;
+                }
+                writeInsert(out, newData, literalStart, pos - literalStart);
+                out.writeByte(OP_COPY);
+                out.writeLong(match);
+                out.writeInt(length);
+                pos += length;
+                literalStart = pos;
+                hasChecksum = false;
+                continue;
+            }
+            if (pos + BLOCK_SIZE >= newData.length) {
+                break;
+            }
+            // Roll the checksum one byte forward.
+            int removed = newData[pos] & 0xFF;
+            int added = newData[pos + BLOCK_SIZE] & 0xFF;
+            a = (a - removed + added) & 0xFFFF;
+            b = (b - BLOCK_SIZE * removed + a) & 0xFFFF;
+            pos++;
+        }
+        writeInsert(out, newData, literalStart, newData.length - literalStart);
+        out.writeByte(OP_END);
+    }
+
+    /**
+     * Reads a diff and applies it to oldData.
+     */
+    public static byte[] patch(byte[] oldData, DataInputStream in, int newSize) throws IOException {
+        byte[] result = new byte[newSize];
+        int pos = 0;
+        while (true) {
+            int op = in.readUnsignedByte();
+            if (op == OP_END) {
+                break;
+            }
+            if (op == OP_COPY) {
+                long offset = in.readLong();
+                int length = in.readInt();
+                if (offset < 0 || offset + length > oldData.length || pos + length > newSize) {
+                    throw new IOException("Invalid copy in diff: " + offset + " " + length);
+                }
+                System.arraycopy(oldData, (int) offset, result, pos, length);
+                pos += length;
+            } else if (op == OP_INSERT) {
+                int length = in.readInt();
+                if (length < 0 || pos + length > newSize) {
+                    throw new IOException("Invalid insert in diff: " + length);
+                }
+                in.readFully(result, pos, length);
+                pos += length;
+            } else {
+                throw new IOException("Unknown diff operation " + op);
+            }
+        }
+        if (pos != newSize) {
+            throw new IOException("Diff created " + pos + " bytes instead of " + newSize);
+        }
+        return result;
+    }
+
+    private static Map<Integer, int[]> indexBlocks(byte[] data) {
+        Map<Integer, int[]> result = new HashMap<>();
+        for (int offset = 0; offset + BLOCK_SIZE <= data.length; offset += BLOCK_SIZE) {
+            int checksum = checksum(data, offset);
+            int[] cur = result.get(checksum);
+            if (cur == null) {
+                result.put(checksum, new int[] { offset });
+            } else if (cur.length < MAX_CANDIDATES) {
+                int[] next = new int[cur.length + 1];
+                System.arraycopy(cur, 0, next, 0, cur.length);
+                next[cur.length] = offset;
+                result.put(checksum, next);
+            }
+        }
+        return result;
+    }
+
+    private static int findMatch(int[] candidates, byte[] oldData, byte[] newData, int pos) {
+        if (candidates == null) {
+            return -1;
+        }
+        for (int candidate : candidates) {
+            if (equals(oldData, candidate, newData, pos, BLOCK_SIZE)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adler-like checksum of one block, the lower 16 bit are the sum of the bytes, the upper 16 bit the weighted sum.
+     */
+    static int checksum(byte[] data, int offset) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            int v = data[offset + i] & 0xFF;
+            a += v;
+            b += (BLOCK_SIZE - i) * v;
+        }
+        return ((b & 0xFFFF) << 16) | (a & 0xFFFF);
+    }
+
+    private static void writeInsert(DataOutputStream out, byte[] data, int offset, int length) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+        out.writeByte(OP_INSERT);
+        out.writeInt(length);
+        out.write(data, offset, length);
+    }
+}
@@ -0,0 +1,418 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import de.mas.wiiu.jnus.NUSTitle;
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.entities.TMD;
+import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import de.mas.wiiu.jnus.implementations.FSTDataProviderNUSTitle;
+import de.mas.wiiu.jnus.interfaces.FSTDataProvider;
+import de.mas.wiiu.jnus.interfaces.HasNUSTitle;
+import de.mas.wiiu.jnus.utils.FSTUtils;
+import de.mas.wiiu.jnus.utils.FileUtils;
+import de.mas.wiiu.jnus.utils.StreamUtils;
+import de.mas.wiiu.jnus.utils.Utils;
+import lombok.Data;
+import lombok.ToString;
+import lombok.extern.java.Log;
+
+/**
+ * Creates and applies deltas between two versions of a title. A delta contains the TMD of the new version, the contents that were reused (same hash) and for
+ * each file of the new version how to create it from the files of the old version:
+ * <ul>
+ * <li>unchanged: the file has the same path and comes from the same range of a content with the same hash, or the data is identical.</li>
+ * <li>moved: the file comes from a range of a content with the same hash as a file with a different path in the old version.</li>
+ * <li>patched: a {@link BinaryDiff} against the old file with the same path.</li>
+ * <li>new: the complete data.</li>
+ * </ul>
+ * Applying a delta recreates the decrypted files of the new version from the old version. Patched and new files are verified with a SHA1 hash, unchanged and
+ * moved files with the hash of the old content and the offset they had in it. The delta can only be applied to the version of the title it was created for.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public final class TitleDelta {
+    private static final int MAGIC = 0x4A4E4454; // "JNDT"
+    private static final int VERSION = 1;
+
+    private static final int FILE_UNCHANGED = 0;
+    private static final int FILE_MOVED = 1;
+    private static final int FILE_PATCHED = 2;
+    private static final int FILE_NEW = 3;
+
+    private static final int HASH_LENGTH = 0x14;
+
+    @Data
+    public static class Summary {
+        private long titleID;
+        private short oldVersion;
+        private short newVersion;
+        @ToString.Exclude private byte[] newRawTMD;
+        /** Maps the content IDs of the new version to the content IDs of the old version with the same hash. */
+        private final Map<Integer, Integer> reusedContents = new TreeMap<>();
+        private int unchangedFiles;
+        private int movedFiles;
+        private int patchedFiles;
+        private int newFiles;
+        private int removedFiles;
+    }
+
+    private TitleDelta() {
+        // Utility class
+    }
+
+    /**
+     * Compares the two titles and writes the delta that creates the files of newTitle from the files of oldTitle.
+     */
+    public static Summary create(NUSTitle oldTitle, NUSTitle newTitle, OutputStream output) throws IOException {
+        TMD oldTMD = oldTitle.getTMD();
+        TMD newTMD = newTitle.getTMD();
+        if (oldTMD.getTitleID() != newTMD.getTitleID()) {
+            throw new IOException(String.format("Title IDs don't match: %016X != %016X", oldTMD.getTitleID(), newTMD.getTitleID()));
+        }
+
+        Summary summary = new Summary();
+        summary.setTitleID(newTMD.getTitleID());
+        summary.setOldVersion(oldTMD.getTitleVersion());
+        summary.setNewVersion(newTMD.getTitleVersion());
+        summary.setNewRawTMD(newTitle.getDataProcessor().getDataProvider().getRawTMD().orElseThrow(() -> new IOException("The new title has no raw TMD")));
+
+        Map<String, Content> oldContentsByHash = new HashMap<>();
+        for (Content c : oldTMD.getAllContents().values()) {
+            oldContentsByHash.put(Utils.ByteArrayToString(c.getSHA2Hash()), c);
+        }
+        for (Content c : newTMD.getAllContents().values()) {
+            Content old = oldContentsByHash.get(Utils.ByteArrayToString(c.getSHA2Hash()));
+            if (old != null) {
+                summary.getReusedContents().put(c.getID(), old.getID());
+            }
+        }
+
+        FSTDataProvider oldFiles = new FSTDataProviderNUSTitle(oldTitle);
+        FSTDataProvider newFiles = new FSTDataProviderNUSTitle(newTitle);
+
+        Map<String, FSTEntry> oldByPath = new HashMap<>();
+        Map<String, FSTEntry> oldByLocation = new HashMap<>();
+        for (FSTEntry entry : getFiles(oldFiles)) {
+            oldByPath.put(entry.getFullPath(), entry);
+            oldByLocation.putIfAbsent(getLocation(oldTMD, entry), entry);
+        }
+        List<FSTEntry> files = getFiles(newFiles);
+        List<String> dirs = FSTUtils.getAllFSTEntryChildrenAsStream(newFiles.getRoot()).filter(e -> e.isDir()).map(e -> e.getFullPath())
+                .collect(Collectors.toList());
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 0x10000));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(summary.getTitleID());
+        out.writeShort(summary.getOldVersion());
+        out.writeShort(summary.getNewVersion());
+        out.writeInt(summary.getNewRawTMD().length);
+        out.write(summary.getNewRawTMD());
+        out.writeInt(summary.getReusedContents().size());
+        for (Map.Entry<Integer, Integer> e : summary.getReusedContents().entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeInt(e.getValue());
+        }
+        out.writeInt(dirs.size());
+        for (String dir : dirs) {
+            out.writeUTF(dir);
+        }
+
+        out.writeInt(files.size());
+        for (FSTEntry entry : files) {
+            String path = entry.getFullPath();
+            out.writeUTF(path);
+            out.writeLong(entry.getFileSize());
+
+            FSTEntry old = oldByPath.remove(path);
+            String location = getLocation(newTMD, entry);
+            if (old != null && location.equals(getLocation(oldTMD, old))) {
+                out.writeByte(FILE_UNCHANGED);
+                writeOldLocation(out, oldTMD, old);
+                summary.setUnchangedFiles(summary.getUnchangedFiles() + 1);
+                continue;
+            }
+            FSTEntry moved = oldByLocation.get(location);
+            if (moved != null) {
+                out.writeByte(FILE_MOVED);
+                out.writeUTF(moved.getFullPath());
+                writeOldLocation(out, oldTMD, moved);
+                summary.setMovedFiles(summary.getMovedFiles() + 1);
+                continue;
+            }
+            if (old != null && old.getFileSize() <= Settings.DELTA_MAX_DIFF_SIZE && entry.getFileSize() <= Settings.DELTA_MAX_DIFF_SIZE) {
+                byte[] oldData = oldFiles.readFile(old);
+                byte[] newData = newFiles.readFile(entry);
+                if (Arrays.equals(oldData, newData)) {
+                    out.writeByte(FILE_UNCHANGED);
+                    writeOldLocation(out, oldTMD, old);
+                    summary.setUnchangedFiles(summary.getUnchangedFiles() + 1);
+                    continue;
+                }
+                ByteArrayOutputStream diff = new ByteArrayOutputStream();
+                BinaryDiff.diff(oldData, newData, new DataOutputStream(diff));
+                if (diff.size() < newData.length) {
+                    out.writeByte(FILE_PATCHED);
+                    diff.writeTo(out);
+                    summary.setPatchedFiles(summary.getPatchedFiles() + 1);
+                } else {
+                    out.writeByte(FILE_NEW);
+                    out.write(newData);
+                    summary.setNewFiles(summary.getNewFiles() + 1);
+                }
+                out.write(sha1(newData));
+                continue;
+            }
+            if (old != null && old.getFileSize() == entry.getFileSize() && Arrays.equals(sha1(oldFiles, old), sha1(newFiles, entry))) {
+                out.writeByte(FILE_UNCHANGED);
+                writeOldLocation(out, oldTMD, old);
+                summary.setUnchangedFiles(summary.getUnchangedFiles() + 1);
+                continue;
+            }
+            out.writeByte(FILE_NEW);
+            MessageDigest digest = newSHA1();
+            newFiles.readFileToStream(new DigestOutputStream(new NonClosingOutputStream(out), digest), entry);
+            out.write(digest.digest());
+            summary.setNewFiles(summary.getNewFiles() + 1);
+        }
+        out.flush();
+        summary.setRemovedFiles(oldByPath.size());
+
+        log.info(String.format("Created delta for %016X v%d -> v%d: %d reused content(s), %s", summary.getTitleID(), summary.getOldVersion(),
+                summary.getNewVersion(), summary.getReusedContents().size(), getFileStats(summary)));
+        return summary;
+    }
+
+    /**
+     * Reads a delta and writes the files of the new version to the output folder. The files of the old version are read from oldTitle, it needs to provide the
+     * NUSTitle ({@link HasNUSTitle}) to check that it's the version the delta was created for. Paths that would end up outside of the output folder are
+     * rejected.
+     */
+    public static Summary apply(InputStream input, FSTDataProvider oldTitle, String outputFolder) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 0x10000));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a title delta");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported title delta version " + version);
+        }
+        Summary summary = new Summary();
+        summary.setTitleID(in.readLong());
+        summary.setOldVersion(in.readShort());
+        summary.setNewVersion(in.readShort());
+        if (!(oldTitle instanceof HasNUSTitle)) {
+            throw new IOException("The TMD of the old title is needed to check the unchanged and moved files");
+        }
+        TMD oldTMD = ((HasNUSTitle) oldTitle).getNUSTitle().getTMD();
+        if (oldTMD.getTitleID() != summary.getTitleID() || oldTMD.getTitleVersion() != summary.getOldVersion()) {
+            throw new IOException(String.format("The delta was created for %016X v%d, not for %016X v%d", summary.getTitleID(), summary.getOldVersion(),
+                    oldTMD.getTitleID(), oldTMD.getTitleVersion()));
+        }
+        byte[] rawTMD = new byte[in.readInt()];
+        in.readFully(rawTMD);
+        summary.setNewRawTMD(rawTMD);
+        int reused = in.readInt();
+        for (int i = 0; i < reused; i++) {
+            summary.getReusedContents().put(in.readInt(), in.readInt());
+        }
+
+        File root = new File(outputFolder).getCanonicalFile();
+        int dirCount = in.readInt();
+        for (int i = 0; i < dirCount; i++) {
+            Utils.createDir(resolve(root, in.readUTF()).getPath());
+        }
+
+        int fileCount = in.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            String path = in.readUTF();
+            long size = in.readLong();
+            int type = in.readUnsignedByte();
+            File target = resolve(root, path);
+            Utils.createDir(target.getParent());
+
+            switch (type) {
+            case FILE_UNCHANGED:
+                copyFromOld(oldTitle, oldTMD, path, target, size, in);
+                summary.setUnchangedFiles(summary.getUnchangedFiles() + 1);
+                break;
+            case FILE_MOVED:
+                copyFromOld(oldTitle, oldTMD, in.readUTF(), target, size, in);
+                summary.setMovedFiles(summary.getMovedFiles() + 1);
+                break;
+            case FILE_PATCHED: {
+                byte[] data = BinaryDiff.patch(oldTitle.readFile(getOldEntry(oldTitle, path)), in, (int) size);
+                checkHash(path, sha1(data), in);
+                FileUtils.saveByteArrayToFile(target, data);
+                summary.setPatchedFiles(summary.getPatchedFiles() + 1);
+                break;
+            }
+            case FILE_NEW: {
+                MessageDigest digest = newSHA1();
+                byte[] buffer = new byte[0x8000];
+                FileUtils.FileAsOutputStreamWrapper(target, size, out -> StreamUtils.copyExactly(in, new DigestOutputStream(out, digest), size, buffer));
+                checkHash(path, digest.digest(), in);
+                summary.setNewFiles(summary.getNewFiles() + 1);
+                break;
+            }
+            default:
+                throw new IOException("Unknown file type " + type + " for " + path);
+            }
+        }
+        log.info(String.format("Applied delta for %016X v%d -> v%d: %s", summary.getTitleID(), summary.getOldVersion(), summary.getNewVersion(),
+                getFileStats(summary)));
+        return summary;
+    }
+
+    private static List<FSTEntry> getFiles(FSTDataProvider provider) {
+        return FSTUtils.getAllFSTEntryChildrenAsStream(provider.getRoot()).filter(e -> !e.isDir() && !e.isNotInPackage()).collect(Collectors.toList());
+    }
+
+    /**
+     * Identifies the data of a file: the hash of its content and the range inside it.
+     */
+    private static String getLocation(TMD tmd, FSTEntry entry) {
+        Content c = tmd.getContentByIndex(entry.getContentIndex());
+        String hash = c != null ? Utils.ByteArrayToString(c.getSHA2Hash()) : "?" + entry.getContentIndex();
+        return hash + ":" + entry.getFileOffset() + ":" + entry.getFileSize();
+    }
+
+    private static FSTEntry getOldEntry(FSTDataProvider oldTitle, String path) throws FileNotFoundException {
+        return FSTUtils.getFSTEntryByFullPath(oldTitle.getRoot(), path).orElseThrow(() -> new FileNotFoundException("File not found in old title: " + path));
+    }
+
+    /**
+     * Returns the file for the path of the delta, the path must not leave the output folder (e.g. with "..").
+     */
+    private static File resolve(File root, String path) throws IOException {
+        File result = new File(root, path).getCanonicalFile();
+        if (!result.toPath().startsWith(root.toPath())) {
+            throw new IOException("Path of the delta is outside of the output folder: " + path);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the hash of the content and the offset of a file of the old version, this allows to check that a delta is applied to the right data.
+     */
+    private static void writeOldLocation(DataOutputStream out, TMD oldTMD, FSTEntry entry) throws IOException {
+        Content c = oldTMD.getContentByIndex(entry.getContentIndex());
+        out.write(c != null ? c.getSHA2Hash() : new byte[HASH_LENGTH]);
+        out.writeLong(entry.getFileOffset());
+    }
+
+    private static void copyFromOld(FSTDataProvider oldTitle, TMD oldTMD, String path, File target, long size, DataInputStream in) throws IOException {
+        FSTEntry entry = getOldEntry(oldTitle, path);
+        byte[] expectedHash = new byte[HASH_LENGTH];
+        in.readFully(expectedHash);
+        long expectedOffset = in.readLong();
+        Content c = oldTMD.getContentByIndex(entry.getContentIndex());
+        if (c == null || !Arrays.equals(expectedHash, c.getSHA2Hash()) || entry.getFileOffset() != expectedOffset) {
+            throw new IOException("Location of " + path + " in the old title doesn't match, the delta was created for another version");
+        }
+        if (entry.getFileSize() != size) {
+            throw new IOException("Size of " + path + " in the old title doesn't match the delta");
+        }
+        FileUtils.FileAsOutputStreamWrapper(target, size, out -> oldTitle.readFileToStream(out, entry));
+    }
+
+    private static void checkHash(String path, byte[] hash, DataInputStream in) throws IOException {
+        byte[] expected = new byte[HASH_LENGTH];
+        in.readFully(expected);
+        if (!Arrays.equals(expected, hash)) {
+            throw new IOException("Hash of " + path + " doesn't match, the delta was created for another version");
+        }
+    }
+
+    private static String getFileStats(Summary summary) {
+        return String.format("%d unchanged, %d moved, %d patched, %d new file(s)", summary.getUnchangedFiles(), summary.getMovedFiles(),
+                summary.getPatchedFiles(), summary.getNewFiles());
+    }
+
+    private static MessageDigest newSHA1() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] sha1(byte[] data) throws IOException {
+        return newSHA1().digest(data);
+    }
+
+    private static byte[] sha1(FSTDataProvider provider, FSTEntry entry) throws IOException {
+        MessageDigest digest = newSHA1();
+        provider.readFileToStream(new DigestOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // only the digest is needed.
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // only the digest is needed.
+            }
+        }, digest), entry);
+        return digest.digest();
+    }
+
+    /**
+     * The data providers close the stream they write to, this keeps the delta stream open.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -18,8 +18,6 @@ package de.mas.wiiu.jnus.utils.download;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -82,18 +80,14 @@ public final class NUSDownloadService extends Downloader {
         return downloadFileToByteArray(URL);
     }
 
+    /**
+     * Returns a stream for the given range of a remote file. Connection failures are retried and interrupted transfers are resumed from the last delivered
+     * byte, see {@link ResumableRangeInputStream}.
+     */
     public InputStream getInputStream(String URL, long offset, long size) throws IOException {
-        URL url_obj = new URL(URL);
-        HttpURLConnection connection = (HttpURLConnection) url_obj.openConnection();
-        connection.setRequestProperty("User-Agent", Settings.USER_AGENT);
-        connection.setRequestProperty("Range", "bytes=" + offset + "-" + Long.toString(offset + size));
-        try {
-            connection.connect();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return connection.getInputStream();
+        ResumableRangeInputStream in = new ResumableRangeInputStream(URL, offset, size);
+        in.connect();
+        return in;
     }
 
     public InputStream getInputStreamForURL(String url, long offset, Long size) throws IOException {
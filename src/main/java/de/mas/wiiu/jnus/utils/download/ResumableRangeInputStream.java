@@ -0,0 +1,337 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.download;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import de.mas.wiiu.jnus.Settings;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * InputStream for a byte range of a remote file that survives connection failures.
+ *
+ * If a connection fails, stalls or ends too early, a new ranged GET is issued starting at the first byte that was not delivered yet. Consecutive failures are
+ * retried with an exponential backoff, the counter is reset as soon as the new connection delivers data again. If {@link Settings#DOWNLOAD_HEDGE_DELAY_MS} is
+ * set, a duplicate request is sent when a server doesn't answer within that time and the faster response is used.
+ *
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public class ResumableRangeInputStream extends InputStream {
+    private static final ExecutorService HEDGE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "JNUSLib-download-hedge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String url;
+    /** Position after the last byte of the range, -1 if the range is open ended. */
+    private final long end;
+
+    /** Absolute position of the next byte that will be delivered. */
+    @Getter private long position;
+
+    private HttpURLConnection connection;
+    private InputStream in;
+    private int failedAttempts = 0;
+    private boolean closed = false;
+
+    /**
+     * @param url
+     *            URL of the remote file
+     * @param offset
+     *            offset of the first byte
+     * @param size
+     *            number of bytes that will be requested, a value {@code <= 0} requests everything until the end of the file.
+     */
+    public ResumableRangeInputStream(String url, long offset, long size) {
+        this.url = url;
+        this.position = offset;
+        this.end = size > 0 ? offset + size : -1;
+    }
+
+    /**
+     * Opens the first connection. Doing this right away instead of on the first read makes sure non-retryable errors (e.g. a 404) are thrown by the caller
+     * that created the stream.
+     */
+    void connect() throws IOException {
+        while (in == null) {
+            try {
+                openConnection();
+            } catch (IOException e) {
+                handleFailure(e);
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buf = new byte[1];
+        int res = read(buf, 0, 1);
+        return res <= 0 ? -1 : buf[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (end >= 0) {
+            if (position >= end) {
+                return -1;
+            }
+            len = (int) Math.min(len, end - position);
+        }
+
+        while (true) {
+            try {
+                if (in == null) {
+                    openConnection();
+                }
+                int read = in.read(b, off, len);
+                if (read < 0) {
+                    if (end < 0) {
+                        return -1;
+                    }
+                    throw new EOFException("Connection closed at " + position + " but the range ends at " + end);
+                }
+                position += read;
+                failedAttempts = 0;
+                return read;
+            } catch (IOException e) {
+                if (closed) {
+                    throw e;
+                }
+                handleFailure(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        closeConnection();
+    }
+
+    private void handleFailure(IOException e) throws IOException {
+        closeConnection();
+        // Timeouts are InterruptedIOExceptions as well, but a stalled connection is exactly what we want to retry.
+        boolean interrupted = Thread.currentThread().isInterrupted() || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+        if (e instanceof NonRetryableException || interrupted) {
+            throw e;
+        }
+        failedAttempts++;
+        if (failedAttempts > Settings.DOWNLOAD_MAX_RETRIES) {
+            throw new IOException("Failed to download " + url + " after " + Settings.DOWNLOAD_MAX_RETRIES + " retries at offset " + position, e);
+        }
+        long delay = Math.min(Settings.DOWNLOAD_RETRY_MAX_DELAY_MS, Settings.DOWNLOAD_RETRY_BASE_DELAY_MS << Math.min(failedAttempts - 1, 20));
+        // Add some jitter so parallel downloads don't hammer the server at the same time.
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        log.warning("Download of " + url + " failed at offset " + position + " (" + e.getMessage() + "). Retry " + failedAttempts + "/"
+                + Settings.DOWNLOAD_MAX_RETRIES + " in " + delay + "ms");
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a retry of " + url);
+        }
+    }
+
+    private void closeConnection() {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore, we are replacing or closing the connection anyway.
+            }
+            in = null;
+        }
+        if (connection != null) {
+            connection.disconnect();
+            connection = null;
+        }
+    }
+
+    private void openConnection() throws IOException {
+        final long start = position;
+        HttpURLConnection con;
+        if (Settings.DOWNLOAD_HEDGE_DELAY_MS > 0) {
+            con = openHedged(start);
+        } else {
+            con = openRange(start);
+        }
+        try {
+            InputStream stream = con.getInputStream();
+            if (con.getResponseCode() == HttpURLConnection.HTTP_OK && start > 0) {
+                // The server ignored the range, skip to where we are.
+                skipFully(stream, start);
+            }
+            this.connection = con;
+            this.in = stream;
+        } catch (IOException e) {
+            con.disconnect();
+            throw e;
+        }
+    }
+
+    private HttpURLConnection openHedged(long start) throws IOException {
+        CompletionService<HttpURLConnection> service = new ExecutorCompletionService<>(HEDGE_EXECUTOR);
+        Future<HttpURLConnection> first = service.submit(() -> openRange(start));
+        Future<HttpURLConnection> second = null;
+        try {
+            Future<HttpURLConnection> done = service.poll(Settings.DOWNLOAD_HEDGE_DELAY_MS, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                log.fine("No response for " + url + " at offset " + start + " after " + Settings.DOWNLOAD_HEDGE_DELAY_MS + "ms, sending a hedged request.");
+                second = service.submit(() -> openRange(start));
+                done = service.take();
+            }
+            try {
+                HttpURLConnection winner = done.get();
+                Future<HttpURLConnection> loser = done == first ? second : first;
+                if (loser != null) {
+                    discard(loser);
+                }
+                return winner;
+            } catch (ExecutionException e) {
+                if (second == null) {
+                    throw unwrap(e);
+                }
+                // One of them failed, maybe the other one is luckier.
+                try {
+                    return service.take().get();
+                } catch (ExecutionException e2) {
+                    throw unwrap(e2);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(first);
+            if (second != null) {
+                discard(second);
+            }
+            throw new InterruptedIOException("Interrupted while connecting to " + url);
+        }
+    }
+
+    /**
+     * Disconnects the connection of the request once it's open. Interrupting the request wouldn't stop HttpURLConnection.connect, so it has to finish
+     * (bounded by the timeouts) before the socket can be closed.
+     */
+    private static void discard(Future<HttpURLConnection> future) {
+        HEDGE_EXECUTOR.execute(() -> {
+            try {
+                future.get().disconnect();
+            } catch (Exception e) {
+                // it's not needed anymore anyway.
+            }
+        });
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+            return (IOException) e.getCause();
+        }
+        return new IOException(e.getCause());
+    }
+
+    /**
+     * Opens a connection for the range starting at the given offset and waits for the response header.
+     */
+    private HttpURLConnection openRange(long start) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+        con.setRequestProperty("User-Agent", Settings.USER_AGENT);
+        con.setConnectTimeout(Settings.DOWNLOAD_CONNECT_TIMEOUT_MS);
+        con.setReadTimeout(Settings.DOWNLOAD_READ_TIMEOUT_MS);
+        String range = "bytes=" + start + "-";
+        if (end >= 0) {
+            range += Long.toString(end - 1);
+        }
+        con.setRequestProperty("Range", range);
+
+        try {
+            int responseCode = con.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                long rangeStart = parseContentRangeStart(con.getHeaderField("Content-Range"));
+                if (rangeStart >= 0 && rangeStart != start) {
+                    throw new IOException("Server returned range starting at " + rangeStart + " instead of " + start);
+                }
+            } else if (responseCode != HttpURLConnection.HTTP_OK) {
+                boolean retryable = responseCode >= 500 || responseCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT || responseCode == 429;
+                String msg = "Server returned HTTP " + responseCode + " for " + url + " (" + range + ")";
+                throw retryable ? new IOException(msg) : new NonRetryableException(msg);
+            }
+        } catch (IOException e) {
+            con.disconnect();
+            throw e;
+        }
+        return con;
+    }
+
+    private static long parseContentRangeStart(String contentRange) {
+        // Content-Range: bytes 200-1000/67589
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(6, dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        byte[] buffer = new byte[0x8000];
+        while (n > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, n));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            n -= read;
+        }
+    }
+
+    private static class NonRetryableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        NonRetryableException(String message) {
+            super(message);
+        }
+    }
+}
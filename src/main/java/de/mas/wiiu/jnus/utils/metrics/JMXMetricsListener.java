@@ -0,0 +1,213 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import de.mas.wiiu.jnus.utils.BufferPool;
+import lombok.Getter;
+
+/**
+ * Collects the metrics in counters and exposes them as read-only attributes of a MBean, for example "BytesReadRemote", "ReadNanosRemote",
+ * "DecryptedBytes" or "HashNanos".
+ * 
+ * <pre>
+ * JMXMetricsListener jmx = new JMXMetricsListener();
+ * jmx.register();
+ * Metrics.setListener(jmx);
+ * </pre>
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public class JMXMetricsListener implements MetricsListener, DynamicMBean {
+    public static final String DEFAULT_OBJECT_NAME = "de.mas.wiiu.jnus:type=Metrics";
+
+    private final Map<Source, LongAdder> bytesRead = createAdders(Source.class);
+    private final Map<Source, LongAdder> readNanos = createAdders(Source.class);
+    private final Map<Counter, LongAdder> counters = createAdders(Counter.class);
+    private final Map<Stage, LongAdder> stageNanos = createAdders(Stage.class);
+
+    private final Map<String, Supplier<Long>> attributes = new LinkedHashMap<>();
+    @Getter private ObjectName objectName;
+
+    public JMXMetricsListener() {
+        for (Source s : Source.values()) {
+            attributes.put("BytesRead" + toCamelCase(s.name()), () -> getBytesRead(s));
+            attributes.put("ReadNanos" + toCamelCase(s.name()), () -> readNanos.get(s).sum());
+        }
+        for (Counter c : Counter.values()) {
+            attributes.put(toCamelCase(c.name()), () -> getCount(c));
+        }
+        for (Stage s : Stage.values()) {
+            attributes.put(toCamelCase(s.name()) + "Nanos", () -> getNanos(s));
+        }
+        // The BufferPool keeps its own statistics, they are just passed through.
+        attributes.put("BufferPoolHeapHits", () -> BufferPool.getHeapStatistics().getHits());
+        attributes.put("BufferPoolHeapMisses", () -> BufferPool.getHeapStatistics().getMisses());
+        attributes.put("BufferPoolHeapPooledBytes", () -> BufferPool.getHeapStatistics().getPooledBytes());
+        attributes.put("BufferPoolDirectHits", () -> BufferPool.getDirectStatistics().getHits());
+        attributes.put("BufferPoolDirectMisses", () -> BufferPool.getDirectStatistics().getMisses());
+        attributes.put("BufferPoolDirectPooledBytes", () -> BufferPool.getDirectStatistics().getPooledBytes());
+    }
+
+    /**
+     * Registers this listener at the platform MBeanServer with the {@link #DEFAULT_OBJECT_NAME}.
+     */
+    public void register() throws JMException {
+        register(new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+
+    public synchronized void register(ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        this.objectName = name;
+    }
+
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public void bytesRead(Source source, long bytes, long nanos) {
+        bytesRead.get(source).add(bytes);
+        readNanos.get(source).add(nanos);
+        stageNanos.get(Stage.READ).add(nanos);
+    }
+
+    @Override
+    public void count(Counter counter, long value) {
+        counters.get(counter).add(value);
+    }
+
+    @Override
+    public void time(Stage stage, long nanos) {
+        stageNanos.get(stage).add(nanos);
+    }
+
+    public long getBytesRead(Source source) {
+        return bytesRead.get(source).sum();
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    public long getNanos(Stage stage) {
+        return stageNanos.get(stage).sum();
+    }
+
+    public void reset() {
+        bytesRead.values().forEach(LongAdder::reset);
+        readNanos.values().forEach(LongAdder::reset);
+        counters.values().forEach(LongAdder::reset);
+        stageNanos.values().forEach(LongAdder::reset);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Supplier<Long> value = attributes.get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value.get();
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("All attributes are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList result = new AttributeList();
+        for (String name : names) {
+            Supplier<Long> value = attributes.get(name);
+            if (value != null) {
+                result.add(new Attribute(name, value.get()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList list) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("reset".equals(actionName) && (params == null || params.length == 0)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (String name : attributes.keySet()) {
+            infos.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Sets all counters to 0", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "JNUSLib metrics", infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] { reset },
+                null);
+    }
+
+    private static <E extends Enum<E>> Map<E, LongAdder> createAdders(Class<E> type) {
+        Map<E, LongAdder> result = new EnumMap<>(type);
+        for (E e : type.getEnumConstants()) {
+            result.put(e, new LongAdder());
+        }
+        return result;
+    }
+
+    private static String toCamelCase(String name) {
+        StringBuilder result = new StringBuilder();
+        for (String part : name.split("_")) {
+            result.append(part.charAt(0)).append(part.substring(1).toLowerCase(Locale.ROOT));
+        }
+        return result.toString();
+    }
+}
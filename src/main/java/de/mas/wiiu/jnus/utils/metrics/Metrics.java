@@ -0,0 +1,98 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.metrics;
+
+import java.io.InputStream;
+
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Counter;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Stage;
+
+/**
+ * Entry point for reporting metrics. Without a listener every call is just a check of a volatile field, the time is only taken when a listener is set.
+ * 
+ * Usage in the library:
+ * 
+ * <pre>
+ * long start = Metrics.start();
+ * // do the work
+ * Metrics.time(Stage.DECRYPT, start);
+ * </pre>
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public final class Metrics {
+    private static volatile MetricsListener listener = null;
+
+    private Metrics() {
+        // Utility class
+    }
+
+    /**
+     * Sets the listener that receives all metrics, null disables the metrics.
+     */
+    public static void setListener(MetricsListener newListener) {
+        listener = newListener;
+    }
+
+    public static MetricsListener getListener() {
+        return listener;
+    }
+
+    public static boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * Returns the start time for a measurement, 0 if metrics are disabled.
+     */
+    public static long start() {
+        return listener != null ? System.nanoTime() : 0;
+    }
+
+    public static void time(Stage stage, long start) {
+        MetricsListener cur = listener;
+        if (cur != null && start != 0) {
+            cur.time(stage, System.nanoTime() - start);
+        }
+    }
+
+    public static void count(Counter counter, long value) {
+        MetricsListener cur = listener;
+        if (cur != null) {
+            cur.count(counter, value);
+        }
+    }
+
+    public static void bytesRead(Source source, long bytes, long start) {
+        MetricsListener cur = listener;
+        if (cur != null && start != 0 && bytes > 0) {
+            cur.bytesRead(source, bytes, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reports all data that is read from the stream as read from the given source. Returns the stream itself if metrics are disabled.
+     */
+    public static InputStream wrap(InputStream in, Source source) {
+        if (listener == null) {
+            return in;
+        }
+        return new MetricsInputStream(in, source);
+    }
+}
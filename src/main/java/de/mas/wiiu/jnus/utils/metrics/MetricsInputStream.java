@@ -0,0 +1,53 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
+
+/**
+ * Reports the bytes that are read and the time spent in the read calls of the underlying stream.
+ */
+class MetricsInputStream extends FilterInputStream {
+    private final Source source;
+
+    MetricsInputStream(InputStream in, Source source) {
+        super(in);
+        this.source = source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = Metrics.start();
+        int res = super.read();
+        if (res >= 0) {
+            Metrics.bytesRead(source, 1, start);
+        }
+        return res;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = Metrics.start();
+        int res = super.read(b, off, len);
+        Metrics.bytesRead(source, res, start);
+        return res;
+    }
+}
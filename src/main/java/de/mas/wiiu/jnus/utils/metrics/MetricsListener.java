@@ -0,0 +1,76 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.metrics;
+
+/**
+ * Receives the metrics of the library. Set an implementation via {@link Metrics#setListener(MetricsListener)}, all methods are no-ops by default so an
+ * implementation only needs to override the ones it's interested in.
+ * 
+ * The methods are called from many threads at the same time and from hot loops, implementations need to be thread-safe and fast.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public interface MetricsListener {
+    /**
+     * Raw data was read from a source.
+     * 
+     * @param source
+     *            where the data came from
+     * @param bytes
+     *            number of bytes that were read
+     * @param nanos
+     *            time that was spent waiting for the data
+     */
+    default void bytesRead(Source source, long bytes, long nanos) {
+    }
+
+    default void count(Counter counter, long value) {
+    }
+
+    /**
+     * Time that was spent in a stage, the time for {@link Stage#READ} is reported via {@link #bytesRead(Source, long, long)}.
+     */
+    default void time(Stage stage, long nanos) {
+    }
+
+    public enum Source {
+        LOCAL,
+        REMOTE,
+        WUD,
+        WUX,
+        WUD_SPLITTED,
+        WOOMY,
+        WUMAD
+    }
+
+    public enum Counter {
+        /** Hashed blocks (0x10000 bytes) and chunks of non-hashed contents that were decrypted. */
+        DECRYPTED_BLOCKS,
+        DECRYPTED_BYTES,
+        HASH_VERIFICATIONS,
+        HASH_FAILURES,
+        BLOCK_CACHE_HITS,
+        BLOCK_CACHE_MISSES
+    }
+
+    public enum Stage {
+        READ,
+        DECRYPT,
+        HASH
+    }
+}
@@ -0,0 +1,202 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.zip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * Checkpoints of a DEFLATE compressed zip entry, similar to zlib's "zran" example. Each checkpoint points to a block header and stores the 32 KiB window
+ * before it, so decoding can be resumed there without inflating anything before it.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public class InflateIndex {
+    private static final int MAGIC = 0x4A5A4958; // "JZIX"
+    private static final int VERSION = 1;
+
+    @Getter private final ZipArchiveEntry entry;
+    @Getter private final long span;
+    private final List<Checkpoint> checkpoints;
+
+    @Data
+    public static class Checkpoint {
+        private final long outputOffset;
+        private final long bitOffset;
+        private final byte[] window;
+    }
+
+    private InflateIndex(ZipArchiveEntry entry, long span, List<Checkpoint> checkpoints) {
+        this.entry = entry;
+        this.span = span;
+        this.checkpoints = checkpoints;
+    }
+
+    public List<Checkpoint> getCheckpoints() {
+        return Collections.unmodifiableList(checkpoints);
+    }
+
+    /**
+     * Returns the last checkpoint at or before the given uncompressed offset.
+     */
+    public Checkpoint getCheckpointFor(long offset) {
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (checkpoints.get(mid).getOutputOffset() <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return checkpoints.get(low);
+    }
+
+    /**
+     * Inflates the whole entry once and takes a checkpoint at the first block header after every {@code span} bytes of output.
+     * 
+     * @param compressedData
+     *            the raw deflate data of the entry
+     */
+    static InflateIndex build(ZipArchiveEntry entry, InputStream compressedData, long span) throws IOException {
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        checkpoints.add(new Checkpoint(0, 0, new byte[0]));
+
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (RawInflaterInputStream in = new RawInflaterInputStream(compressedData, inflater -> {
+            long last = checkpoints.get(checkpoints.size() - 1).getOutputOffset();
+            if (inflater.getOutputPosition() - last >= span) {
+                checkpoints.add(new Checkpoint(inflater.getOutputPosition(), inflater.getBitPosition(), inflater.getWindow()));
+            }
+        })) {
+            byte[] buffer = new byte[0x10000];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        if (size != entry.getSize() || crc.getValue() != entry.getCrc()) {
+            throw new ZipException("Failed to build the inflate index of " + entry.getName() + ", the data doesn't match the central directory.");
+        }
+        log.fine("Created " + checkpoints.size() + " checkpoints for " + entry.getName());
+        return new InflateIndex(entry, span, checkpoints);
+    }
+
+    /**
+     * Loads all indices from the given file. Indices that don't match the given entries anymore are ignored, an outdated or broken file results in an empty
+     * map.
+     */
+    static Map<String, InflateIndex> load(File indexFile, File archive, Map<String, ZipArchiveEntry> entries) {
+        Map<String, InflateIndex> result = new HashMap<>();
+        if (!indexFile.isFile()) {
+            return result;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != archive.length() || in.readLong() != archive.lastModified()) {
+                log.info("Ignoring outdated inflate index " + indexFile);
+                return result;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long localHeaderOffset = in.readLong();
+                long compressedSize = in.readLong();
+                long size = in.readLong();
+                long crc = in.readLong();
+                long span = in.readLong();
+                int checkpointCount = in.readInt();
+                List<Checkpoint> checkpoints = new ArrayList<>(checkpointCount);
+                for (int j = 0; j < checkpointCount; j++) {
+                    long outputOffset = in.readLong();
+                    long bitOffset = in.readLong();
+                    byte[] window = new byte[in.readInt()];
+                    in.readFully(window);
+                    checkpoints.add(new Checkpoint(outputOffset, bitOffset, window));
+                }
+                ZipArchiveEntry entry = entries.get(name);
+                if (entry != null && entry.getLocalHeaderOffset() == localHeaderOffset && entry.getCompressedSize() == compressedSize
+                        && entry.getSize() == size && entry.getCrc() == crc && !checkpoints.isEmpty()) {
+                    result.put(name, new InflateIndex(entry, span, checkpoints));
+                }
+            }
+        } catch (IOException e) {
+            log.warning("Failed to load inflate index " + indexFile + ": " + e.getMessage());
+            result.clear();
+        }
+        return result;
+    }
+
+    /**
+     * Saves all given indices into one file. The file is replaced atomically where possible.
+     */
+    static void save(File indexFile, File archive, Map<String, InflateIndex> indices) throws IOException {
+        File tmpFile = new File(indexFile.getAbsolutePath() + ".part");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile), 0x10000))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(archive.length());
+            out.writeLong(archive.lastModified());
+            out.writeInt(indices.size());
+            for (InflateIndex index : indices.values()) {
+                ZipArchiveEntry entry = index.getEntry();
+                out.writeUTF(entry.getName());
+                out.writeLong(entry.getLocalHeaderOffset());
+                out.writeLong(entry.getCompressedSize());
+                out.writeLong(entry.getSize());
+                out.writeLong(entry.getCrc());
+                out.writeLong(index.getSpan());
+                out.writeInt(index.checkpoints.size());
+                for (Checkpoint checkpoint : index.checkpoints) {
+                    out.writeLong(checkpoint.getOutputOffset());
+                    out.writeLong(checkpoint.getBitOffset());
+                    out.writeInt(checkpoint.getWindow().length);
+                    out.write(checkpoint.getWindow());
+                }
+            }
+        }
+        try {
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Decoder for raw DEFLATE data (RFC 1951).
+ * 
+ * {@link java.util.zip.Inflater} can't be started in the middle of a stream, this one can: all it needs is the bit offset of a block header and the 32 KiB of
+ * output before it. A listener can be used to get notified at each block header, which is where such checkpoints can be taken.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+class RawInflaterInputStream extends InputStream {
+    interface BlockListener {
+        void onBlockStart(RawInflaterInputStream inflater) throws IOException;
+    }
+
+    static final int WINDOW_SIZE = 0x8000;
+    private static final int HISTORY_SIZE = 0x10000;
+    private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+    private static final int MAX_MATCH = 258;
+    private static final int MAX_PENDING = HISTORY_SIZE - WINDOW_SIZE - MAX_MATCH;
+
+    private static final int MAX_BITS = 15;
+    private static final int FAST_BITS = 10;
+    private static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+    private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227,
+            258 };
+    private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final int[] DIST_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
+            8193, 12289, 16385, 24577 };
+    private static final int[] DIST_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+    private static final int[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    private static final Huffman FIXED_LITERALS;
+    private static final Huffman FIXED_DISTANCES;
+
+    static {
+        byte[] lengths = new byte[288];
+        for (int i = 0; i < 288; i++) {
+            lengths[i] = (byte) (i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8);
+        }
+        byte[] distances = new byte[30];
+        for (int i = 0; i < 30; i++) {
+            distances[i] = 5;
+        }
+        try {
+            FIXED_LITERALS = new Huffman(lengths, 0, lengths.length);
+            FIXED_DISTANCES = new Huffman(distances, 0, distances.length);
+        } catch (ZipException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private enum State {
+        HEADER, STORED, HUFFMAN, DONE
+    }
+
+    private final InputStream in;
+    private final byte[] inBuffer = new byte[0x10000];
+    private int inPos = 0;
+    private int inLength = 0;
+    /** Bit offset of the first byte of the input stream, relative to the start of the deflate stream. */
+    private final long inputStartBit;
+    private long consumedBytes = 0;
+
+    private long bitBuffer = 0;
+    private int bitCount = 0;
+
+    private final byte[] history = new byte[HISTORY_SIZE];
+    private final long historyStart;
+    private long written;
+    private long delivered;
+
+    private State state = State.HEADER;
+    private boolean lastBlock = false;
+    private int storedRemaining;
+    private Huffman literals;
+    private Huffman distances;
+
+    private final BlockListener listener;
+
+    /**
+     * Creates a decoder for a stream that starts at the first byte of the deflate data.
+     */
+    RawInflaterInputStream(InputStream in, BlockListener listener) throws IOException {
+        this(in, 0, 0, new byte[0], listener);
+    }
+
+    /**
+     * Creates a decoder that resumes at a block header.
+     * 
+     * @param in
+     *            compressed data, starting with the byte that contains the block header
+     * @param bitOffset
+     *            bit offset of the block header relative to the start of the deflate stream
+     * @param outputOffset
+     *            uncompressed offset at the block header
+     * @param window
+     *            up to 32 KiB of uncompressed data that precede the block
+     */
+    RawInflaterInputStream(InputStream in, long bitOffset, long outputOffset, byte[] window, BlockListener listener) throws IOException {
+        this.in = in;
+        this.inputStartBit = (bitOffset / 8) * 8;
+        this.listener = listener;
+        this.written = outputOffset;
+        this.delivered = outputOffset;
+        this.historyStart = outputOffset - window.length;
+        for (int i = 0; i < window.length; i++) {
+            history[(int) (historyStart + i) & HISTORY_MASK] = window[i];
+        }
+        bits((int) (bitOffset % 8));
+    }
+
+    /**
+     * Current position in the compressed stream in bits.
+     */
+    long getBitPosition() {
+        return inputStartBit + consumedBytes * 8 - bitCount;
+    }
+
+    /**
+     * Number of uncompressed bytes that were decoded so far. This includes data that wasn't returned by read yet.
+     */
+    long getOutputPosition() {
+        return written;
+    }
+
+    /**
+     * Returns up to 32 KiB of data right before the current output position.
+     */
+    byte[] getWindow() {
+        int length = (int) Math.min(WINDOW_SIZE, written - historyStart);
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = history[(int) (written - length + i) & HISTORY_MASK];
+        }
+        return result;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buf = new byte[1];
+        int res = read(buf, 0, 1);
+        return res <= 0 ? -1 : buf[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (written == delivered) {
+            if (state == State.DONE) {
+                return -1;
+            }
+            inflate();
+        }
+        int length = (int) Math.min(len, written - delivered);
+        int pos = (int) delivered & HISTORY_MASK;
+        int first = Math.min(length, HISTORY_SIZE - pos);
+        System.arraycopy(history, pos, b, off, first);
+        if (first < length) {
+            System.arraycopy(history, 0, b, off + first, length - first);
+        }
+        delivered += length;
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) (written - delivered);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void inflate() throws IOException {
+        while (written - delivered < MAX_PENDING) {
+            switch (state) {
+            case HEADER:
+                if (lastBlock) {
+                    state = State.DONE;
+                    return;
+                }
+                if (listener != null) {
+                    listener.onBlockStart(this);
+                }
+                readBlockHeader();
+                break;
+            case STORED:
+                copyStored();
+                break;
+            case HUFFMAN:
+                decodeHuffman();
+                break;
+            case DONE:
+                return;
+            }
+        }
+    }
+
+    private void readBlockHeader() throws IOException {
+        lastBlock = bits(1) == 1;
+        int type = bits(2);
+        switch (type) {
+        case 0:
+            bits(bitCount & 7);
+            int length = bits(16);
+            int nlength = bits(16);
+            if (length != (~nlength & 0xFFFF)) {
+                throw new ZipException("Invalid stored block length");
+            }
+            storedRemaining = length;
+            state = State.STORED;
+            break;
+        case 1:
+            literals = FIXED_LITERALS;
+            distances = FIXED_DISTANCES;
+            state = State.HUFFMAN;
+            break;
+        case 2:
+            readDynamicTables();
+            state = State.HUFFMAN;
+            break;
+        default:
+            throw new ZipException("Invalid block type");
+        }
+    }
+
+    private void copyStored() throws IOException {
+        // The bit buffer only holds whole bytes after the header of a stored block.
+        while (storedRemaining > 0 && bitCount >= 8) {
+            history[(int) written++ & HISTORY_MASK] = (byte) bits(8);
+            storedRemaining--;
+        }
+        while (storedRemaining > 0 && written - delivered < MAX_PENDING) {
+            if (inPos == inLength && !refill()) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+            int pos = (int) written & HISTORY_MASK;
+            int length = Math.min(storedRemaining, inLength - inPos);
+            length = Math.min(length, HISTORY_SIZE - pos);
+            length = (int) Math.min(length, MAX_PENDING - (written - delivered));
+            System.arraycopy(inBuffer, inPos, history, pos, length);
+            inPos += length;
+            consumedBytes += length;
+            written += length;
+            storedRemaining -= length;
+        }
+        if (storedRemaining == 0) {
+            state = State.HEADER;
+        }
+    }
+
+    private void decodeHuffman() throws IOException {
+        while (written - delivered < MAX_PENDING) {
+            int symbol = decode(literals);
+            if (symbol < 256) {
+                history[(int) written++ & HISTORY_MASK] = (byte) symbol;
+            } else if (symbol == 256) {
+                state = State.HEADER;
+                return;
+            } else {
+                symbol -= 257;
+                if (symbol >= LENGTH_BASE.length) {
+                    throw new ZipException("Invalid length symbol");
+                }
+                int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+                int distSymbol = decode(distances);
+                if (distSymbol >= DIST_BASE.length) {
+                    throw new ZipException("Invalid distance symbol");
+                }
+                int distance = DIST_BASE[distSymbol] + bits(DIST_EXTRA[distSymbol]);
+                if (distance > written - historyStart) {
+                    throw new ZipException("Invalid distance too far back");
+                }
+                for (int i = 0; i < length; i++) {
+                    history[(int) written & HISTORY_MASK] = history[(int) (written - distance) & HISTORY_MASK];
+                    written++;
+                }
+            }
+        }
+    }
+
+    private void readDynamicTables() throws IOException {
+        int literalCount = bits(5) + 257;
+        int distanceCount = bits(5) + 1;
+        int codeCount = bits(4) + 4;
+        if (literalCount > 286 || distanceCount > 30) {
+            throw new ZipException("Invalid dynamic block code counts");
+        }
+
+        byte[] codeLengths = new byte[19];
+        for (int i = 0; i < codeCount; i++) {
+            codeLengths[CODE_LENGTH_ORDER[i]] = (byte) bits(3);
+        }
+        Huffman lengthCode = new Huffman(codeLengths, 0, codeLengths.length);
+
+        byte[] lengths = new byte[literalCount + distanceCount];
+        int index = 0;
+        while (index < lengths.length) {
+            int symbol = decode(lengthCode);
+            if (symbol < 16) {
+                lengths[index++] = (byte) symbol;
+                continue;
+            }
+            byte length = 0;
+            int repeat;
+            if (symbol == 16) {
+                if (index == 0) {
+                    throw new ZipException("Invalid repeat without a previous length");
+                }
+                length = lengths[index - 1];
+                repeat = 3 + bits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + bits(3);
+            } else {
+                repeat = 11 + bits(7);
+            }
+            if (index + repeat > lengths.length) {
+                throw new ZipException("Invalid code lengths");
+            }
+            while (repeat-- > 0) {
+                lengths[index++] = length;
+            }
+        }
+        if (lengths[256] == 0) {
+            throw new ZipException("Missing end of block code");
+        }
+        literals = new Huffman(lengths, 0, literalCount);
+        distances = new Huffman(lengths, literalCount, distanceCount);
+    }
+
+    private int decode(Huffman h) throws IOException {
+        if (bitCount < MAX_BITS) {
+            fillAvailable();
+        }
+        int entry = h.fast[(int) bitBuffer & FAST_MASK];
+        if (entry != 0) {
+            int length = entry & 0xF;
+            if (length > bitCount) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+            bitBuffer >>>= length;
+            bitCount -= length;
+            return entry >>> 4;
+        }
+        return decodeSlow(h);
+    }
+
+    /**
+     * Canonical decoding bit by bit, only used for codes longer than {@link #FAST_BITS}.
+     */
+    private int decodeSlow(Huffman h) throws IOException {
+        int code = 0;
+        int first = 0;
+        int index = 0;
+        long buffer = bitBuffer;
+        for (int length = 1; length <= MAX_BITS; length++) {
+            if (length > bitCount) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+            code |= (int) (buffer & 1);
+            buffer >>>= 1;
+            int count = h.count[length];
+            if (code - count < first) {
+                bitBuffer >>>= length;
+                bitCount -= length;
+                return h.symbols[index + (code - first)];
+            }
+            index += count;
+            first += count;
+            first <<= 1;
+            code <<= 1;
+        }
+        throw new ZipException("Invalid huffman code");
+    }
+
+    private int bits(int n) throws IOException {
+        while (bitCount < n) {
+            if (inPos == inLength && !refill()) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+            bitBuffer |= (long) (inBuffer[inPos++] & 0xFF) << bitCount;
+            bitCount += 8;
+            consumedBytes++;
+        }
+        int result = (int) (bitBuffer & ((1L << n) - 1));
+        bitBuffer >>>= n;
+        bitCount -= n;
+        return result;
+    }
+
+    private void fillAvailable() throws IOException {
+        while (bitCount <= 56) {
+            if (inPos == inLength && !refill()) {
+                return;
+            }
+            bitBuffer |= (long) (inBuffer[inPos++] & 0xFF) << bitCount;
+            bitCount += 8;
+            consumedBytes++;
+        }
+    }
+
+    private boolean refill() throws IOException {
+        int read = in.read(inBuffer, 0, inBuffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        inPos = 0;
+        inLength = read;
+        return true;
+    }
+
+    private static final class Huffman {
+        private final short[] count = new short[MAX_BITS + 1];
+        private final short[] symbols;
+        /** (symbol << 4) | length, indexed by the bit reversed code. 0 for codes longer than FAST_BITS. */
+        private final int[] fast = new int[1 << FAST_BITS];
+
+        Huffman(byte[] lengths, int offset, int n) throws ZipException {
+            symbols = new short[n];
+            for (int i = 0; i < n; i++) {
+                count[lengths[offset + i]]++;
+            }
+            int left = 1;
+            for (int length = 1; length <= MAX_BITS; length++) {
+                left <<= 1;
+                left -= count[length];
+                if (left < 0) {
+                    throw new ZipException("Over-subscribed huffman code");
+                }
+            }
+
+            int[] offsets = new int[MAX_BITS + 2];
+            for (int length = 1; length <= MAX_BITS; length++) {
+                offsets[length + 1] = offsets[length] + count[length];
+            }
+            int[] nextCode = new int[MAX_BITS + 1];
+            int code = 0;
+            for (int length = 2; length <= MAX_BITS; length++) {
+                code = (code + count[length - 1]) << 1;
+                nextCode[length] = code;
+            }
+            for (int symbol = 0; symbol < n; symbol++) {
+                int length = lengths[offset + symbol];
+                if (length == 0) {
+                    continue;
+                }
+                symbols[offsets[length]++] = (short) symbol;
+                int c = nextCode[length]++;
+                if (length <= FAST_BITS) {
+                    int reversed = Integer.reverse(c) >>> (32 - length);
+                    for (int k = reversed; k < fast.length; k += 1 << length) {
+                        fast[k] = (symbol << 4) | length;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /****************************************************************************
- * Copyright (C) 2016-2019 Maschell
+ * Copyright (C) 2026 JNUSLib contributors
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,38 +14,35 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  ****************************************************************************/
-package de.mas.wiiu.jnus.implementations.woomy;
+package de.mas.wiiu.jnus.utils.zip;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
-import de.mas.wiiu.jnus.utils.StreamUtils;
-import lombok.Getter;
-import lombok.Setter;
+import lombok.Data;
 
 /**
- * Woomy files are just zip files. This class is just the normal ZipFile class extended by an "isClosed" attribute.
+ * Entry of the central directory of a zip archive. In contrast to {@link ZipEntry} it also knows where the data is located inside the archive.
  * 
- * @author Maschell
+ * @author JNUSLib contributors
  *
  */
-public class WoomyZipFile extends ZipFile {
-    @Getter @Setter boolean isClosed;
+@Data
+public class ZipArchiveEntry {
+    private final String name;
+    private final int method;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
 
-    public WoomyZipFile(File file) throws ZipException, IOException {
-        super(file);
-    }
+    /** Absolute offset of the entry data, -1 until the local header was read. */
+    private volatile long dataOffset = -1;
 
-    @Override
-    public void close() throws IOException {
-        super.close();
-        setClosed(true);
+    public boolean isStored() {
+        return method == ZipEntry.STORED;
     }
 
-    public byte[] getEntryAsByte(ZipEntry entry) throws IOException {
-        return StreamUtils.getBytesFromStream(getInputStream(entry), (int) entry.getSize());
+    public boolean isDirectory() {
+        return name.endsWith("/");
     }
 }
@@ -0,0 +1,324 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.utils.FileChannelInputStream;
+import de.mas.wiiu.jnus.utils.StreamUtils;
+import lombok.Getter;
+import lombok.Synchronized;
+import lombok.extern.java.Log;
+
+/**
+ * Random access reader for zip archives. The central directory is parsed once when the reader is created. Data of STORED entries is read with positional
+ * reads from a shared FileChannel, so seeking into an entry is O(1). Compressed entries are read with a {@link ZipFile} that is opened on demand.
+ * 
+ * If the inflate index is enabled, seeking into a DEFLATE compressed entry uses an {@link InflateIndex} which is built on the first seek and saved next to the
+ * archive. Then at most {@link Settings#INFLATE_INDEX_SPAN} bytes have to be inflated to reach any offset.
+ * 
+ * All methods are thread safe.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+@Log
+public class ZipArchiveReader implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIR_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIR_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+
+    @Getter private final File file;
+    private final FileChannel channel;
+    private final Map<String, ZipArchiveEntry> entries;
+
+    private ZipFile zipFile;
+
+    private final boolean useInflateIndex;
+    private Map<String, InflateIndex> inflateIndices;
+    private final Object inflateIndexSaveLock = new Object();
+
+    public ZipArchiveReader(File file) throws IOException {
+        this(file, Settings.USE_INFLATE_INDEX);
+    }
+
+    public ZipArchiveReader(File file, boolean useInflateIndex) throws IOException {
+        this.useInflateIndex = useInflateIndex;
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.getAbsolutePath() + " does not exist.");
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.entries = Collections.unmodifiableMap(readCentralDirectory());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Collection<ZipArchiveEntry> getEntries() {
+        return entries.values();
+    }
+
+    public Optional<ZipArchiveEntry> getEntry(String name) {
+        return Optional.ofNullable(entries.get(name));
+    }
+
+    public InputStream getInputStream(ZipEntry entry, long offset) throws IOException {
+        return getInputStream(getEntry(entry.getName()).orElseThrow(() -> new FileNotFoundException(entry.getName() + " not found in " + file)), offset);
+    }
+
+    /**
+     * Returns the data of an entry, starting at the given offset of the uncompressed data.
+     */
+    public InputStream getInputStream(ZipArchiveEntry entry, long offset) throws IOException {
+        if (offset < 0 || offset > entry.getSize()) {
+            throw new EOFException("Offset " + offset + " is out of bounds for " + entry.getName() + " (" + entry.getSize() + " bytes)");
+        }
+        if (entry.isStored()) {
+            return new FileChannelInputStream(channel, getDataOffset(entry) + offset, entry.getSize() - offset);
+        }
+        if (useInflateIndex && offset >= Settings.INFLATE_INDEX_SPAN && entry.getMethod() == ZipEntry.DEFLATED) {
+            InflateIndex.Checkpoint checkpoint = getInflateIndex(entry).getCheckpointFor(offset);
+            long byteOffset = checkpoint.getBitOffset() / 8;
+            InputStream compressed = new FileChannelInputStream(channel, getDataOffset(entry) + byteOffset, entry.getCompressedSize() - byteOffset);
+            InputStream in = new RawInflaterInputStream(compressed, checkpoint.getBitOffset(), checkpoint.getOutputOffset(), checkpoint.getWindow(), null);
+            StreamUtils.skipExactly(in, offset - checkpoint.getOutputOffset());
+            return in;
+        }
+        ZipFile zip = getZipFile();
+        ZipEntry zipEntry = zip.getEntry(entry.getName());
+        if (zipEntry == null) {
+            throw new FileNotFoundException(entry.getName() + " not found in " + file);
+        }
+        InputStream in = zip.getInputStream(zipEntry);
+        StreamUtils.skipExactly(in, offset);
+        return in;
+    }
+
+    public byte[] readEntry(ZipArchiveEntry entry) throws IOException {
+        if (entry.getSize() > Integer.MAX_VALUE) {
+            throw new IOException(entry.getName() + " is too big to be read into memory.");
+        }
+        return StreamUtils.getBytesFromStream(getInputStream(entry, 0), (int) entry.getSize());
+    }
+
+    /**
+     * Returns the absolute offset of the data of a STORED entry inside the archive.
+     */
+    public long getDataOffset(ZipArchiveEntry entry) throws IOException {
+        long result = entry.getDataOffset();
+        if (result < 0) {
+            ByteBuffer header = readFully(entry.getLocalHeaderOffset(), LOCAL_HEADER_SIZE);
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid local file header for " + entry.getName());
+            }
+            int nameLength = header.getShort(26) & 0xFFFF;
+            int extraLength = header.getShort(28) & 0xFFFF;
+            result = entry.getLocalHeaderOffset() + LOCAL_HEADER_SIZE + nameLength + extraLength;
+            entry.setDataOffset(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the inflate index of a DEFLATE compressed entry. If it doesn't exist yet, the entry is inflated once to create it.
+     */
+    public InflateIndex getInflateIndex(ZipArchiveEntry entry) throws IOException {
+        Map<String, InflateIndex> indices = getInflateIndices();
+        synchronized (entry) {
+            InflateIndex index = indices.get(entry.getName());
+            if (index != null) {
+                return index;
+            }
+            log.info("Creating inflate index for " + entry.getName() + " of " + file.getName());
+            index = InflateIndex.build(entry, new FileChannelInputStream(channel, getDataOffset(entry), entry.getCompressedSize()),
+                    Settings.INFLATE_INDEX_SPAN);
+            indices.put(entry.getName(), index);
+
+            synchronized (inflateIndexSaveLock) {
+                try {
+                    InflateIndex.save(getInflateIndexFile(), file, indices);
+                } catch (IOException e) {
+                    log.warning("Failed to save the inflate index to " + getInflateIndexFile() + ": " + e.getMessage());
+                }
+            }
+            return index;
+        }
+    }
+
+    private File getInflateIndexFile() {
+        return new File(file.getAbsolutePath() + Settings.INFLATE_INDEX_EXTENTION);
+    }
+
+    @Synchronized
+    private Map<String, InflateIndex> getInflateIndices() {
+        if (inflateIndices == null) {
+            inflateIndices = new ConcurrentHashMap<>(InflateIndex.load(getInflateIndexFile(), file, entries));
+        }
+        return inflateIndices;
+    }
+
+    @Synchronized
+    private ZipFile getZipFile() throws IOException {
+        if (zipFile == null) {
+            zipFile = new ZipFile(file);
+        }
+        return zipFile;
+    }
+
+    @Override
+    @Synchronized
+    public void close() throws IOException {
+        channel.close();
+        if (zipFile != null) {
+            zipFile.close();
+            zipFile = null;
+        }
+    }
+
+    private Map<String, ZipArchiveEntry> readCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, END_OF_CENTRAL_DIR_SIZE + 0xFFFF);
+        long tailOffset = fileSize - tailSize;
+        ByteBuffer tail = readFully(tailOffset, tailSize);
+
+        int eocd = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIR_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIR_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found in " + file);
+        }
+
+        long entryCount = tail.getShort(eocd + 10) & 0xFFFF;
+        long cdSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long cdOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+
+        long locatorOffset = tailOffset + eocd - ZIP64_LOCATOR_SIZE;
+        if (locatorOffset >= 0) {
+            ByteBuffer locator = readFully(locatorOffset, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64Eocd = readFully(locator.getLong(8), 56);
+                if (zip64Eocd.getInt(0) != ZIP64_END_OF_CENTRAL_DIR_SIGNATURE) {
+                    throw new ZipException("Invalid zip64 end of central directory in " + file);
+                }
+                entryCount = zip64Eocd.getLong(32);
+                cdSize = zip64Eocd.getLong(40);
+                cdOffset = zip64Eocd.getLong(48);
+            }
+        }
+
+        if (cdSize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory of " + file + " is too big");
+        }
+        ByteBuffer cd = readFully(cdOffset, (int) cdSize);
+
+        Map<String, ZipArchiveEntry> result = new LinkedHashMap<>();
+        int pos = 0;
+        for (long i = 0; i < entryCount; i++) {
+            if (cd.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory entry in " + file);
+            }
+            int method = cd.getShort(pos + 10) & 0xFFFF;
+            long crc = cd.getInt(pos + 16) & 0xFFFFFFFFL;
+            long compressedSize = cd.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = cd.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = cd.getShort(pos + 28) & 0xFFFF;
+            int extraLength = cd.getShort(pos + 30) & 0xFFFF;
+            int commentLength = cd.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = cd.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            cd.position(pos + CENTRAL_HEADER_SIZE);
+            cd.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // Values that don't fit into 32 bit are stored in the zip64 extra field, in this order.
+            int extraPos = pos + CENTRAL_HEADER_SIZE + nameLength;
+            int extraEnd = extraPos + extraLength;
+            while (extraPos + 4 <= extraEnd) {
+                int id = cd.getShort(extraPos) & 0xFFFF;
+                int length = cd.getShort(extraPos + 2) & 0xFFFF;
+                if (id == ZIP64_EXTRA_FIELD_ID) {
+                    int fieldPos = extraPos + 4;
+                    if (size == 0xFFFFFFFFL) {
+                        size = cd.getLong(fieldPos);
+                        fieldPos += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = cd.getLong(fieldPos);
+                        fieldPos += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = cd.getLong(fieldPos);
+                    }
+                }
+                extraPos += 4 + length;
+            }
+
+            result.put(name, new ZipArchiveEntry(name, method, crc, compressedSize, size, localHeaderOffset));
+            pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        log.fine("Indexed " + result.size() + " entries of " + file);
+        return result;
+    }
+
+    private ByteBuffer readFully(long offset, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
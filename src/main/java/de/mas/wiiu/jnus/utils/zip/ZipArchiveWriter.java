@@ -0,0 +1,341 @@
+/****************************************************************************
+ * Copyright (C) 2026 JNUSLib contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ****************************************************************************/
+package de.mas.wiiu.jnus.utils.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import lombok.Data;
+import lombok.Getter;
+
+/**
+ * Writes zip archives (with zip64 support) in a single pass over the input data.
+ * 
+ * STORED entries are streamed directly into the archive, the CRC is patched into the local header afterwards. Small entries can be compressed in advance (e.g.
+ * in parallel) with {@link #compress(String, byte[])} and added with {@link #write(CompressedEntry)}.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public class ZipArchiveWriter implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIR_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int BUFFER_SIZE = 0x100000;
+
+    @Getter private final File file;
+    private final RandomAccessFile output;
+    private final List<WrittenEntry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final int dosTime;
+    private boolean closed = false;
+
+    /**
+     * A entry that was compressed in advance.
+     */
+    @Data
+    public static class CompressedEntry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+    }
+
+    @Data
+    private static class WrittenEntry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+    }
+
+    public ZipArchiveWriter(File file) throws IOException {
+        this.file = file;
+        this.output = new RandomAccessFile(file, "rw");
+        this.output.setLength(0);
+        this.dosTime = toDosTime(System.currentTimeMillis());
+    }
+
+    /**
+     * Compresses the given data. If it doesn't get smaller, the result will be STORED instead. This method doesn't touch the archive and can be called from
+     * any thread.
+     */
+    public static CompressedEntry compress(String name, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[0x10000];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            if (out.size() < data.length) {
+                return new CompressedEntry(name, ZipEntry.DEFLATED, crc.getValue(), data.length, out.toByteArray());
+            }
+        } finally {
+            deflater.end();
+        }
+        return new CompressedEntry(name, ZipEntry.STORED, crc.getValue(), data.length, data);
+    }
+
+    /**
+     * Loads and compresses the data of an entry in the background. An empty Optional is passed through, which makes it easy to skip optional files.
+     */
+    public static CompletableFuture<Optional<CompressedEntry>> compressAsync(String name, Callable<Optional<byte[]>> dataSupplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return dataSupplier.call().map(data -> compress(name, data));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Waits for the given entries and writes them in the given order.
+     * 
+     * @return names of the entries that were written
+     */
+    public List<String> writeAll(Collection<CompletableFuture<Optional<CompressedEntry>>> futures) throws IOException {
+        List<String> result = new ArrayList<>();
+        try {
+            for (CompletableFuture<Optional<CompressedEntry>> future : futures) {
+                Optional<CompressedEntry> entry = future.join();
+                if (entry.isPresent()) {
+                    write(entry.get());
+                    result.add(entry.get().getName());
+                }
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return result;
+    }
+
+    public synchronized void write(CompressedEntry entry) throws IOException {
+        long offset = writeLocalHeader(entry.getName(), entry.getMethod(), entry.getCrc(), entry.getData().length, entry.getSize());
+        output.write(entry.getData());
+        entries.add(new WrittenEntry(entry.getName(), entry.getMethod(), entry.getCrc(), entry.getData().length, entry.getSize(), offset));
+    }
+
+    /**
+     * Streams {@code size} bytes of the given InputStream into a new STORED entry.
+     */
+    public synchronized void writeStored(String name, InputStream in, long size) throws IOException {
+        long offset = writeLocalHeader(name, ZipEntry.STORED, 0, size, size);
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = size;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Expected " + size + " bytes for " + name + " but got only " + (size - remaining));
+            }
+            crc.update(buffer, 0, read);
+            output.write(buffer, 0, read);
+            remaining -= read;
+        }
+
+        long end = output.getFilePointer();
+        output.seek(offset + 14);
+        output.write(le32(crc.getValue()));
+        output.seek(end);
+
+        entries.add(new WrittenEntry(name, ZipEntry.STORED, crc.getValue(), size, size, offset));
+    }
+
+    private long writeLocalHeader(String name, int method, long crc, long compressedSize, long size) throws IOException {
+        if (closed) {
+            throw new IOException("Archive is already closed");
+        }
+        if (!names.add(name)) {
+            throw new ZipException("Duplicate entry " + name);
+        }
+        long offset = output.getFilePointer();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        boolean zip64 = compressedSize >= ZIP64_MAGIC || size >= ZIP64_MAGIC;
+
+        ByteBuffer header = ByteBuffer.allocate(30 + nameBytes.length + (zip64 ? 20 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) (zip64 ? 45 : 20));
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) method);
+        header.putInt(dosTime);
+        header.putInt((int) crc);
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : compressedSize));
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : size));
+        header.putShort((short) nameBytes.length);
+        header.putShort((short) (zip64 ? 20 : 0));
+        header.put(nameBytes);
+        if (zip64) {
+            header.putShort((short) ZIP64_EXTRA_FIELD_ID);
+            header.putShort((short) 16);
+            header.putLong(size);
+            header.putLong(compressedSize);
+        }
+        output.write(header.array());
+        return offset;
+    }
+
+    /**
+     * Writes the central directory and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long cdOffset = output.getFilePointer();
+            ByteArrayOutputStream cd = new ByteArrayOutputStream();
+            for (WrittenEntry entry : entries) {
+                cd.write(centralHeader(entry));
+            }
+            output.write(cd.toByteArray());
+            long cdSize = cd.size();
+            long cdEnd = output.getFilePointer();
+
+            boolean zip64 = entries.size() >= 0xFFFF || cdOffset >= ZIP64_MAGIC || cdSize >= ZIP64_MAGIC;
+            if (zip64) {
+                ByteBuffer eocd64 = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+                eocd64.putInt(ZIP64_END_OF_CENTRAL_DIR_SIGNATURE);
+                eocd64.putLong(44);
+                eocd64.putShort((short) 45);
+                eocd64.putShort((short) 45);
+                eocd64.putInt(0);
+                eocd64.putInt(0);
+                eocd64.putLong(entries.size());
+                eocd64.putLong(entries.size());
+                eocd64.putLong(cdSize);
+                eocd64.putLong(cdOffset);
+                // locator
+                eocd64.putInt(ZIP64_LOCATOR_SIGNATURE);
+                eocd64.putInt(0);
+                eocd64.putLong(cdEnd);
+                eocd64.putInt(1);
+                output.write(eocd64.array());
+            }
+
+            ByteBuffer eocd = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            eocd.putInt(END_OF_CENTRAL_DIR_SIGNATURE);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) (zip64 ? 0xFFFF : entries.size()));
+            eocd.putShort((short) (zip64 ? 0xFFFF : entries.size()));
+            eocd.putInt((int) (zip64 ? ZIP64_MAGIC : cdSize));
+            eocd.putInt((int) (zip64 ? ZIP64_MAGIC : cdOffset));
+            eocd.putShort((short) 0);
+            output.write(eocd.array());
+        } finally {
+            output.close();
+        }
+    }
+
+    private byte[] centralHeader(WrittenEntry entry) {
+        byte[] nameBytes = entry.getName().getBytes(StandardCharsets.UTF_8);
+        boolean sizeZip64 = entry.getSize() >= ZIP64_MAGIC || entry.getCompressedSize() >= ZIP64_MAGIC;
+        boolean offsetZip64 = entry.getLocalHeaderOffset() >= ZIP64_MAGIC;
+        int extraLength = (sizeZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+        if (extraLength > 0) {
+            extraLength += 4;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(46 + nameBytes.length + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(CENTRAL_HEADER_SIGNATURE);
+        header.putShort((short) 45);
+        header.putShort((short) (extraLength > 0 ? 45 : 20));
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) entry.getMethod());
+        header.putInt(dosTime);
+        header.putInt((int) entry.getCrc());
+        header.putInt((int) (sizeZip64 ? ZIP64_MAGIC : entry.getCompressedSize()));
+        header.putInt((int) (sizeZip64 ? ZIP64_MAGIC : entry.getSize()));
+        header.putShort((short) nameBytes.length);
+        header.putShort((short) extraLength);
+        header.putShort((short) 0); // comment
+        header.putShort((short) 0); // disk
+        header.putShort((short) 0); // internal attributes
+        header.putInt(0); // external attributes
+        header.putInt((int) (offsetZip64 ? ZIP64_MAGIC : entry.getLocalHeaderOffset()));
+        header.put(nameBytes);
+        if (extraLength > 0) {
+            header.putShort((short) ZIP64_EXTRA_FIELD_ID);
+            header.putShort((short) (extraLength - 4));
+            if (sizeZip64) {
+                header.putLong(entry.getSize());
+                header.putLong(entry.getCompressedSize());
+            }
+            if (offsetZip64) {
+                header.putLong(entry.getLocalHeaderOffset());
+            }
+        }
+        return header.array();
+    }
+
+    private static byte[] le32(long value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) value).array();
+    }
+
+    private static int toDosTime(long time) {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(time);
+        int year = Math.max(1980, c.get(Calendar.YEAR));
+        return ((year - 1980) << 25) | ((c.get(Calendar.MONTH) + 1) << 21) | (c.get(Calendar.DAY_OF_MONTH) << 16) | (c.get(Calendar.HOUR_OF_DAY) << 11)
+                | (c.get(Calendar.MINUTE) << 5) | (c.get(Calendar.SECOND) >> 1);
+    }
+}
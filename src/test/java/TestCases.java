@@ -1,30 +1,102 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.sun.net.httpserver.HttpServer;
+
+import de.mas.wiiu.jnus.DecryptionService;
+import de.mas.wiiu.jnus.ExtractionService;
 import de.mas.wiiu.jnus.NUSTitle;
+import de.mas.wiiu.jnus.NUSTitleConfig;
+import de.mas.wiiu.jnus.NUSTitleLoader;
 import de.mas.wiiu.jnus.NUSTitleLoaderLocal;
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.TitleVerifier;
+import de.mas.wiiu.jnus.WUDLoader;
+import de.mas.wiiu.jnus.WumadLoader;
 import de.mas.wiiu.jnus.entities.content.Content;
+import de.mas.wiiu.jnus.entities.fst.FST;
+import de.mas.wiiu.jnus.entities.fst.FSTEntry;
+import de.mas.wiiu.jnus.implementations.DefaultNUSDataProcessor;
+import de.mas.wiiu.jnus.implementations.FSTDataProviderNUSTitle;
+import de.mas.wiiu.jnus.implementations.NUSDataProviderWoomy;
+import de.mas.wiiu.jnus.implementations.woomy.WoomyInfo;
+import de.mas.wiiu.jnus.implementations.woomy.WoomyParser;
+import de.mas.wiiu.jnus.implementations.woomy.WoomyWriter;
+import de.mas.wiiu.jnus.implementations.wud.parser.WUDInfo;
+import de.mas.wiiu.jnus.implementations.wud.reader.WUDDiscReaderSplitted;
+import de.mas.wiiu.jnus.implementations.wud.wumad.WumadWriter;
+import de.mas.wiiu.jnus.interfaces.FSTDataProvider;
 import de.mas.wiiu.jnus.interfaces.NUSDataProcessor;
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator;
+import de.mas.wiiu.jnus.synthetic.SyntheticTitleGenerator.GeneratedTitle;
+import de.mas.wiiu.jnus.utils.BlockReader;
+import de.mas.wiiu.jnus.utils.BufferPool;
+import de.mas.wiiu.jnus.utils.CancellationToken;
+import de.mas.wiiu.jnus.utils.ExecutorUtils;
+import de.mas.wiiu.jnus.utils.ExtractionManifest;
+import de.mas.wiiu.jnus.utils.FSTUtils;
 import de.mas.wiiu.jnus.utils.HashUtil;
+import de.mas.wiiu.jnus.utils.OperationCancelledException;
+import de.mas.wiiu.jnus.utils.StreamUtils;
 import de.mas.wiiu.jnus.utils.Utils;
+import de.mas.wiiu.jnus.utils.delta.BinaryDiff;
+import de.mas.wiiu.jnus.utils.delta.TitleDelta;
+import de.mas.wiiu.jnus.utils.download.ResumableRangeInputStream;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveEntry;
+import de.mas.wiiu.jnus.utils.zip.ZipArchiveReader;
+import de.mas.wiiu.jnus.utils.metrics.JMXMetricsListener;
+import de.mas.wiiu.jnus.utils.metrics.Metrics;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Counter;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Source;
+import de.mas.wiiu.jnus.utils.metrics.MetricsListener.Stage;
 
 public class TestCases {
+    private static final byte[] COMMON_KEY = Utils.StringToByteArray("00112233445566778899AABBCCDDEEFF");
+
     @Rule public TemporaryFolder folder = new TemporaryFolder();
 
     @Test
@@ -397,4 +469,815 @@ public class TestCases {
 
         }
     }
+
+    @Test
+    public void globAndPrefixQueriesMatchRegEx() throws ParseException {
+        FST fst = FST.parseFST(SyntheticTitleGenerator.createFST(10, 100, 100, 0x40));
+        FSTEntry root = fst.getRoot();
+        assertEquals(1 + 10 + 10 * 100 + 10 * 100 * 100, root.getEntryCount());
+
+        String[][] queries = { //
+                { "/dir0*/sub01?/*.szs", "/dir0[^/]*/sub01[^/]/[^/]*\\.szs" }, //
+                { "/**/file00?.bin", ".*/file00[^/]\\.bin" }, //
+                { "/dir05/**", "/dir05/.*" }, //
+                { "/dir0?/sub099/file099.szs", "/dir0[^/]/sub099/file099\\.szs" }, //
+                { "/**/*/**/*.szs", "/.*/[^/]*\\.szs" } };
+        for (String[] query : queries) {
+            List<FSTEntry> byGlob = FSTUtils.getFSTEntriesByGlob(root, query[0], false);
+            List<FSTEntry> byRegEx = FSTUtils.getFSTEntriesByRegEx(root, query[1], false);
+
+            assertTrue(byGlob.size() > 0);
+            // Compare the lists, a set would hide duplicates.
+            assertEquals(query[0], byRegEx.size(), byGlob.size());
+            assertEquals(query[0], byRegEx, byGlob);
+        }
+
+        List<FSTEntry> byPrefix = FSTUtils.getFSTEntriesByPathPrefix(root, "/dir03/sub04", false);
+        assertEquals(FSTUtils.getFSTEntriesByRegEx(root, "/dir03/sub04.*", false), byPrefix);
+        assertEquals(10 * 100, byPrefix.size());
+    }
+
+    @Test
+    public void generatedTitleLoadsFromNUSFiles() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(48);
+        generator.setNonHashedContentCount(2);
+        generator.setHashedContentCount(2);
+        generator.setFileSizeDistribution(SyntheticTitleGenerator.logNormal(0x4000, 1.5, 0x40000));
+        GeneratedTitle generated = generator.generate();
+
+        File out = writeNUSFiles(generated, "nus");
+
+        NUSTitle title = loadNUSTitle(out);
+        assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(title));
+    }
+
+    @Test
+    public void generatedTitleLoadsFromWUDImages() throws Exception {
+        byte[] discKey = Utils.StringToByteArray("FFEEDDCCBBAA99887766554433221100");
+        SyntheticTitleGenerator generator = newGenerator(20);
+        GeneratedTitle generated = generator.generate();
+
+        long imageSize = 0x2000000;
+        long oldSplittedFileSize = WUDDiscReaderSplitted.WUD_SPLITTED_FILE_SIZE;
+        WUDDiscReaderSplitted.WUD_SPLITTED_FILE_SIZE = 0x800000;
+        try {
+            File[] images = { generated.writeWUD(folder.newFolder("wud"), discKey, imageSize),
+                    generated.writeWUX(folder.newFolder("wux"), discKey, imageSize),
+                    generated.writeSplittedWUD(folder.newFolder("splitted"), discKey, imageSize) };
+            for (File image : images) {
+                WUDInfo wudInfo = WUDLoader.load(image.getAbsolutePath());
+                List<NUSTitle> titles = WUDLoader.getGamePartionsAsNUSTitles(wudInfo, COMMON_KEY);
+                assertEquals(1, titles.size());
+                assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(titles.get(0)));
+            }
+        } finally {
+            WUDDiscReaderSplitted.WUD_SPLITTED_FILE_SIZE = oldSplittedFileSize;
+        }
+    }
+
+    @Test
+    public void metricsAreReportedToJMX() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(16);
+        GeneratedTitle generated = generator.generate();
+        File out = writeNUSFiles(generated, "metrics");
+
+        JMXMetricsListener metrics = new JMXMetricsListener();
+        metrics.register();
+        Metrics.setListener(metrics);
+        try {
+            NUSTitle title = loadNUSTitle(out);
+            assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(title));
+
+            assertTrue(metrics.getBytesRead(Source.LOCAL) > 0);
+            assertTrue(metrics.getCount(Counter.DECRYPTED_BLOCKS) > 0);
+            assertTrue(metrics.getCount(Counter.HASH_VERIFICATIONS) > 0);
+            assertEquals(0, metrics.getCount(Counter.HASH_FAILURES));
+            assertTrue(metrics.getNanos(Stage.DECRYPT) > 0);
+
+            Object decryptedBytes = ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "DecryptedBytes");
+            assertEquals(metrics.getCount(Counter.DECRYPTED_BYTES), decryptedBytes);
+        } finally {
+            Metrics.setListener(null);
+            metrics.unregister();
+        }
+    }
+
+    @Test
+    public void decryptionReportsProgressAndCanBeCancelled() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(32);
+        generator.setFileSizeDistribution(SyntheticTitleGenerator.uniform(0x10000, 0x40000));
+        GeneratedTitle generated = generator.generate();
+        File in = writeNUSFiles(generated, "progress");
+        NUSTitle title = loadNUSTitle(in);
+
+        long oldInterval = Settings.PROGRESS_INTERVAL_MS;
+        Settings.PROGRESS_INTERVAL_MS = 0;
+        try {
+            AtomicLong lastDone = new AtomicLong();
+            AtomicLong lastTotal = new AtomicLong();
+            DecryptionService decrypt = DecryptionService.getInstance(new FSTDataProviderNUSTitle(title));
+            decrypt.setProgressListener((operation, done, total, rate) -> {
+                lastDone.set(done);
+                lastTotal.set(total);
+            });
+            decrypt.decryptAllFSTEntriesTo(folder.newFolder("progress_out").getAbsolutePath(), false);
+            assertTrue(lastTotal.get() > 0);
+            assertEquals(lastTotal.get(), lastDone.get());
+
+            CancellationToken token = new CancellationToken();
+            decrypt.setCancellationToken(token);
+            decrypt.setProgressListener((operation, done, total, rate) -> token.cancel());
+            File cancelled = folder.newFolder("progress_cancelled");
+            try {
+                decrypt.decryptAllFSTEntriesTo(cancelled.getAbsolutePath(), false);
+                Assert.fail("The decryption was not cancelled");
+            } catch (OperationCancelledException e) {
+                // expected
+            }
+            try (Stream<Path> files = Files.walk(cancelled.toPath())) {
+                assertFalse(files.anyMatch(p -> p.toString().endsWith(".part")));
+            }
+
+            // Content runs of small files on multiple threads, the future only fails once all runs have stopped.
+            generator = newGenerator(256);
+            generator.setNonHashedContentCount(4);
+            generator.setHashedContentCount(4);
+            generator.setFileSizeDistribution(SyntheticTitleGenerator.uniform(0x100, 0x8000));
+            title = loadNUSTitle(writeNUSFiles(generator.generate(), "progress_small"));
+            FSTDataProvider smallProvider = new FSTDataProviderNUSTitle(title);
+            decrypt = DecryptionService.getInstance(smallProvider);
+            CancellationToken smallToken = new CancellationToken();
+            decrypt.setCancellationToken(smallToken);
+            decrypt.setMaxInFlight(4);
+            decrypt.setProgressListener((operation, done, total, rate) -> {
+                if (done > total / 4) {
+                    smallToken.cancel();
+                }
+            });
+            File cancelledSmall = folder.newFolder("progress_small_cancelled");
+            List<FSTEntry> entries = FSTUtils.getAllFSTEntryChildrenAsStream(smallProvider.getRoot()).collect(Collectors.toList());
+            try {
+                decrypt.decryptFSTEntryListToAsync(true, entries, cancelledSmall.getAbsolutePath(), false).get();
+                Assert.fail("The decryption was not cancelled");
+            } catch (ExecutionException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof OperationCancelledException);
+            }
+            try (Stream<Path> files = Files.walk(cancelledSmall.toPath())) {
+                assertFalse(files.anyMatch(p -> p.toString().endsWith(".part")));
+            }
+        } finally {
+            Settings.PROGRESS_INTERVAL_MS = oldInterval;
+        }
+    }
+
+    @Test
+    public void boundedRunnerWaitsForRunningTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger startedTasks = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Void> result = ExecutorUtils.runBounded(Arrays.asList(0, 1, 2, 3), 2, executor, i -> {
+                startedTasks.incrementAndGet();
+                if (i == 0) {
+                    await(started);
+                    throw new IOException("failed");
+                }
+                started.countDown();
+                await(release);
+            });
+            Thread.sleep(100);
+            assertFalse("The result completed while a task was still running", result.isDone());
+            release.countDown();
+            try {
+                result.get();
+                Assert.fail("The failure was not reported");
+            } catch (ExecutionException e) {
+                assertEquals("failed", e.getCause().getMessage());
+            }
+            assertEquals(2, startedTasks.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Tasks that run on the calling thread must not nest the calls for the following items.
+        AtomicInteger count = new AtomicInteger();
+        ExecutorUtils.runBounded(Collections.nCopies(100000, 0), 4, Runnable::run, i -> count.incrementAndGet()).get();
+        assertEquals(100000, count.get());
+    }
+
+    @Test
+    public void localContentsAreCopiedViaChannels() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(16);
+        generator.setNonHashedContentCount(1);
+        generator.setHashedContentCount(1);
+        GeneratedTitle generated = generator.generate();
+        File in = writeNUSFiles(generated, "channel");
+        NUSTitle title = loadNUSTitle(in);
+
+        for (Content content : title.getTMD().getAllContents().values()) {
+            Optional<FileChannel> channel = title.getDataProcessor().getDataProvider().openRawContentChannel(content);
+            assertTrue(channel.isPresent());
+            channel.get().close();
+        }
+
+        File out = folder.newFolder("channel_out");
+        AtomicLong lastDone = new AtomicLong();
+        ExtractionService extract = ExtractionService.getInstance(title);
+        extract.setProgressListener((operation, done, total, rate) -> lastDone.set(done));
+        extract.extractAllEncryptedContentFilesWithHashesTo(out.getAbsolutePath());
+
+        long total = 0;
+        for (Content content : title.getTMD().getAllContents().values()) {
+            total += content.getEncryptedFileSizeAligned();
+            Assert.assertArrayEquals(Files.readAllBytes(new File(in, content.getFilename()).toPath()),
+                    Files.readAllBytes(new File(out, content.getFilename()).toPath()));
+        }
+        assertEquals(total, lastDone.get());
+    }
+
+    @Test
+    public void generatedTitleLoadsFromMappedNUSFiles() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(48);
+        generator.setNonHashedContentCount(2);
+        generator.setHashedContentCount(2);
+        generator.setFileSizeDistribution(SyntheticTitleGenerator.logNormal(0x4000, 1.5, 0x40000));
+        GeneratedTitle generated = generator.generate();
+
+        File out = writeNUSFiles(generated, "nus_mapped");
+
+        int oldRegionSize = Settings.MAPPED_REGION_SIZE;
+        // Small regions, so reads that cross a region boundary are tested as well.
+        Settings.MAPPED_REGION_SIZE = 0x1000;
+        try {
+            NUSTitle title = NUSTitleLoaderLocal.loadNUSTitleMapped(out.getAbsolutePath(), COMMON_KEY);
+            assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(title));
+            title.cleanup();
+        } finally {
+            Settings.MAPPED_REGION_SIZE = oldRegionSize;
+        }
+    }
+
+    @Test
+    public void titleVerifierReportsCorruptedContents() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(32);
+        generator.setNonHashedContentCount(2);
+        generator.setHashedContentCount(2);
+        generator.setFileSizeDistribution(SyntheticTitleGenerator.uniform(0x8000, 0x40000));
+        GeneratedTitle generated = generator.generate();
+        File in = writeNUSFiles(generated, "verify");
+
+        NUSTitle title = loadNUSTitle(in);
+        List<TitleVerifier.ContentResult> results = TitleVerifier.getInstance(title).verifyAll();
+        assertEquals(title.getTMD().getAllContents().size(), results.size());
+        for (TitleVerifier.ContentResult result : results) {
+            assertTrue(result.toString(), result.isValid());
+        }
+
+        Content hashed = null;
+        Content nonHashed = null;
+        for (Content c : title.getTMD().getAllContents().values()) {
+            if (c.isHashed()) {
+                hashed = c;
+            } else if (c.getIndex() != 0) {
+                nonHashed = c;
+            }
+        }
+        // The blocks in the cache of the data processor must not hide the corruption.
+        title.getDataProcessor().readPlainDecryptedContent(hashed, false);
+        for (Content c : Arrays.asList(hashed, nonHashed)) {
+            try (RandomAccessFile file = new RandomAccessFile(new File(in, c.getFilename()), "rw")) {
+                file.seek(0x8000);
+                int b = file.read();
+                file.seek(0x8000);
+                file.write(b ^ 0xFF);
+            }
+        }
+
+        for (TitleVerifier.ContentResult result : TitleVerifier.getInstance(title).verifyAll()) {
+            boolean corrupted = result.getContent().getID() == hashed.getID() || result.getContent().getID() == nonHashed.getID();
+            assertEquals(result.toString(), corrupted ? TitleVerifier.Status.HASH_MISMATCH : TitleVerifier.Status.VALID, result.getStatus());
+        }
+    }
+
+    @Test
+    public void corruptedNonHashedContentIsNotExtracted() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(32);
+        generator.setNonHashedContentCount(2);
+        generator.setFileSizeDistribution(SyntheticTitleGenerator.uniform(0x1000, 0x40000));
+        GeneratedTitle generated = generator.generate();
+        File in = writeNUSFiles(generated, "corrupted");
+        NUSTitle title = loadNUSTitle(in);
+
+        Content corrupted = title.getTMD().getAllContents().values().stream().filter(c -> c.getIndex() != 0 && !c.isHashed()).findFirst().get();
+        try (RandomAccessFile file = new RandomAccessFile(new File(in, corrupted.getFilename()), "rw")) {
+            file.seek(0x20);
+            int b = file.read();
+            file.seek(0x20);
+            file.write(b ^ 0xFF);
+        }
+
+        File out = folder.newFolder("corrupted_out");
+        try {
+            DecryptionService.getInstance(new FSTDataProviderNUSTitle(title)).decryptAllFSTEntriesTo(out.getAbsolutePath(), false);
+            Assert.fail("The corrupted content was extracted");
+        } catch (IOException e) {
+            // expected
+        }
+        List<FSTEntry> entries = title.getAllFSTEntriesAsStream().filter(e -> !e.isDir() && e.getContentIndex() == corrupted.getIndex())
+                .collect(Collectors.toList());
+        assertFalse(entries.isEmpty());
+        for (FSTEntry entry : entries) {
+            assertFalse(entry.getFullPath(), new File(out, entry.getFullPath()).exists());
+        }
+        try (Stream<Path> files = Files.walk(out.toPath())) {
+            assertFalse(files.anyMatch(p -> p.toString().endsWith(".part")));
+        }
+    }
+
+    @Test
+    public void downloadResumesAfterAStalledConnection() throws Exception {
+        byte[] data = new byte[0x20000];
+        new java.util.Random(3).nextBytes(data);
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (data.length - 1) + "/" + data.length);
+            exchange.sendResponseHeaders(206, data.length - start);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (requests.getAndIncrement() == 0) {
+                    // Send a part and then stall until the client gives up.
+                    out.write(data, start, 0x8000);
+                    out.flush();
+                    Thread.sleep(3000);
+                } else {
+                    out.write(data, start, data.length - start);
+                }
+            } catch (InterruptedException | IOException e) {
+                // the client is gone
+            }
+        });
+        server.start();
+
+        int oldTimeout = Settings.DOWNLOAD_READ_TIMEOUT_MS;
+        long oldDelay = Settings.DOWNLOAD_RETRY_BASE_DELAY_MS;
+        Settings.DOWNLOAD_READ_TIMEOUT_MS = 300;
+        Settings.DOWNLOAD_RETRY_BASE_DELAY_MS = 10;
+        try (InputStream in = new ResumableRangeInputStream("http://127.0.0.1:" + server.getAddress().getPort() + "/content", 0, data.length)) {
+            byte[] result = new byte[data.length];
+            new DataInputStream(in).readFully(result);
+            Assert.assertArrayEquals(data, result);
+            assertEquals(2, requests.get());
+        } finally {
+            Settings.DOWNLOAD_READ_TIMEOUT_MS = oldTimeout;
+            Settings.DOWNLOAD_RETRY_BASE_DELAY_MS = oldDelay;
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void hedgedDownloadDisconnectsTheSlowerRequest() throws Exception {
+        byte[] data = new byte[0x20000];
+        new java.util.Random(5).nextBytes(data);
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch slowRequestClosed = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            if (requests.getAndIncrement() == 0) {
+                // Answers after the hedged request and then sends more than the socket buffers can hold, this only ends once the client disconnects.
+                try {
+                    Thread.sleep(500);
+                    exchange.sendResponseHeaders(200, 0);
+                    byte[] chunk = new byte[0x100000];
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        for (int i = 0; i < 256; i++) {
+                            out.write(chunk);
+                        }
+                    }
+                } catch (InterruptedException | IOException e) {
+                    slowRequestClosed.countDown();
+                }
+                return;
+            }
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+        });
+        server.start();
+
+        long oldHedgeDelay = Settings.DOWNLOAD_HEDGE_DELAY_MS;
+        Settings.DOWNLOAD_HEDGE_DELAY_MS = 100;
+        try (InputStream in = new ResumableRangeInputStream("http://127.0.0.1:" + server.getAddress().getPort() + "/content", 0, data.length)) {
+            byte[] result = new byte[data.length];
+            new DataInputStream(in).readFully(result);
+            Assert.assertArrayEquals(data, result);
+            assertEquals(2, requests.get());
+            assertTrue("The slower request was not disconnected", slowRequestClosed.await(10, TimeUnit.SECONDS));
+        } finally {
+            Settings.DOWNLOAD_HEDGE_DELAY_MS = oldHedgeDelay;
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void bufferPoolReusesBuffers() throws Exception {
+        BufferPool.clear();
+        BufferPool.Statistics before = BufferPool.getHeapStatistics();
+
+        byte[] buffer = BufferPool.acquire(0x7000);
+        assertEquals(0x8000, buffer.length);
+        BufferPool.release(buffer);
+        assertTrue(buffer == BufferPool.acquire(0x8000));
+        BufferPool.release(buffer);
+
+        byte[] tooBig = BufferPool.acquire(BufferPool.MAX_SIZE + 1);
+        assertEquals(BufferPool.MAX_SIZE + 1, tooBig.length);
+        BufferPool.release(tooBig);
+
+        BufferPool.Statistics after = BufferPool.getHeapStatistics();
+        assertTrue(after.getHits() - before.getHits() >= 1);
+        assertTrue(after.getDiscarded() - before.getDiscarded() >= 1);
+        assertTrue(after.getPooledBytes() >= 0x8000);
+
+        ByteBuffer direct = BufferPool.acquireDirect(0x1234);
+        assertTrue(direct.isDirect());
+        assertEquals(0x1234, direct.remaining());
+        BufferPool.releaseDirect(direct);
+        assertTrue(direct == BufferPool.acquireDirect(0x2000));
+        BufferPool.releaseDirect(direct);
+
+        // Decrypting a title borrows and returns buffers for each stream.
+        SyntheticTitleGenerator generator = newGenerator(16);
+        GeneratedTitle generated = generator.generate();
+        File out = writeNUSFiles(generated, "pool");
+        long hits = BufferPool.getHeapStatistics().getHits();
+        assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(loadNUSTitle(out)));
+        assertTrue(BufferPool.getHeapStatistics().getHits() > hits);
+    }
+
+    @Test
+    public void blockReaderFillsWholeBlocks() throws IOException {
+        byte[] data = new byte[0x10000 * 3 + 0x123];
+        new java.util.Random(7).nextBytes(data);
+        // Returns at most 0x777 bytes per read.
+        InputStream in = new java.io.ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 0x777));
+            }
+        };
+        BlockReader reader = new BlockReader(in);
+        byte[] block = new byte[0x10000];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int read;
+        int blocks = 0;
+        while ((read = reader.read(block, 0, block.length)) > 0) {
+            assertTrue(read == block.length || reader.isEOF());
+            out.write(block, 0, read);
+            blocks++;
+        }
+        assertEquals(4, blocks);
+        assertEquals(-1, reader.read(block, 0, block.length));
+        Assert.assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void titleDeltaRecreatesTheNewVersion() throws Exception {
+        java.util.Random random = new java.util.Random(11);
+        byte[] unchanged = new byte[0x3000];
+        byte[] moved = new byte[0x2000];
+        byte[] patchedOld = new byte[0x6000];
+        byte[] removed = new byte[0x1000];
+        byte[] added = new byte[0x1800];
+        for (byte[] data : Arrays.asList(unchanged, moved, patchedOld, removed, added)) {
+            random.nextBytes(data);
+        }
+        byte[] patchedNew = patchedOld.clone();
+        for (int i = 0x100; i < 0x180; i++) {
+            patchedNew[i] ^= 0x5A;
+        }
+        patchedNew[0x4321] ^= 0x01;
+
+        Map<String, byte[]> oldFiles = new LinkedHashMap<>();
+        oldFiles.put("/a/unchanged.bin", unchanged);
+        oldFiles.put("/a/moved.bin", moved);
+        oldFiles.put("/a/patched.bin", patchedOld);
+        oldFiles.put("/b/removed.bin", removed);
+        Map<String, byte[]> newFiles = new LinkedHashMap<>();
+        newFiles.put("/a/unchanged.bin", unchanged);
+        newFiles.put("/a/patched.bin", patchedNew);
+        newFiles.put("/b/new.bin", added);
+        newFiles.put("/c/moved.bin", moved);
+
+        NUSTitle oldTitle = loadNUSTitle(writeNUSFiles(generateFixedFiles(oldFiles, 0), "delta_old"));
+        NUSTitle newTitle = loadNUSTitle(writeNUSFiles(generateFixedFiles(newFiles, 1), "delta_new"));
+
+        File delta = folder.newFile("title.delta");
+        TitleDelta.Summary created;
+        try (OutputStream out = new FileOutputStream(delta)) {
+            created = TitleDelta.create(oldTitle, newTitle, out);
+        }
+        assertEquals(1, created.getUnchangedFiles());
+        assertEquals(1, created.getMovedFiles());
+        assertEquals(1, created.getPatchedFiles());
+        assertEquals(1, created.getNewFiles());
+        assertEquals(2, created.getRemovedFiles());
+        assertEquals(2, created.getReusedContents().size());
+        assertTrue(delta.length() < patchedNew.length);
+
+        File out = folder.newFolder("delta_out");
+        TitleDelta.Summary applied;
+        try (InputStream in = new FileInputStream(delta)) {
+            applied = TitleDelta.apply(in, new FSTDataProviderNUSTitle(oldTitle), out.getAbsolutePath());
+        }
+        assertEquals(created.getUnchangedFiles(), applied.getUnchangedFiles());
+        assertEquals(created.getMovedFiles(), applied.getMovedFiles());
+        assertEquals(created.getPatchedFiles(), applied.getPatchedFiles());
+        assertEquals(created.getNewFiles(), applied.getNewFiles());
+        for (Entry<String, byte[]> file : newFiles.entrySet()) {
+            Assert.assertArrayEquals(file.getKey(), file.getValue(), Files.readAllBytes(new File(out, file.getKey()).toPath()));
+        }
+        assertFalse(new File(out, "/a/moved.bin").exists());
+        assertFalse(new File(out, "/b/removed.bin").exists());
+
+        // Applied to another version, the patched file is created from the wrong data.
+        byte[] otherData = new byte[patchedOld.length];
+        random.nextBytes(otherData);
+        oldFiles.put("/a/patched.bin", otherData);
+        NUSTitle otherTitle = loadNUSTitle(writeNUSFiles(generateFixedFiles(oldFiles, 0), "delta_other"));
+        try (InputStream in = new FileInputStream(delta)) {
+            TitleDelta.apply(in, new FSTDataProviderNUSTitle(otherTitle), folder.newFolder("delta_other_out").getAbsolutePath());
+            Assert.fail("The delta was applied to the wrong version");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Hash of /a/patched.bin"));
+        }
+
+        // A moved file that has other data in the old title is noticed without a hash of its data.
+        oldFiles.put("/a/patched.bin", patchedOld);
+        oldFiles.put("/a/moved.bin", otherData);
+        NUSTitle otherMoved = loadNUSTitle(writeNUSFiles(generateFixedFiles(oldFiles, 0), "delta_other_moved"));
+        try (InputStream in = new FileInputStream(delta)) {
+            TitleDelta.apply(in, new FSTDataProviderNUSTitle(otherMoved), folder.newFolder("delta_other_moved_out").getAbsolutePath());
+            Assert.fail("The delta was applied to the wrong version");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Location of /a/moved.bin"));
+        }
+
+        NUSTitle newerTitle = loadNUSTitle(writeNUSFiles(generateFixedFiles(newFiles, 2), "delta_newer"));
+        try (InputStream in = new FileInputStream(delta)) {
+            TitleDelta.apply(in, new FSTDataProviderNUSTitle(newerTitle), folder.newFolder("delta_newer_out").getAbsolutePath());
+            Assert.fail("The delta was applied to the wrong version");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("The delta was created for"));
+        }
+
+        // Paths of a broken delta must not leave the output folder.
+        ByteArrayOutputStream evil = new ByteArrayOutputStream();
+        try (DataOutputStream evilOut = new DataOutputStream(evil)) {
+            evilOut.writeInt(0x4A4E4454);
+            evilOut.writeInt(1);
+            evilOut.writeLong(oldTitle.getTMD().getTitleID());
+            evilOut.writeShort(0);
+            evilOut.writeShort(1);
+            evilOut.writeInt(0);
+            evilOut.writeInt(0);
+            evilOut.writeInt(1);
+            evilOut.writeUTF("/../escaped");
+            evilOut.writeInt(0);
+        }
+        File evilOutput = folder.newFolder("delta_evil", "out");
+        try {
+            TitleDelta.apply(new ByteArrayInputStream(evil.toByteArray()), new FSTDataProviderNUSTitle(oldTitle), evilOutput.getAbsolutePath());
+            Assert.fail("The delta wrote outside of the output folder");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Path of the delta is outside of the output folder"));
+        }
+        assertFalse(new File(evilOutput.getParentFile(), "escaped").exists());
+    }
+
+    @Test
+    public void incrementalExtractionOnlyDecryptsChangedFiles() throws Exception {
+        java.util.Random random = new java.util.Random(21);
+        byte[] kept = new byte[0x2000];
+        byte[] missing = new byte[0x1000];
+        byte[] changedOld = new byte[0x3000];
+        byte[] removed = new byte[0x800];
+        for (byte[] data : Arrays.asList(kept, missing, changedOld, removed)) {
+            random.nextBytes(data);
+        }
+        byte[] changedNew = changedOld.clone();
+        changedNew[0x1234] ^= 0x01;
+
+        // Every file has its own content, the removed file is the last one so the others keep their content index.
+        Map<String, byte[]> oldFiles = new LinkedHashMap<>();
+        oldFiles.put("/a/kept.bin", kept);
+        oldFiles.put("/a/missing.bin", missing);
+        oldFiles.put("/a/changed.bin", changedOld);
+        oldFiles.put("/b/removed.bin", removed);
+        Map<String, byte[]> newFiles = new LinkedHashMap<>(oldFiles);
+        newFiles.put("/a/changed.bin", changedNew);
+        newFiles.remove("/b/removed.bin");
+
+        NUSTitle oldTitle = loadNUSTitle(writeNUSFiles(generateFixedFiles(oldFiles, 0), "incremental_old"));
+        NUSTitle newTitle = loadNUSTitle(writeNUSFiles(generateFixedFiles(newFiles, 1), "incremental_new"));
+
+        File out = folder.newFolder("incremental_out");
+        DecryptionService.getInstance(new FSTDataProviderNUSTitle(oldTitle)).decryptAllFSTEntriesIncrementalTo(out.getAbsolutePath());
+        for (Entry<String, byte[]> file : oldFiles.entrySet()) {
+            Assert.assertArrayEquals(file.getKey(), file.getValue(), Files.readAllBytes(new File(out, file.getKey()).toPath()));
+        }
+        assertTrue(ExtractionManifest.getManifestFile(out.getAbsolutePath()).isFile());
+
+        // Files that are decrypted again get a new modification time.
+        for (String path : oldFiles.keySet()) {
+            assertTrue(new File(out, path).setLastModified(1000));
+        }
+        assertTrue(new File(out, "/a/missing.bin").delete());
+
+        DecryptionService.getInstance(new FSTDataProviderNUSTitle(newTitle)).decryptAllFSTEntriesIncrementalTo(out.getAbsolutePath());
+        for (Entry<String, byte[]> file : newFiles.entrySet()) {
+            Assert.assertArrayEquals(file.getKey(), file.getValue(), Files.readAllBytes(new File(out, file.getKey()).toPath()));
+        }
+        assertEquals(1000, new File(out, "/a/kept.bin").lastModified());
+        assertTrue(new File(out, "/a/missing.bin").lastModified() != 1000);
+        assertTrue(new File(out, "/a/changed.bin").lastModified() != 1000);
+        assertFalse(new File(out, "/b/removed.bin").exists());
+
+        Optional<ExtractionManifest> manifest = ExtractionManifest.load(ExtractionManifest.getManifestFile(out.getAbsolutePath()));
+        assertTrue(manifest.isPresent());
+        assertEquals(newFiles.keySet(), manifest.get().getFiles().keySet());
+    }
+
+    @Test
+    public void binaryDiffFindsShiftedBlocks() throws IOException {
+        byte[] oldData = new byte[0x8000];
+        new java.util.Random(13).nextBytes(oldData);
+        // Some bytes inserted at the start and a changed block in the middle, the rest is shifted by 3 bytes.
+        ByteArrayOutputStream newData = new ByteArrayOutputStream();
+        newData.write(new byte[] { 1, 2, 3 });
+        newData.write(oldData, 0, 0x4000);
+        newData.write(new byte[0x400]);
+        newData.write(oldData, 0x4400, oldData.length - 0x4400);
+
+        ByteArrayOutputStream diff = new ByteArrayOutputStream();
+        BinaryDiff.diff(oldData, newData.toByteArray(), new java.io.DataOutputStream(diff));
+        assertTrue(diff.size() < 0x800);
+        byte[] patched = BinaryDiff.patch(oldData, new java.io.DataInputStream(new java.io.ByteArrayInputStream(diff.toByteArray())), newData.size());
+        Assert.assertArrayEquals(newData.toByteArray(), patched);
+    }
+
+    @Test
+    public void woomyAndWumadArchivesLoadAgain() throws Exception {
+        SyntheticTitleGenerator generator = newGenerator(24);
+        generator.setNonHashedContentCount(2);
+        generator.setHashedContentCount(2);
+        GeneratedTitle generated = generator.generate();
+        File in = writeNUSFiles(generated, "archive");
+        NUSTitle title = loadNUSTitle(in);
+
+        File woomy = new File(folder.getRoot(), "title.woomy");
+        WoomyWriter.writeWoomy(title, woomy);
+        // The contents are written as they are, so they need to be decrypted with the ticket of the archive.
+        NUSTitleConfig config = new NUSTitleConfig();
+        config.setCommonKey(COMMON_KEY);
+        WoomyInfo woomyInfo = WoomyParser.createWoomyInfo(woomy);
+        NUSTitle fromWoomy = NUSTitleLoader.loadNusTitle(config, () -> new NUSDataProviderWoomy(woomyInfo), (dp, cd, ce) -> new DefaultNUSDataProcessor(dp, cd));
+        assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(fromWoomy));
+        fromWoomy.cleanup();
+
+        File wumad = new File(folder.getRoot(), "title.wumad");
+        WumadWriter.writeWumad(title, wumad);
+        List<NUSTitle> partitions = WumadLoader.getGamePartionsAsNUSTitles(WumadLoader.load(wumad), COMMON_KEY);
+        assertEquals(1, partitions.size());
+        assertGeneratedFiles(generated, new FSTDataProviderNUSTitle(partitions.get(0)));
+        partitions.get(0).cleanup();
+
+        // A .h3 file with a wrong size must not end up in the partition header.
+        Content hashed = title.getTMD().getAllContents().values().stream().filter(c -> c.isHashed()).findFirst().get();
+        try (FileOutputStream out = new FileOutputStream(new File(in, String.format("%08X%s", hashed.getID(), Settings.H3_EXTENTION)), true)) {
+            out.write(new byte[0x14]);
+        }
+        File broken = new File(folder.getRoot(), "broken.wumad");
+        try {
+            WumadWriter.writeWumad(loadNUSTitle(in), broken);
+            Assert.fail("A .h3 file with a wrong size was accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(hashed.getFilename()));
+        }
+        assertFalse(broken.exists());
+    }
+
+    @Test
+    public void inflateIndexSeeksMatchZipFile() throws Exception {
+        // Incompressible parts end up in stored blocks, the text in compressed blocks with references across the checkpoints.
+        java.util.Random random = new java.util.Random(17);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] chunk = new byte[0x8000];
+        for (int i = 0; data.size() < 0x300000; i++) {
+            if (i % 3 == 0) {
+                random.nextBytes(chunk);
+                data.write(chunk);
+            } else {
+                for (int j = 0; j < 0x800; j++) {
+                    data.write(String.format("line %d of chunk %d\n", random.nextInt(100), i % 7).getBytes());
+                }
+            }
+        }
+        File archive = folder.newFile("seek.zip");
+        try (java.util.zip.ZipOutputStream out = new java.util.zip.ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new java.util.zip.ZipEntry("data.bin"));
+            data.writeTo(out);
+            out.closeEntry();
+        }
+        byte[] expected;
+        try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(archive)) {
+            java.util.zip.ZipEntry entry = zip.getEntry("data.bin");
+            expected = StreamUtils.getBytesFromStream(zip.getInputStream(entry), (int) entry.getSize());
+        }
+        Assert.assertArrayEquals(data.toByteArray(), expected);
+
+        long oldSpan = Settings.INFLATE_INDEX_SPAN;
+        Settings.INFLATE_INDEX_SPAN = 0x10000;
+        try {
+            File indexFile = new File(archive.getAbsolutePath() + Settings.INFLATE_INDEX_EXTENTION);
+            // The first reader creates the index, the second one has to load it.
+            for (int pass = 0; pass < 2; pass++) {
+                try (ZipArchiveReader reader = new ZipArchiveReader(archive, true)) {
+                    ZipArchiveEntry entry = reader.getEntry("data.bin").get();
+                    if (pass == 1) {
+                        assertTrue(indexFile.setLastModified(1000));
+                    }
+                    assertTrue(reader.getInflateIndex(entry).getCheckpoints().size() > 10);
+                    for (int i = 0; i < 200; i++) {
+                        int offset = i == 0 ? expected.length - 0x10 : random.nextInt(expected.length);
+                        int length = Math.min(random.nextInt(0x3000) + 1, expected.length - offset);
+                        byte[] read = new byte[length];
+                        try (InputStream in = reader.getInputStream(entry, offset)) {
+                            new DataInputStream(in).readFully(read);
+                        }
+                        Assert.assertArrayEquals("offset " + offset, Arrays.copyOfRange(expected, offset, offset + length), read);
+                    }
+                }
+                assertTrue(indexFile.isFile());
+            }
+            assertEquals(1000, indexFile.lastModified());
+        } finally {
+            Settings.INFLATE_INDEX_SPAN = oldSpan;
+        }
+    }
+
+    private static void assertGeneratedFiles(GeneratedTitle generated, FSTDataProvider dataProvider) throws IOException {
+        for (Entry<String, byte[]> file : generated.getFiles().entrySet()) {
+            FSTEntry entry = FSTUtils.getEntryByFullPath(dataProvider.getRoot(), file.getKey()).orElseThrow(() -> new IOException(file.getKey()));
+            Assert.assertArrayEquals(file.getKey(), file.getValue(), dataProvider.readFile(entry));
+        }
+    }
+
+    /**
+     * Returns a generator for a title with the given number of files, the ticket is encrypted with the COMMON_KEY.
+     */
+    private static SyntheticTitleGenerator newGenerator(int fileCount) {
+        SyntheticTitleGenerator generator = new SyntheticTitleGenerator();
+        generator.setCommonKey(COMMON_KEY);
+        generator.setFileCount(fileCount);
+        return generator;
+    }
+
+    /**
+     * Generates a title with the given files, each of them in its own non-hashed content.
+     */
+    private static GeneratedTitle generateFixedFiles(Map<String, byte[]> files, int titleVersion) {
+        SyntheticTitleGenerator generator = newGenerator(files.size());
+        generator.setFiles(files);
+        generator.setNonHashedContentCount(files.size());
+        generator.setHashedContentCount(0);
+        generator.setTitleVersion((short) titleVersion);
+        return generator.generate();
+    }
+
+    /**
+     * Writes the title as NUS files to a new temporary folder with the given name and returns the folder.
+     */
+    private File writeNUSFiles(GeneratedTitle generated, String name) throws IOException {
+        File result = folder.newFolder(name);
+        generated.writeNUSFiles(result);
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static NUSTitle loadNUSTitle(File path) throws Exception {
+        return NUSTitleLoaderLocal.loadNUSTitle(path.getAbsolutePath(), COMMON_KEY);
+    }
 }
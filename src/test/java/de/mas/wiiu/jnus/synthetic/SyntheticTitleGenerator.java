@@ -0,0 +1,730 @@
+package de.mas.wiiu.jnus.synthetic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import de.mas.wiiu.jnus.Settings;
+import de.mas.wiiu.jnus.implementations.wud.WUDImage;
+import de.mas.wiiu.jnus.implementations.wud.WUDImageCompressedInfo;
+import de.mas.wiiu.jnus.implementations.wud.parser.WUDInfoParser;
+import de.mas.wiiu.jnus.implementations.wud.reader.WUDDiscReaderSplitted;
+import de.mas.wiiu.jnus.utils.Utils;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Generates synthetic but well-formed titles for load tests: a TMD, a ticket encrypted with the given common key, hashed and non-hashed contents with valid
+ * H0-H3 trees and a FST with a configurable number of files and size distribution. The first files get their own non-hashed content, all other files are
+ * spread over the hashed contents. The result can be written as local NUS files or as .wud, splitted .wud
+ * and .wux image, all of them can be loaded as they are by the NUSTitleLoaderLocal and the WUDLoader.
+ * 
+ * Everything is derived from the seed, so the same settings always produce the same title. The building blocks (hashed contents with their H0-H3 tree, the
+ * content encryption and FSTs) are also available on their own, the benchmarks use them as input.
+ * 
+ * @author JNUSLib contributors
+ *
+ */
+public class SyntheticTitleGenerator {
+    public static final int HASHED_BLOCK_SIZE = 0x10000;
+    public static final int HASHED_PAYLOAD_SIZE = 0xFC00;
+    public static final int HASH_SECTION_SIZE = 0x400;
+    private static final int NON_HASHED_ALIGNMENT = 0x8000;
+    private static final int FST_OFFSET_FACTOR = 0x20;
+    private static final int DISC_SECTOR_SIZE = WUDInfoParser.SECTOR_SIZE;
+    private static final int DISC_CHUNK_SIZE = 0x10000;
+    private static final int PARTITION_HEADER_SIZE = 0x8000;
+    private static final int CERT_SIZE = 0xA00;
+
+    @Getter @Setter private long titleID = 0x0005000010101000L;
+    @Getter @Setter private short titleVersion = 0;
+    @Getter @Setter private byte[] commonKey = new byte[0x10];
+    @Getter @Setter private byte[] titleKey = Utils.StringToByteArray("0F1E2D3C4B5A69788796A5B4C3D2E1F0");
+    @Getter @Setter private long seed = 0x4A4E5553L;
+
+    @Getter @Setter private int fileCount = 64;
+    @Getter @Setter private int filesPerDirectory = 16;
+    @Getter @Setter private ToLongFunction<Random> fileSizeDistribution = uniform(0, 0x20000);
+    /**
+     * Fixed files by their full path ("/directory/filename"). If set, they are used instead of fileCount random files. The directories and the files in each
+     * directory are stored in the order of the map.
+     */
+    @Getter @Setter private Map<String, byte[]> files;
+
+    @Getter @Setter private int nonHashedContentCount = 1;
+    @Getter @Setter private int hashedContentCount = 1;
+
+    /**
+     * Every size in [min, max] has the same probability.
+     */
+    public static ToLongFunction<Random> uniform(long min, long max) {
+        return r -> min + (long) (r.nextDouble() * (max - min + 1));
+    }
+
+    /**
+     * Most files are close to the median, some are a lot bigger. This is closer to the file sizes of a real title than a uniform distribution.
+     */
+    public static ToLongFunction<Random> logNormal(long median, double sigma, long max) {
+        return r -> Math.min(max, (long) (median * Math.exp(r.nextGaussian() * sigma)));
+    }
+
+    public GeneratedTitle generate() {
+        int dataContentCount = nonHashedContentCount + hashedContentCount;
+        int totalFileCount = files != null ? files.size() : fileCount;
+        if (dataContentCount < 1 || totalFileCount < 1 || filesPerDirectory < 1) {
+            throw new IllegalArgumentException("A title needs at least one file and one data content.");
+        }
+        if (hashedContentCount == 0 && totalFileCount > nonHashedContentCount) {
+            throw new IllegalArgumentException("Without hashed contents each file needs its own non-hashed content.");
+        }
+        Random random = new Random(seed);
+
+        // content 0 is the FST, followed by the non-hashed and the hashed contents.
+        boolean[] hashed = new boolean[dataContentCount + 1];
+        for (int i = nonHashedContentCount + 1; i <= dataContentCount; i++) {
+            hashed[i] = true;
+        }
+
+        List<ByteArrayOutputStream> payloads = new ArrayList<>();
+        payloads.add(null);
+        for (int i = 1; i <= dataContentCount; i++) {
+            payloads.add(new ByteArrayOutputStream());
+        }
+
+        Map<String, List<String>> directories = getDirectories();
+        Map<String, byte[]> generatedFiles = new LinkedHashMap<>();
+        FSTBuilder fst = new FSTBuilder();
+        int fileIndex = 0;
+        for (Map.Entry<String, List<String>> dir : directories.entrySet()) {
+            String dirName = dir.getKey();
+            fst.addDirectory(dirName, dir.getValue().size());
+            for (String filename : dir.getValue()) {
+                byte[] data;
+                if (files != null) {
+                    data = files.get("/" + dirName + "/" + filename);
+                } else {
+                    data = new byte[(int) Math.max(0, fileSizeDistribution.applyAsLong(random))];
+                    random.nextBytes(data);
+                }
+
+                // Like on real titles, a non-hashed content contains exactly one file. The hash of the content is checked when the whole file is read.
+                short contentIndex = (short) (fileIndex < nonHashedContentCount ? 1 + fileIndex : 1 + nonHashedContentCount + random.nextInt(hashedContentCount));
+                ByteArrayOutputStream payload = payloads.get(contentIndex);
+                int offset = payload.size();
+                payload.write(data, 0, data.length);
+                payload.write(new byte[align(data.length, FST_OFFSET_FACTOR) - data.length], 0, align(data.length, FST_OFFSET_FACTOR) - data.length);
+
+                fst.addFile(filename, offset, data.length, contentIndex);
+                generatedFiles.put("/" + dirName + "/" + filename, data);
+                fileIndex++;
+            }
+        }
+
+        List<GeneratedContent> contents = new ArrayList<>();
+        contents.add(null);
+        for (int i = 1; i <= dataContentCount; i++) {
+            byte[] payload = payloads.get(i).toByteArray();
+            contents.add(hashed[i] ? createHashedContent((short) i, payload) : createNonHashedContent((short) i, payload));
+        }
+
+        // The FST needs the position of each content on the disc. They are placed in order of their index, aligned to a sector.
+        long[] offsetSectors = new long[dataContentCount + 1];
+        long[] sizeSectors = new long[dataContentCount + 1];
+        long fstSize = align(fst.getSize(dataContentCount + 1), NON_HASHED_ALIGNMENT);
+        long curOffset = fstSize;
+        sizeSectors[0] = fstSize / DISC_SECTOR_SIZE;
+        for (int i = 1; i <= dataContentCount; i++) {
+            offsetSectors[i] = curOffset / DISC_SECTOR_SIZE + 1;
+            sizeSectors[i] = contents.get(i).getEncryptedData().length / DISC_SECTOR_SIZE;
+            curOffset += contents.get(i).getEncryptedData().length;
+        }
+        contents.set(0, createNonHashedContent((short) 0, fst.build(titleID, offsetSectors, sizeSectors, hashed)));
+
+        return new GeneratedTitle(titleID, createTMD(contents), createTicket(), new byte[CERT_SIZE], contents, generatedFiles);
+    }
+
+    /**
+     * Returns the filenames of each directory, either from the fixed files or fileCount random files in directories with filesPerDirectory files.
+     */
+    private Map<String, List<String>> getDirectories() {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        if (files != null) {
+            for (String path : files.keySet()) {
+                int separator = path.lastIndexOf('/');
+                if (!path.startsWith("/") || separator <= 1 || path.indexOf('/', 1) != separator || separator == path.length() - 1) {
+                    throw new IllegalArgumentException("Files need to be in a directory of the root: " + path);
+                }
+                result.computeIfAbsent(path.substring(1, separator), k -> new ArrayList<>()).add(path.substring(separator + 1));
+            }
+            return result;
+        }
+        for (int i = 0; i < fileCount; i++) {
+            result.computeIfAbsent(String.format("dir%03d", i / filesPerDirectory), k -> new ArrayList<>()).add(String.format("file%05d.bin", i));
+        }
+        return result;
+    }
+
+    private GeneratedContent createNonHashedContent(short index, byte[] payload) {
+        byte[] plain = Arrays.copyOf(payload, Math.max(NON_HASHED_ALIGNMENT, align(payload.length, NON_HASHED_ALIGNMENT)));
+        return new GeneratedContent(index, false, encryptNonHashed(plain, titleKey, index), null, sha1(plain, 0, plain.length));
+    }
+
+    private GeneratedContent createHashedContent(short index, byte[] payload) {
+        HashedContent content = createHashedContent(payload);
+        byte[] h3Data = content.getH3Hashes();
+        return new GeneratedContent(index, true, encryptHashed(content.getDecrypted(), titleKey), h3Data, sha1(h3Data, 0, h3Data.length));
+    }
+
+    private byte[] createTMD(List<GeneratedContent> contents) {
+        ByteBuffer buffer = ByteBuffer.allocate(0xB04 + 0x30 * contents.size());
+        buffer.putInt(0x00, 0x00010004);
+        buffer.position(0x140);
+        buffer.put("Root-CA00000003-CP0000000b".getBytes());
+        buffer.put(0x180, (byte) 1);
+        buffer.putLong(0x18C, titleID);
+        buffer.putInt(0x194, 0x100);
+        buffer.putShort(0x198, (short) (titleID >> 8));
+        buffer.putShort(0x1DC, titleVersion);
+        buffer.putShort(0x1DE, (short) contents.size());
+        buffer.putShort(0x1E0, (short) 0);
+
+        for (GeneratedContent c : contents) {
+            int offset = 0xB04 + 0x30 * c.getIndex();
+            buffer.putInt(offset, c.getID());
+            buffer.putShort(offset + 0x04, c.getIndex());
+            buffer.putShort(offset + 0x06, (short) (c.isHashed() ? 0x2003 : 0x2001));
+            buffer.putLong(offset + 0x08, c.getEncryptedData().length);
+            buffer.position(offset + 0x10);
+            buffer.put(c.getHash());
+        }
+
+        byte[] contentRecords = Arrays.copyOfRange(buffer.array(), 0xB04, buffer.capacity());
+        buffer.putShort(0x204, (short) 0);
+        buffer.putShort(0x206, (short) contents.size());
+        buffer.position(0x208);
+        buffer.put(sha256(contentRecords));
+        buffer.position(0x1E4);
+        buffer.put(sha256(Arrays.copyOfRange(buffer.array(), 0x204, 0xB04)));
+        return buffer.array();
+    }
+
+    private byte[] createTicket() {
+        ByteBuffer buffer = ByteBuffer.allocate(0x350);
+        buffer.putInt(0x00, 0x00010004);
+        buffer.position(0x140);
+        buffer.put("Root-CA00000003-XS0000000c".getBytes());
+        buffer.put(0x1BC, (byte) 1);
+        byte[] IV = ByteBuffer.allocate(0x10).putLong(titleID).array();
+        buffer.position(0x1BF);
+        buffer.put(encrypt(commonKey, IV, titleKey, 0, 0x10));
+        buffer.putLong(0x1DC, titleID);
+        buffer.putShort(0x1E6, titleVersion);
+        return buffer.array();
+    }
+
+    /**
+     * Creates the decrypted blocks of a hashed content with a valid H0-H3 tree. The payload is padded to full blocks.
+     */
+    public static HashedContent createHashedContent(byte[] payload) {
+        int blockCount = Math.max(1, (payload.length + HASHED_PAYLOAD_SIZE - 1) / HASHED_PAYLOAD_SIZE);
+        byte[] plain = Arrays.copyOf(payload, blockCount * HASHED_PAYLOAD_SIZE);
+
+        byte[][] h0 = new byte[blockCount][];
+        for (int b = 0; b < blockCount; b++) {
+            h0[b] = sha1(plain, b * HASHED_PAYLOAD_SIZE, HASHED_PAYLOAD_SIZE);
+        }
+        byte[][] h1 = hashGroups(h0);
+        byte[][] h2 = hashGroups(h1);
+        byte[][] h3 = hashGroups(h2);
+
+        byte[] h3Data = new byte[h3.length * 0x14];
+        for (int i = 0; i < h3.length; i++) {
+            System.arraycopy(h3[i], 0, h3Data, i * 0x14, 0x14);
+        }
+
+        byte[] decrypted = new byte[blockCount * HASHED_BLOCK_SIZE];
+        for (int b = 0; b < blockCount; b++) {
+            int offset = b * HASHED_BLOCK_SIZE;
+            copyGroup(h0, b / 16, decrypted, offset);
+            copyGroup(h1, b / 256, decrypted, offset + 0x140);
+            copyGroup(h2, b / 4096, decrypted, offset + 0x280);
+            System.arraycopy(plain, b * HASHED_PAYLOAD_SIZE, decrypted, offset + HASH_SECTION_SIZE, HASHED_PAYLOAD_SIZE);
+        }
+        return new HashedContent(plain, decrypted, h3Data);
+    }
+
+    /**
+     * Encrypts the decrypted blocks of a hashed content like the .app files: the hash section with an IV of zeros, the payload with the first 16 bytes of its
+     * H0 hash as IV.
+     */
+    public static byte[] encryptHashed(byte[] decrypted, byte[] key) {
+        byte[] result = new byte[decrypted.length];
+        for (int offset = 0; offset < decrypted.length; offset += HASHED_BLOCK_SIZE) {
+            int b = offset / HASHED_BLOCK_SIZE;
+            System.arraycopy(encrypt(key, new byte[0x10], decrypted, offset, HASH_SECTION_SIZE), 0, result, offset, HASH_SECTION_SIZE);
+            byte[] IV = Arrays.copyOfRange(decrypted, offset + (b % 16) * 0x14, offset + (b % 16) * 0x14 + 0x10);
+            System.arraycopy(encrypt(key, IV, decrypted, offset + HASH_SECTION_SIZE, HASHED_PAYLOAD_SIZE), 0, result, offset + HASH_SECTION_SIZE,
+                    HASHED_PAYLOAD_SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * Encrypts a non-hashed content. The IV is the content index followed by zeros.
+     */
+    public static byte[] encryptNonHashed(byte[] plain, byte[] key, short contentIndex) {
+        byte[] IV = ByteBuffer.allocate(0x10).putShort(contentIndex).array();
+        return encrypt(key, IV, plain, 0, plain.length);
+    }
+
+    /**
+     * Creates a FST with dirCount directories, each of them with subDirCount directories with fileCount files of the given size. All files are in content 1,
+     * every third file is a .szs file, the others are .bin files.
+     */
+    public static byte[] createFST(int dirCount, int subDirCount, int fileCount, int fileSize) {
+        FSTBuilder fst = new FSTBuilder();
+        long offset = 0;
+        for (int d = 0; d < dirCount; d++) {
+            int dir = fst.addDirectory(String.format("dir%02d", d), 0, subDirCount * (1 + fileCount));
+            for (int s = 0; s < subDirCount; s++) {
+                fst.addDirectory(String.format("sub%03d", s), dir, fileCount);
+                for (int f = 0; f < fileCount; f++) {
+                    fst.addFile(String.format("file%03d.%s", f, f % 3 == 0 ? "szs" : "bin"), offset, fileSize, (short) 1);
+                    offset += align(fileSize, FST_OFFSET_FACTOR);
+                }
+            }
+        }
+        return fst.build(0, new long[2], new long[2], new boolean[2]);
+    }
+
+    /**
+     * A hashed content before the encryption: the padded payload, the blocks (hash section + payload) and the H3 hashes.
+     */
+    public static class HashedContent {
+        @Getter private final byte[] payload;
+        @Getter private final byte[] decrypted;
+        @Getter private final byte[] h3Hashes;
+
+        HashedContent(byte[] payload, byte[] decrypted, byte[] h3Hashes) {
+            this.payload = payload;
+            this.decrypted = decrypted;
+            this.h3Hashes = h3Hashes;
+        }
+
+        public int getBlockCount() {
+            return decrypted.length / HASHED_BLOCK_SIZE;
+        }
+
+        /** Returns the hash section (H0-H2) of the given block. */
+        public byte[] getHashes(int block) {
+            return Arrays.copyOfRange(decrypted, block * HASHED_BLOCK_SIZE, block * HASHED_BLOCK_SIZE + HASH_SECTION_SIZE);
+        }
+
+        /** Returns the payload of the given block. */
+        public byte[] getBlockPayload(int block) {
+            return Arrays.copyOfRange(payload, block * HASHED_PAYLOAD_SIZE, (block + 1) * HASHED_PAYLOAD_SIZE);
+        }
+    }
+
+    /**
+     * A generated title. All data is kept in memory, so it should only be used for titles that fit into the heap.
+     */
+    public static class GeneratedTitle {
+        @Getter private final long titleID;
+        @Getter private final byte[] rawTMD;
+        @Getter private final byte[] rawTicket;
+        @Getter private final byte[] rawCert;
+        @Getter private final List<GeneratedContent> contents;
+        /** Plain data of each file by its full path. */
+        @Getter private final Map<String, byte[]> files;
+
+        GeneratedTitle(long titleID, byte[] rawTMD, byte[] rawTicket, byte[] rawCert, List<GeneratedContent> contents, Map<String, byte[]> files) {
+            this.titleID = titleID;
+            this.rawTMD = rawTMD;
+            this.rawTicket = rawTicket;
+            this.rawCert = rawCert;
+            this.contents = Collections.unmodifiableList(contents);
+            this.files = Collections.unmodifiableMap(files);
+        }
+
+        /**
+         * Writes the title in the same layout as a download from the NUS: .app and .h3 files, title.tmd, title.tik and title.cert.
+         */
+        public void writeNUSFiles(File folder) throws IOException {
+            Utils.createDir(folder.getAbsolutePath());
+            writeFile(new File(folder, Settings.TMD_FILENAME), rawTMD);
+            writeFile(new File(folder, Settings.TICKET_FILENAME), rawTicket);
+            writeFile(new File(folder, Settings.CERT_FILENAME), rawCert);
+            for (GeneratedContent c : contents) {
+                writeFile(new File(folder, String.format("%08X%s", c.getID(), Settings.ENCRYPTED_CONTENT_EXTENTION)), c.getEncryptedData());
+                if (c.isHashed()) {
+                    writeFile(new File(folder, String.format("%08X%s", c.getID(), Settings.H3_EXTENTION)), c.getH3Data());
+                }
+            }
+        }
+
+        /**
+         * Writes a full size .wud image and the game.key next to it.
+         */
+        public File writeWUD(File folder, byte[] discKey) throws IOException {
+            return writeWUD(folder, discKey, WUDImage.WUD_FILESIZE);
+        }
+
+        /**
+         * Writes a .wud image with the given size and the game.key next to it. The image is sparse, only the areas with data are written.
+         */
+        public File writeWUD(File folder, byte[] discKey, long imageSize) throws IOException {
+            TreeMap<Long, byte[]> layout = createDiscLayout(discKey, imageSize);
+            File result = new File(folder, "game.wud");
+            writeImagePart(result, layout, 0, imageSize);
+            writeFile(new File(folder, Settings.WUD_KEY_FILENAME), discKey);
+            return result;
+        }
+
+        /**
+         * Writes the image in the parts that are created by wudump and the game.key next to them. Returns the first part.
+         */
+        public File writeSplittedWUD(File folder, byte[] discKey, long imageSize) throws IOException {
+            TreeMap<Long, byte[]> layout = createDiscLayout(discKey, imageSize);
+            long partSize = WUDDiscReaderSplitted.WUD_SPLITTED_FILE_SIZE;
+            int partCount = (int) ((imageSize + partSize - 1) / partSize);
+            for (int i = 0; i < partCount; i++) {
+                File part = new File(folder, String.format(WUDDiscReaderSplitted.WUD_SPLITTED_DEFAULT_FILEPATTERN, i + 1));
+                writeImagePart(part, layout, i * partSize, Math.min(partSize, imageSize - i * partSize));
+            }
+            writeFile(new File(folder, Settings.WUD_KEY_FILENAME), discKey);
+            return new File(folder, String.format(WUDDiscReaderSplitted.WUD_SPLITTED_DEFAULT_FILEPATTERN, 1));
+        }
+
+        /**
+         * Writes the image as .wux and the game.key next to it. Sectors with the same data are only stored once, like the WUDService does.
+         */
+        public File writeWUX(File folder, byte[] discKey, long imageSize) throws IOException {
+            TreeMap<Long, byte[]> layout = createDiscLayout(discKey, imageSize);
+            WUDImageCompressedInfo info = new WUDImageCompressedInfo(WUDImageCompressedInfo.SECTOR_SIZE, 0, imageSize);
+            int sectorSize = info.getSectorSize();
+
+            Map<String, Integer> knownSectors = new LinkedHashMap<>();
+            List<byte[]> sectors = new ArrayList<>();
+            ByteBuffer indexTable = ByteBuffer.allocate((int) info.getIndexTableSize()).order(ByteOrder.LITTLE_ENDIAN);
+            for (long i = 0; i < info.getIndexTableEntryCount(); i++) {
+                byte[] sector = readLayout(layout, i * sectorSize, sectorSize);
+                // Most of the image is empty, no need to hash all of these sectors.
+                String key = sector == null ? "" : Utils.ByteArrayToString(sha1(sector, 0, sector.length));
+                Integer index = knownSectors.get(key);
+                if (index == null) {
+                    index = sectors.size();
+                    knownSectors.put(key, index);
+                    sectors.add(sector == null ? new byte[sectorSize] : sector);
+                }
+                indexTable.putInt(index);
+            }
+
+            File result = new File(folder, "game.wux");
+            try (RandomAccessFile out = new RandomAccessFile(result, "rw")) {
+                out.setLength(0);
+                out.write(info.getHeaderAsBytes());
+                out.seek(info.getOffsetIndexTable());
+                out.write(indexTable.array());
+                out.seek(info.getOffsetSectorArray());
+                for (byte[] sector : sectors) {
+                    out.write(sector);
+                }
+            }
+            writeFile(new File(folder, Settings.WUD_KEY_FILENAME), discKey);
+            return result;
+        }
+
+        /**
+         * Creates the areas of a disc with one SI and one GM partition. The SI partition contains the tmd, ticket and cert, the GM partition the content
+         * files. The partition table, the FST of the SI partition and its files are encrypted with the disc key.
+         */
+        private TreeMap<Long, byte[]> createDiscLayout(byte[] discKey, long imageSize) throws IOException {
+            TreeMap<Long, byte[]> layout = new TreeMap<>();
+
+            // SI partition: one cluster with a folder for the GM partition.
+            FSTBuilder siFST = new FSTBuilder();
+            siFST.addDirectory("01", 3);
+            byte[][] siFiles = { rawTicket, rawTMD, rawCert };
+            String[] siFilenames = { WUDInfoParser.WUD_TICKET_FILENAME, WUDInfoParser.WUD_TMD_FILENAME, WUDInfoParser.WUD_CERT_FILENAME };
+            ByteArrayOutputStream siCluster = new ByteArrayOutputStream();
+            for (int i = 0; i < siFiles.length; i++) {
+                siFST.addFile(siFilenames[i], siCluster.size(), siFiles[i].length, (short) 0);
+                siCluster.write(siFiles[i]);
+                siCluster.write(new byte[align(siFiles[i].length, FST_OFFSET_FACTOR) - siFiles[i].length]);
+            }
+            int siFSTSize = align(siFST.getSize(1), DISC_CHUNK_SIZE);
+            byte[] siFSTData = Arrays.copyOf(siFST.build(titleID, new long[] { siFSTSize / DISC_SECTOR_SIZE + 1 },
+                    new long[] { align(siCluster.size(), DISC_CHUNK_SIZE) / DISC_SECTOR_SIZE }, new boolean[1]), siFSTSize);
+            byte[] siClusterData = Arrays.copyOf(siCluster.toByteArray(), align(siCluster.size(), DISC_CHUNK_SIZE));
+
+            long siOffset = align(Settings.WIIU_DECRYPTED_AREA_OFFSET + DISC_CHUNK_SIZE, DISC_SECTOR_SIZE);
+            layout.put(siOffset, createPartitionHeader(siFSTData.length, null));
+            layout.put(siOffset + PARTITION_HEADER_SIZE, encryptChunks(discKey, siFSTData, true));
+            layout.put(siOffset + PARTITION_HEADER_SIZE + siFSTData.length, encryptChunks(discKey, siClusterData, false));
+
+            // GM partition: the contents are stored as they are, at the offset that is stored in the FST.
+            long gmOffset = siOffset + PARTITION_HEADER_SIZE + siFSTData.length + siClusterData.length;
+            long curOffset = gmOffset + PARTITION_HEADER_SIZE;
+            layout.put(gmOffset, createPartitionHeader(0, contents));
+            for (GeneratedContent c : contents) {
+                layout.put(curOffset, c.getEncryptedData());
+                curOffset += c.getEncryptedData().length;
+            }
+            if (curOffset > imageSize) {
+                throw new IOException("The title doesn't fit into an image of " + imageSize + " bytes.");
+            }
+
+            // Partition table
+            ByteBuffer toc = ByteBuffer.allocate(DISC_CHUNK_SIZE);
+            toc.put(WUDInfoParser.DECRYPTED_AREA_SIGNATURE);
+            toc.putInt(0x1C, 2);
+            String[] names = { "SI", String.format("GM%016X", titleID) };
+            long[] offsets = { siOffset, gmOffset };
+            for (int i = 0; i < names.length; i++) {
+                int entryOffset = WUDInfoParser.PARTITION_TOC_OFFSET + i * WUDInfoParser.PARTITION_TOC_ENTRY_SIZE;
+                toc.position(entryOffset);
+                toc.put(names[i].getBytes());
+                toc.putInt(entryOffset + 0x20, (int) (offsets[i] / DISC_SECTOR_SIZE));
+            }
+            layout.put((long) Settings.WIIU_DECRYPTED_AREA_OFFSET, encryptChunks(discKey, toc.array(), true));
+
+            return layout;
+        }
+
+        private byte[] createPartitionHeader(int fstSize, List<GeneratedContent> contents) {
+            ByteBuffer header = ByteBuffer.allocate(PARTITION_HEADER_SIZE);
+            header.put(WUDInfoParser.PARTITION_START_SIGNATURE);
+            header.putInt(0x04, PARTITION_HEADER_SIZE);
+            header.putInt(0x14, fstSize);
+            if (contents != null) {
+                // The h3 hashes of all hashed contents, the GamePartitionHeader expects one more than needed for each 0x1000 blocks.
+                header.putInt(0x10, 0);
+                header.position(0x40);
+                for (GeneratedContent c : contents) {
+                    if (c.isHashed()) {
+                        int count = c.getEncryptedData().length / HASHED_BLOCK_SIZE / 0x1000 + 1;
+                        header.put(Arrays.copyOf(c.getH3Data(), count * 0x14));
+                    }
+                }
+            }
+            return header.array();
+        }
+    }
+
+    /**
+     * A content of a generated title.
+     */
+    public static class GeneratedContent {
+        @Getter private final short index;
+        @Getter private final boolean hashed;
+        @Getter private final byte[] encryptedData;
+        /** h3 hashes, null for non-hashed contents. */
+        @Getter private final byte[] h3Data;
+        /** Hash as it is stored in the TMD */
+        @Getter private final byte[] hash;
+
+        GeneratedContent(short index, boolean hashed, byte[] encryptedData, byte[] h3Data, byte[] hash) {
+            this.index = index;
+            this.hashed = hashed;
+            this.encryptedData = encryptedData;
+            this.h3Data = h3Data;
+            this.hash = hash;
+        }
+
+        public int getID() {
+            return index;
+        }
+    }
+
+    /**
+     * Builds a FST. The entries need to be added in the order they appear in the FST.
+     */
+    private static class FSTBuilder {
+        private final ByteArrayOutputStream names = new ByteArrayOutputStream();
+        private final List<int[]> entries = new ArrayList<>();
+
+        FSTBuilder() {
+            names.write(0);
+            entries.add(new int[] { 0x01000000, 0, 0, 0 });
+        }
+
+        void addDirectory(String name, int fileCount) {
+            addDirectory(name, 0, fileCount);
+        }
+
+        /**
+         * Adds a directory with the given number of entries (including the entries of its subdirectories) and returns its index.
+         */
+        int addDirectory(String name, int parent, int entryCount) {
+            int index = entries.size();
+            entries.add(new int[] { 0x01000000 | addName(name), parent, index + 1 + entryCount, 0 });
+            return index;
+        }
+
+        void addFile(String name, long offset, int size, short contentIndex) {
+            entries.add(new int[] { addName(name), (int) (offset / FST_OFFSET_FACTOR), size, contentIndex & 0xFFFF });
+        }
+
+        int getSize(int contentCount) {
+            return 0x20 + 0x20 * contentCount + 0x10 * entries.size() + names.size();
+        }
+
+        byte[] build(long titleID, long[] offsetSectors, long[] sizeSectors, boolean[] hashed) {
+            ByteBuffer buffer = ByteBuffer.allocate(getSize(offsetSectors.length));
+            buffer.put(WUDInfoParser.PARTITION_FILE_TABLE_SIGNATURE);
+            buffer.putInt(FST_OFFSET_FACTOR);
+            buffer.putInt(offsetSectors.length);
+            for (int i = 0; i < offsetSectors.length; i++) {
+                buffer.position(0x20 + 0x20 * i);
+                buffer.putInt((int) offsetSectors[i]);
+                buffer.putInt((int) sizeSectors[i]);
+                buffer.putLong(titleID);
+                buffer.putInt(0);
+                buffer.put((byte) (hashed[i] ? 2 : 1));
+            }
+            buffer.position(0x20 + 0x20 * offsetSectors.length);
+            entries.get(0)[2] = entries.size();
+            for (int[] entry : entries) {
+                buffer.putInt(entry[0]);
+                buffer.putInt(entry[1]);
+                buffer.putInt(entry[2]);
+                buffer.putShort((short) 0);
+                buffer.putShort((short) entry[3]);
+            }
+            buffer.put(names.toByteArray());
+            return buffer.array();
+        }
+
+        private int addName(String name) {
+            int offset = names.size();
+            byte[] data = name.getBytes();
+            names.write(data, 0, data.length);
+            names.write(0);
+            return offset;
+        }
+    }
+
+    private static void writeImagePart(File file, TreeMap<Long, byte[]> layout, long offset, long size) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            out.setLength(size);
+            for (Entry<Long, byte[]> area : layout.entrySet()) {
+                long start = Math.max(area.getKey(), offset);
+                long end = Math.min(area.getKey() + area.getValue().length, offset + size);
+                if (start < end) {
+                    out.seek(start - offset);
+                    out.write(area.getValue(), (int) (start - area.getKey()), (int) (end - start));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the data of the layout in the given range, null if there is no data in this range.
+     */
+    private static byte[] readLayout(TreeMap<Long, byte[]> layout, long offset, int size) {
+        byte[] result = null;
+        Entry<Long, byte[]> first = layout.floorEntry(offset);
+        for (Entry<Long, byte[]> area : layout.subMap(first != null ? first.getKey() : offset, offset + size).entrySet()) {
+            long start = Math.max(area.getKey(), offset);
+            long end = Math.min(area.getKey() + area.getValue().length, offset + size);
+            if (start < end) {
+                if (result == null) {
+                    result = new byte[size];
+                }
+                System.arraycopy(area.getValue(), (int) (start - area.getKey()), result, (int) (start - offset), (int) (end - start));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Encrypts data in 0x10000 byte chunks like the WUDDiscReader expects it. The IV is either 0 or the number of the chunk.
+     */
+    private static byte[] encryptChunks(byte[] key, byte[] data, boolean fixedIV) {
+        byte[] result = new byte[data.length];
+        for (int offset = 0; offset < data.length; offset += DISC_CHUNK_SIZE) {
+            byte[] IV = new byte[0x10];
+            if (!fixedIV) {
+                IV = ByteBuffer.allocate(0x10).putLong(0x08, offset / DISC_CHUNK_SIZE).array();
+            }
+            System.arraycopy(encrypt(key, IV, data, offset, DISC_CHUNK_SIZE), 0, result, offset, DISC_CHUNK_SIZE);
+        }
+        return result;
+    }
+
+    private static byte[][] hashGroups(byte[][] hashes) {
+        byte[][] result = new byte[(hashes.length + 15) / 16][];
+        for (int g = 0; g < result.length; g++) {
+            byte[] group = new byte[16 * 0x14];
+            copyGroup(hashes, g, group, 0);
+            result[g] = sha1(group, 0, group.length);
+        }
+        return result;
+    }
+
+    private static void copyGroup(byte[][] hashes, int group, byte[] dest, int offset) {
+        for (int i = 0; i < 16 && group * 16 + i < hashes.length; i++) {
+            System.arraycopy(hashes[group * 16 + i], 0, dest, offset + i * 0x14, 0x14);
+        }
+    }
+
+    private static int align(int value, int alignment) {
+        return (int) Utils.align(value, alignment);
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static byte[] sha1(byte[] data, int offset, int length) {
+        return digest("SHA1", data, offset, length);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        return digest("SHA-256", data, 0, data.length);
+    }
+
+    private static byte[] digest(String algorithm, byte[] data, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(algorithm);
+            digest.update(data, offset, length);
+            return digest.digest();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encrypt(byte[] key, byte[] IV, byte[] input, int offset, int length) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(IV));
+            return cipher.doFinal(input, offset, length);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}